@@ -0,0 +1,28 @@
+package com.ren130302.config.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH のエントリポイント。 結果は既定で target/jmh-result.json に JSON 形式で出力する。 JMH のコマンドライン引数（-p keyCount=10
+ * など）はそのまま使える。
+ */
+public final class BenchmarkRunner {
+
+  private static final String RESULT_FILE = "target/jmh-result.json";
+
+  private BenchmarkRunner() {} // インスタンス化禁止
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    Options options = new OptionsBuilder().parent(commandLine)
+        .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+        .result(commandLine.getResult().orElse(RESULT_FILE)).build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,53 @@
+package com.ren130302.config.benchmark;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.ren130302.config.benchmark.ConfigFixtures.SourceType;
+import com.ren130302.config.source.ConfigSource;
+
+/**
+ * getList / getSet のコスト。 getMap は Map 値を持たない Properties を除くため MapReadBenchmark で測る。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionReadBenchmark {
+
+  @Param({"JSON", "INDEXED_JSON", "PROPERTIES", "MAP"})
+  public SourceType sourceType;
+
+  @Param({"10", "1000", "100000"})
+  public int keyCount;
+
+  private ConfigSource<?> source;
+
+  @Setup
+  public void setup() {
+    this.source = ConfigFixtures.create(this.sourceType, this.keyCount);
+  }
+
+  @Benchmark
+  public List<String> getList() {
+    return this.source.getList(ConfigFixtures.USERS_KEY, String.class);
+  }
+
+  @Benchmark
+  public Set<String> getSet() {
+    return this.source.getSet(ConfigFixtures.USERS_KEY, String.class);
+  }
+}
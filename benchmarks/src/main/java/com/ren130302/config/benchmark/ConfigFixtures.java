@@ -0,0 +1,108 @@
+package com.ren130302.config.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.source.PersistentConfigSource;
+import com.ren130302.config.source.binary.BinaryConfigCompiler;
+import com.ren130302.config.source.binary.BinaryConfigSource;
+import com.ren130302.config.source.json.IndexedJsonConfigSource;
+import com.ren130302.config.source.json.JsonConfigSource;
+import com.ren130302.config.source.properties.PropertiesConfigSource;
+
+/**
+ * ベンチマーク用の設定ツリーを生成する。 keyCount 件の生成キーに加えて server / app / database の固定キーを持つ。
+ */
+public final class ConfigFixtures {
+
+  static final String PORT_KEY = "server.port";
+  static final String HOST_KEY = "server.host";
+  static final String USERS_KEY = "app.users";
+  static final String DATABASE_KEY = "database";
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private ConfigFixtures() {} // インスタンス化禁止
+
+  public enum SourceType {
+    JSON, INDEXED_JSON, PROPERTIES, MAP, BINARY, PERSISTENT
+  }
+
+  /** 生成キー i の名前。 100 件ずつ group に分けて深さ 3 のツリーにする */
+  static String generatedKey(int i) {
+    return "group" + (i / 100) + ".entry" + i + ".value";
+  }
+
+  /** 1 つのリクエストでまとめて読む想定の関連キー。 固定キーと同じ group の生成キー 20 件 */
+  static List<String> relatedKeys(int keyCount) {
+    List<String> keys = new ArrayList<>(List.of(PORT_KEY, HOST_KEY, "server.tls.enabled"));
+    int group = keyCount / 2 / 100 * 100;
+    for (int i = group; i < Math.min(group + 20, keyCount); i++) {
+      keys.add(generatedKey(i));
+    }
+    return List.copyOf(keys);
+  }
+
+  public static ConfigSource<?> create(SourceType type, int keyCount) {
+    return switch (type) {
+      case JSON -> json(keyCount);
+      case INDEXED_JSON -> IndexedJsonConfigSource.of(jsonTree(keyCount));
+      case PROPERTIES -> properties(keyCount);
+      case MAP -> map(keyCount);
+      case PERSISTENT -> new PersistentConfigSource(map(keyCount).source());
+      case BINARY -> BinaryConfigSource.wrap(BinaryConfigCompiler.compile(json(keyCount)));
+    };
+  }
+
+  public static JsonConfigSource json(int keyCount) {
+    // 書き込みごとに経路をコピーするため、1 つのトランザクションとして書き込む
+    Map<String, Object> data = fixed(true);
+    for (int i = 0; i < keyCount; i++) {
+      data.put(generatedKey(i), i);
+    }
+    JsonConfigSource source = new JsonConfigSource(mapper.createObjectNode());
+    source.putAll(data);
+    return source;
+  }
+
+  public static ObjectNode jsonTree(int keyCount) {
+    return json(keyCount).source();
+  }
+
+  public static PropertiesConfigSource properties(int keyCount) {
+    PropertiesConfigSource source = new PropertiesConfigSource(new Properties());
+    fixed(false).forEach(source::set);
+    for (int i = 0; i < keyCount; i++) {
+      source.set(generatedKey(i), i);
+    }
+    return source;
+  }
+
+  public static MapConfigSource map(int keyCount) {
+    MapConfigSource source = new MapConfigSource(new HashMap<>());
+    fixed(true).forEach(source::set);
+    for (int i = 0; i < keyCount; i++) {
+      source.set(generatedKey(i), i);
+    }
+    return source;
+  }
+
+  private static Map<String, Object> fixed(boolean structured) {
+    Map<String, Object> data = new LinkedHashMap<>();
+    data.put(PORT_KEY, 8080);
+    data.put(HOST_KEY, "localhost");
+    data.put("server.tls.enabled", true);
+    data.put(USERS_KEY, structured ? List.of("alice", "bob", "carol") : "alice,bob,carol");
+    if (structured) {
+      data.put(DATABASE_KEY, Map.of("url", "jdbc:mysql://localhost/db1", "user", "root"));
+    }
+    return data;
+  }
+}
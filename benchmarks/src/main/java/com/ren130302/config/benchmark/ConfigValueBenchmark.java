@@ -0,0 +1,82 @@
+package com.ren130302.config.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.ren130302.config.benchmark.ConfigFixtures.SourceType;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.value.IntConfigValue;
+import com.ren130302.config.value.RequiredConfigValue;
+
+/**
+ * RequiredConfigValue.get() / IntConfigValue.getAsInt() のキャッシュあり／なし、およびマルチスレッドでの競合時のコスト。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigValueBenchmark {
+
+  @Param({"JSON", "INDEXED_JSON", "PROPERTIES", "MAP"})
+  public SourceType sourceType;
+
+  @Param({"10", "1000", "100000"})
+  public int keyCount;
+
+  private RequiredConfigValue<String> host;
+  private IntConfigValue port;
+
+  @Setup
+  public void setup() {
+    ConfigSource<?> source = ConfigFixtures.create(this.sourceType, this.keyCount);
+    this.host = RequiredConfigValue.immutable(source, ConfigFixtures.HOST_KEY, String.class);
+    this.port = IntConfigValue.of(source, ConfigFixtures.PORT_KEY);
+  }
+
+  @Benchmark
+  public String cached() {
+    return this.host.get();
+  }
+
+  @Benchmark
+  public String uncached() {
+    this.host.clear();
+    return this.host.get();
+  }
+
+  @Benchmark
+  public int primitiveCached() {
+    return this.port.getAsInt();
+  }
+
+  @Benchmark
+  public int primitiveUncached() {
+    this.port.clear();
+    return this.port.getAsInt();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String contended() {
+    return this.host.get();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String contendedUncached() {
+    this.host.clear();
+    return this.host.get();
+  }
+}
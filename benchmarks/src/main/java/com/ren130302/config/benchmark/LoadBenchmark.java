@@ -0,0 +1,71 @@
+package com.ren130302.config.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.binary.BinaryConfigCompiler;
+import com.ren130302.config.source.binary.BinaryConfigSource;
+import com.ren130302.config.source.json.IndexedJsonConfigSource;
+import com.ren130302.config.source.json.JsonConfigSource;
+import com.ren130302.config.source.json.StreamingJsonLoader;
+
+/**
+ * 設定の読み込みコスト。 readTree による ObjectNode 経由の読み込み、JsonParser による直接構築、バイナリ形式の読み込みを比較する。
+ * 結果の保持量が GC のコストに直結するため、ヒープを固定して計測する。 割り当て量は -prof gc で確認する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class LoadBenchmark {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  @Param({"1000", "100000"})
+  public int keyCount;
+
+  private byte[] document;
+  private byte[] binary;
+
+  @Setup
+  public void setup() throws IOException {
+    this.document = mapper.writeValueAsBytes(ConfigFixtures.jsonTree(this.keyCount));
+    this.binary = BinaryConfigCompiler.compile(ConfigFixtures.json(this.keyCount));
+  }
+
+  @Benchmark
+  public ConfigSource<?> readTree() throws IOException {
+    return new JsonConfigSource((ObjectNode) mapper.readTree(this.document));
+  }
+
+  @Benchmark
+  public ConfigSource<?> readTreeIndexed() throws IOException {
+    return IndexedJsonConfigSource.of((ObjectNode) mapper.readTree(this.document));
+  }
+
+  @Benchmark
+  public ConfigSource<?> streaming() throws IOException {
+    return StreamingJsonLoader.load(new ByteArrayInputStream(this.document));
+  }
+
+  @Benchmark
+  public ConfigSource<?> binary() {
+    return BinaryConfigSource.wrap(this.binary);
+  }
+}
@@ -0,0 +1,104 @@
+package com.ren130302.config.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.ren130302.config.benchmark.ConfigFixtures.SourceType;
+import com.ren130302.config.source.ConfigSource;
+
+/**
+ * 単一キー読み出し・型変換・keys()/containsKey のコスト。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SourceReadBenchmark {
+
+  @Param({"JSON", "INDEXED_JSON", "PROPERTIES", "MAP", "BINARY", "PERSISTENT"})
+  public SourceType sourceType;
+
+  @Param({"10", "1000", "100000"})
+  public int keyCount;
+
+  private ConfigSource<?> source;
+  private String generatedKey;
+  private List<String> relatedKeys;
+
+  @Setup
+  public void setup() {
+    this.source = ConfigFixtures.create(this.sourceType, this.keyCount);
+    this.generatedKey = ConfigFixtures.generatedKey(this.keyCount / 2);
+    this.relatedKeys = ConfigFixtures.relatedKeys(this.keyCount);
+  }
+
+  @Benchmark
+  public Object get() {
+    return this.source.get(ConfigFixtures.HOST_KEY);
+  }
+
+  @Benchmark
+  public Object getGenerated() {
+    return this.source.get(this.generatedKey);
+  }
+
+  @Benchmark
+  public int getInt() {
+    return this.source.getInt(ConfigFixtures.PORT_KEY);
+  }
+
+  @Benchmark
+  public Integer getTyped() {
+    return this.source.get(ConfigFixtures.PORT_KEY, Integer.class);
+  }
+
+  @Benchmark
+  public boolean getBoolean() {
+    return this.source.getBoolean("server.tls.enabled");
+  }
+
+  @Benchmark
+  public String getString() {
+    return this.source.getString(ConfigFixtures.PORT_KEY);
+  }
+
+  @Benchmark
+  public boolean containsKey() {
+    return this.source.containsKey(this.generatedKey);
+  }
+
+  @Benchmark
+  public boolean containsKeyMissing() {
+    return this.source.containsKey("missing.key");
+  }
+
+  @Benchmark
+  public Object[] getAll() {
+    return this.source.getAll(this.relatedKeys);
+  }
+
+  @Benchmark
+  public void getEach(Blackhole bh) {
+    for (String key : this.relatedKeys) {
+      bh.consume(this.source.get(key));
+    }
+  }
+
+  @Benchmark
+  public void keys(Blackhole bh) {
+    bh.consume(this.source.keys());
+  }
+}
@@ -0,0 +1,54 @@
+package com.ren130302.config.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.ren130302.config.benchmark.ConfigFixtures.SourceType;
+import com.ren130302.config.source.ConfigSource;
+
+/**
+ * set / setRaw による書き込みのコスト。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+  @Param({"JSON", "PROPERTIES", "MAP", "PERSISTENT"})
+  public SourceType sourceType;
+
+  @Param({"10", "1000", "100000"})
+  public int keyCount;
+
+  private ConfigSource<?> source;
+  private String normalizedKey;
+  private int counter;
+
+  @Setup
+  public void setup() {
+    this.source = ConfigFixtures.create(this.sourceType, this.keyCount);
+    this.normalizedKey = ConfigFixtures.generatedKey(this.keyCount / 2);
+  }
+
+  @Benchmark
+  public void set() {
+    this.source.set(ConfigFixtures.PORT_KEY, this.counter++);
+  }
+
+  @Benchmark
+  public void setRaw() {
+    this.source.setRaw(this.normalizedKey, this.counter++);
+  }
+}
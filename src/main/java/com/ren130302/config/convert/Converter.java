@@ -0,0 +1,11 @@
+package com.ren130302.config.convert;
+
+/**
+ * S の値を T に変換する。 null は渡されない。
+ */
+@FunctionalInterface
+public interface Converter<S, T> {
+
+  T convert(S value);
+
+}
@@ -0,0 +1,268 @@
+package com.ren130302.config.convert;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * (変換元の型, 変換先の型) をキーにした Converter の登録簿。
+ * <p>
+ * 変換先の型ごとの解決済みテーブルを ClassValue に保持し、変換元の型から Converter を O(1) で引く。 変換元の型に直接登録が
+ * なければスーパークラス・インターフェースの登録を探し、結果をテーブルに記録する。 登録時は変換先の型のテーブルのみを破棄する。
+ * <p>
+ * 既定の登録簿は文字列・数値からラッパー型、BigDecimal / BigInteger、Duration、URI、Path、File、InetSocketAddress、
+ * Pattern、Charset、UUID、Instant、LocalDate / LocalDateTime への変換を持つ。 文字列から enum、任意の値から String への
+ * 変換は登録なしで行う。
+ */
+public final class ConverterRegistry {
+
+  /** 解決済みで変換できないことを表す */
+  private static final Converter<Object, Object> NONE = value -> {
+    throw new IllegalStateException("NONE must not be invoked");
+  };
+  private static final Converter<Object, Object> IDENTITY = value -> value;
+  private static final Converter<Object, Object> TO_STRING = Object::toString;
+  private static final ConverterRegistry DEFAULTS = new ConverterRegistry().registerDefaults();
+
+  /** 変換先 -> (変換元 -> Converter) の登録 */
+  private final Map<Class<?>, Map<Class<?>, Converter<?, ?>>> registered =
+      new ConcurrentHashMap<>();
+  private final ClassValue<Map<Class<?>, Converter<?, ?>>> resolved = new ClassValue<>() {
+    @Override
+    protected Map<Class<?>, Converter<?, ?>> computeValue(Class<?> target) {
+      return new ConcurrentHashMap<>();
+    }
+  };
+  private volatile long generation;
+
+  /**
+   * 既定の変換のみを持つ新しい登録簿。
+   */
+  public static ConverterRegistry create() {
+    return new ConverterRegistry().registerDefaults();
+  }
+
+  /**
+   * すべての ConfigSource が使う共有の登録簿。 ここに登録した変換は get(key, type) などから利用できる。
+   */
+  public static ConverterRegistry defaults() {
+    return DEFAULTS;
+  }
+
+  public synchronized <S, T> ConverterRegistry register(Class<S> sourceType, Class<T> targetType,
+      Converter<? super S, ? extends T> converter) {
+    Class<?> target = box(targetType);
+    this.registered.computeIfAbsent(target, t -> new ConcurrentHashMap<>()).put(sourceType,
+        converter);
+    this.resolved.remove(target);
+    this.generation++;
+    return this;
+  }
+
+  /**
+   * 登録の世代。 register のたびに増えるため、変換結果をキャッシュする側はこの値で無効化を判定できる。
+   */
+  public long generation() {
+    return this.generation;
+  }
+
+  public boolean canConvert(Class<?> sourceType, Class<?> targetType) {
+    return this.find(sourceType, box(targetType)) != NONE;
+  }
+
+  /**
+   * value を targetType に変換する。 value が null なら null。 プリミティブ型はラッパー型として扱う。
+   *
+   * @throws UnsupportedOperationException 変換が登録されていない場合
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T convert(Object value, Class<T> targetType) {
+    if (value == null) {
+      return null;
+    }
+    Class<?> target = box(targetType);
+    Converter<Object, Object> converter = this.find(value.getClass(), target);
+    if (converter == NONE) {
+      throw new UnsupportedOperationException("Unsupported conversion: "
+          + value.getClass().getSimpleName() + " to " + targetType.getSimpleName());
+    }
+    return (T) converter.convert(value);
+  }
+
+  /**
+   * プリミティブ型を対応するラッパー型にする。 それ以外はそのまま返す。
+   */
+  public static Class<?> box(Class<?> type) {
+    if (!type.isPrimitive()) {
+      return type;
+    }
+    return switch (type.getName()) {
+      case "int" -> Integer.class;
+      case "long" -> Long.class;
+      case "double" -> Double.class;
+      case "float" -> Float.class;
+      case "boolean" -> Boolean.class;
+      case "short" -> Short.class;
+      case "byte" -> Byte.class;
+      case "char" -> Character.class;
+      default -> Void.class;
+    };
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  @SuppressWarnings("unchecked")
+  private Converter<Object, Object> find(Class<?> sourceType, Class<?> target) {
+    Map<Class<?>, Converter<?, ?>> table = this.resolved.get(target);
+    Converter<?, ?> converter = table.get(sourceType);
+    if (converter == null) {
+      converter = table.computeIfAbsent(sourceType, s -> this.resolve(s, target));
+    }
+    return (Converter<Object, Object>) converter;
+  }
+
+  /**
+   * 変換元の型自身、スーパークラス、インターフェースの順（幅優先）に登録を探す。
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Converter<?, ?> resolve(Class<?> sourceType, Class<?> target) {
+    if (target.isAssignableFrom(sourceType)) {
+      return IDENTITY;
+    }
+    Map<Class<?>, Converter<?, ?>> candidates = this.registered.getOrDefault(target, Map.of());
+    Deque<Class<?>> queue = new ArrayDeque<>();
+    Set<Class<?>> seen = new HashSet<>();
+    queue.add(sourceType);
+    while (!queue.isEmpty()) {
+      Class<?> type = queue.poll();
+      if (!seen.add(type)) {
+        continue;
+      }
+      Converter<?, ?> converter = candidates.get(type);
+      if (converter != null) {
+        return converter;
+      }
+      if (type.getSuperclass() != null) {
+        queue.add(type.getSuperclass());
+      }
+      queue.addAll(Arrays.asList(type.getInterfaces()));
+    }
+    if (target.isEnum() && CharSequence.class.isAssignableFrom(sourceType)) {
+      return value -> Enum.valueOf((Class<Enum>) target, value.toString().trim());
+    }
+    if (target == String.class) {
+      return TO_STRING;
+    }
+    return NONE;
+  }
+
+  private ConverterRegistry registerDefaults() {
+    this.register(String.class, Integer.class, s -> Integer.valueOf(s.trim()));
+    this.register(String.class, Long.class, s -> Long.valueOf(s.trim()));
+    this.register(String.class, Boolean.class, s -> Boolean.valueOf(s.trim()));
+    this.register(String.class, Double.class, s -> Double.valueOf(s.trim()));
+    this.register(String.class, Float.class, s -> Float.valueOf(s.trim()));
+    this.register(String.class, Short.class, s -> Short.valueOf(s.trim()));
+    this.register(String.class, Byte.class, s -> Byte.valueOf(s.trim()));
+    this.register(String.class, Character.class, ConverterRegistry::toChar);
+    this.register(String.class, BigDecimal.class, s -> new BigDecimal(s.trim()));
+    this.register(String.class, BigInteger.class, s -> new BigInteger(s.trim()));
+    this.register(String.class, Duration.class, ConverterRegistry::toDuration);
+    this.register(String.class, URI.class, s -> URI.create(s.trim()));
+    this.register(String.class, Path.class, s -> Path.of(s.trim()));
+    this.register(String.class, File.class, s -> new File(s.trim()));
+    this.register(String.class, InetSocketAddress.class, ConverterRegistry::toSocketAddress);
+    this.register(String.class, Pattern.class, Pattern::compile);
+    this.register(String.class, Charset.class, s -> Charset.forName(s.trim()));
+    this.register(String.class, UUID.class, s -> UUID.fromString(s.trim()));
+    this.register(String.class, Instant.class, s -> Instant.parse(s.trim()));
+    this.register(String.class, LocalDate.class, s -> LocalDate.parse(s.trim()));
+    this.register(String.class, LocalDateTime.class, s -> LocalDateTime.parse(s.trim()));
+
+    // 整数型どうしは桁あふれを例外にし、小数からの変換は文字列として解析する（1.5 -> int は失敗する）
+    this.register(Number.class, Integer.class, n -> isIntegral(n)
+        ? Math.toIntExact(n.longValue()) : Integer.valueOf(n.toString()));
+    this.register(Number.class, Long.class,
+        n -> isIntegral(n) ? n.longValue() : Long.valueOf(n.toString()));
+    this.register(Number.class, Short.class, n -> Short.valueOf(n.toString()));
+    this.register(Number.class, Byte.class, n -> Byte.valueOf(n.toString()));
+    this.register(Number.class, Double.class, Number::doubleValue);
+    this.register(Number.class, Float.class, Number::floatValue);
+    this.register(Number.class, BigDecimal.class, n -> new BigDecimal(n.toString()));
+    this.register(Number.class, BigInteger.class, n -> new BigInteger(n.toString()));
+    this.register(Number.class, Duration.class, n -> Duration.ofMillis(n.longValue()));
+    // getBoolean と同じく文字列表現を解析する（"true" 以外は false）
+    this.register(Number.class, Boolean.class, n -> Boolean.parseBoolean(n.toString()));
+    return this;
+  }
+
+  private static boolean isIntegral(Number n) {
+    return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte;
+  }
+
+  private static Character toChar(String s) {
+    if (s.isEmpty()) {
+      throw new IllegalArgumentException("Cannot convert empty string to Character");
+    }
+    return s.charAt(0);
+  }
+
+  /**
+   * ISO-8601 形式（PT30S）、単位付きの数値（500ms, 30s, 5m, 2h, 1d）、単位なしの数値（ミリ秒）を受け付ける。
+   */
+  private static Duration toDuration(String s) {
+    String text = s.trim();
+    if (text.startsWith("P") || text.startsWith("p") || text.startsWith("-P")) {
+      return Duration.parse(text);
+    }
+    int end = 0;
+    while (end < text.length()
+        && (Character.isDigit(text.charAt(end)) || text.charAt(end) == '-')) {
+      end++;
+    }
+    long amount = Long.parseLong(text.substring(0, end));
+    return switch (text.substring(end).trim().toLowerCase()) {
+      case "", "ms" -> Duration.ofMillis(amount);
+      case "ns" -> Duration.ofNanos(amount);
+      case "us" -> Duration.ofNanos(Math.multiplyExact(amount, 1000L));
+      case "s" -> Duration.ofSeconds(amount);
+      case "m" -> Duration.ofMinutes(amount);
+      case "h" -> Duration.ofHours(amount);
+      case "d" -> Duration.ofDays(amount);
+      default -> throw new IllegalArgumentException("Invalid duration: " + s);
+    };
+  }
+
+  /**
+   * host:port 形式。 IPv6 アドレスは [::1]:8080 のように角括弧で囲む。 名前解決は行わない。
+   */
+  private static InetSocketAddress toSocketAddress(String s) {
+    String text = s.trim();
+    int colon = text.lastIndexOf(':');
+    if (colon <= 0 || colon == text.length() - 1) {
+      throw new IllegalArgumentException("Invalid socket address: " + s);
+    }
+    String host = text.substring(0, colon);
+    if (host.startsWith("[") && host.endsWith("]")) {
+      host = host.substring(1, host.length() - 1);
+    }
+    return InetSocketAddress.createUnresolved(host, Integer.parseInt(text.substring(colon + 1)));
+  }
+}
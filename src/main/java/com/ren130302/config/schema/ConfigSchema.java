@@ -0,0 +1,199 @@
+package com.ren130302.config.schema;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.KeyPath;
+import com.ren130302.config.source.KeyPathResolver;
+import com.ren130302.config.source.KeyPathResolvers;
+
+/**
+ * キー・型・制約の宣言。 build 時にキーのセグメントで分岐するトライに変換し、検証はソースの keys() を 1 回走査して各キーを
+ * トライで照合する。 宣言していないキーは検査しない。
+ * <p>
+ * キーのセグメントに * を書くと任意の 1 セグメントに一致する（database.connections.*.url）。 * を含む宣言は一致したキーの
+ * 値のみを検査するため、required にはできない。 keys() に現れないキー（JSON のオブジェクトなど）の宣言は、走査の後に
+ * getRaw で検査する。
+ * <p>
+ * 起動時に check でまとめて検証し、以降の変更は validator(source).watch(...) で変更されたキーのみを再検証する。
+ */
+public final class ConfigSchema {
+
+  static final String WILDCARD = "*";
+
+  private final Node root;
+  /** * を含まない宣言 */
+  private final Map<String, Rule> exact;
+
+  /**
+   * トライのノード。 children は build 後に変更しない。
+   */
+  private static final class Node {
+    final Map<String, Node> children = new HashMap<>();
+    final List<Rule> rules = new ArrayList<>(1);
+  }
+
+  private ConfigSchema(Node root, Map<String, Rule> exact) {
+    this.root = root;
+    this.exact = exact;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * source 全体を検証し、すべての違反を返す。 違反がなければ空のリスト。
+   */
+  public List<ConfigViolation> validate(ConfigSource<?> source) {
+    return source.readConsistent(() -> {
+      List<ConfigViolation> violations = new ArrayList<>();
+      KeyPathResolver resolver = source.keyPathResolver();
+      List<Rule> matched = new ArrayList<>();
+      Set<String> seen = new HashSet<>();
+      for (String key : source.keys()) {
+        KeyPath path = resolver.compile(key);
+        matched.clear();
+        this.match(path, matched);
+        if (matched.isEmpty()) {
+          continue;
+        }
+        Object raw = source.getRaw(path);
+        for (Rule rule : matched) {
+          rule.check(key, raw, violations);
+        }
+        if (this.exact.containsKey(key)) {
+          seen.add(key);
+        }
+      }
+      this.exact.forEach((key, rule) -> {
+        if (!seen.contains(key)) {
+          rule.check(key, source.getRaw(key), violations);
+        }
+      });
+      return violations;
+    });
+  }
+
+  /**
+   * source 全体を検証し、違反があればすべての違反を列挙した IllegalStateException を送出する。 起動時の検証に使う。
+   */
+  public void check(ConfigSource<?> source) {
+    List<ConfigViolation> violations = this.validate(source);
+    if (!violations.isEmpty()) {
+      throw new IllegalStateException(violations.size() + " configuration violation(s):\n  "
+          + violations.stream().map(ConfigViolation::toString)
+              .collect(Collectors.joining("\n  ")));
+    }
+  }
+
+  /**
+   * source を検証した結果を保持し、変更されたキーのみを再検証する ConfigValidator。 作成時に全体を検証する。
+   */
+  public ConfigValidator validator(ConfigSource<?> source) {
+    return new ConfigValidator(this, source);
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  /**
+   * path に一致する宣言を matched に追加する。
+   */
+  void match(KeyPath path, List<Rule> matched) {
+    match(this.root, path, 0, matched);
+  }
+
+  /**
+   * * を含まない宣言のうち、キーが prefix. で始まるもの。
+   */
+  List<Rule> exactUnder(String prefix) {
+    String start = prefix + ".";
+    List<Rule> rules = new ArrayList<>();
+    for (Rule rule : this.exact.values()) {
+      if (rule.key().startsWith(start)) {
+        rules.add(rule);
+      }
+    }
+    return rules;
+  }
+
+  private static void match(Node node, KeyPath path, int i, List<Rule> matched) {
+    if (i == path.size()) {
+      matched.addAll(node.rules);
+      return;
+    }
+    Node child = node.children.get(path.segment(i));
+    if (child != null) {
+      match(child, path, i + 1, matched);
+    }
+    Node wildcard = node.children.get(WILDCARD);
+    if (wildcard != null) {
+      match(wildcard, path, i + 1, matched);
+    }
+  }
+
+  /**
+   * ConfigSchema の宣言。 キーはドット区切りで記述する。
+   */
+  public static final class Builder {
+
+    private final Map<String, Rule> rules = new LinkedHashMap<>();
+
+    private Builder() {}
+
+    /**
+     * 値が存在し、type に変換でき、constraints をすべて満たすキー。
+     */
+    public Builder required(String key, Class<?> type, Constraint... constraints) {
+      return this.add(key, type, true, constraints);
+    }
+
+    /**
+     * 値が存在する場合のみ検査するキー。
+     */
+    public Builder optional(String key, Class<?> type, Constraint... constraints) {
+      return this.add(key, type, false, constraints);
+    }
+
+    public ConfigSchema build() {
+      Node root = new Node();
+      Map<String, Rule> exact = new LinkedHashMap<>();
+      this.rules.forEach((key, rule) -> {
+        Node node = root;
+        for (String segment : KeyPathResolvers.DOT.compile(key).segments()) {
+          node = node.children.computeIfAbsent(segment, s -> new Node());
+        }
+        node.rules.add(rule);
+        if (!isPattern(key)) {
+          exact.put(key, rule);
+        }
+      });
+      return new ConfigSchema(root, Map.copyOf(exact));
+    }
+
+    private Builder add(String key, Class<?> type, boolean required, Constraint[] constraints) {
+      String normalized = KeyPathResolvers.DOT.normalizeKey(key);
+      Objects.requireNonNull(type, "type must not be null");
+      if (required && isPattern(normalized)) {
+        throw new IllegalArgumentException("Required key must not contain wildcards: " + key);
+      }
+      if (this.rules.containsKey(normalized)) {
+        throw new IllegalArgumentException("Duplicate key: " + key);
+      }
+      this.rules.put(normalized,
+          new Rule(normalized, type, required, List.of(constraints)));
+      return this;
+    }
+
+    private static boolean isPattern(String key) {
+      return KeyPathResolvers.DOT.compile(key).segments().contains(WILDCARD);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.ren130302.config.schema;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.KeyPath;
+import com.ren130302.config.source.KeyPathResolver;
+import com.ren130302.config.source.Subscription;
+
+/**
+ * 1 つの ConfigSource に対する検証結果を保持し、変更されたキーのみを再検証する。 再検証の対象は変更されたキー自身、その祖先
+ * （オブジェクトの宣言）、その配下のキー（祖先への書き込みで置き換えられた値）に限る。
+ */
+public final class ConfigValidator {
+
+  private final ConfigSchema schema;
+  private final ConfigSource<?> source;
+  /** キー -> そのキーの違反 */
+  private final Map<String, List<ConfigViolation>> violations = new LinkedHashMap<>();
+
+  ConfigValidator(ConfigSchema schema, ConfigSource<?> source) {
+    this.schema = Objects.requireNonNull(schema, "schema must not be null");
+    this.source = Objects.requireNonNull(source, "source must not be null");
+    this.validate();
+  }
+
+  /**
+   * 現在の違反。 違反がなければ空のリスト。
+   */
+  public synchronized List<ConfigViolation> violations() {
+    List<ConfigViolation> result = new ArrayList<>();
+    this.violations.values().forEach(result::addAll);
+    return List.copyOf(result);
+  }
+
+  public boolean isValid() {
+    return this.violations().isEmpty();
+  }
+
+  /**
+   * ソース全体を検証し直す。
+   */
+  public synchronized List<ConfigViolation> validate() {
+    this.violations.clear();
+    for (ConfigViolation violation : this.schema.validate(this.source)) {
+      this.violations.computeIfAbsent(violation.key(), k -> new ArrayList<>()).add(violation);
+    }
+    return this.violations();
+  }
+
+  /**
+   * changedKeys とその祖先・配下のキーのみを検証し直し、現在の違反を返す。 空文字列のキー（ソース全体またはその祖先への
+   * 書き込み）を含む場合はソース全体を検証し直す。
+   */
+  public synchronized List<ConfigViolation> revalidate(Collection<String> changedKeys) {
+    if (changedKeys.contains("")) {
+      return this.source.readConsistent(this::validate);
+    }
+    KeyPathResolver resolver = this.source.keyPathResolver();
+    this.source.readConsistent(() -> {
+      Set<String> targets = new LinkedHashSet<>();
+      for (String changed : changedKeys) {
+        KeyPath path = resolver.compile(changed);
+        for (KeyPath current = path; current != null; current = current.parent()) {
+          targets.add(current.key());
+        }
+        String start = path.key() + ".";
+        this.violations.keySet().removeIf(key -> key.startsWith(start));
+        targets.addAll(this.source.keys(path.key()));
+        this.schema.exactUnder(path.key()).forEach(rule -> targets.add(rule.key()));
+      }
+      List<Rule> matched = new ArrayList<>();
+      for (String key : targets) {
+        KeyPath path = resolver.compile(key);
+        matched.clear();
+        this.schema.match(path, matched);
+        this.violations.remove(key);
+        if (matched.isEmpty()) {
+          continue;
+        }
+        List<ConfigViolation> found = new ArrayList<>();
+        Object raw = this.source.getRaw(path);
+        for (Rule rule : matched) {
+          rule.check(key, raw, found);
+        }
+        if (!found.isEmpty()) {
+          this.violations.put(key, found);
+        }
+      }
+      return null;
+    });
+    return this.violations();
+  }
+
+  /**
+   * ソースの変更のたびに変更されたキーを再検証し、違反の一覧が変わった場合に listener に現在の違反を渡す。 再検証は書き込んだ
+   * スレッド上で変更の通知時に行う。
+   *
+   * @throws UnsupportedOperationException ソースが変更を通知しない場合
+   */
+  public Subscription watch(Consumer<List<ConfigViolation>> listener) {
+    Objects.requireNonNull(listener, "listener must not be null");
+    return this.source.subscribe("", event -> {
+      List<ConfigViolation> after;
+      boolean changed;
+      synchronized (this) {
+        List<ConfigViolation> before = this.violations();
+        after = this.revalidate(event.keys());
+        changed = !before.equals(after);
+      }
+      if (changed) {
+        listener.accept(after);
+      }
+    }, Runnable::run);
+  }
+}
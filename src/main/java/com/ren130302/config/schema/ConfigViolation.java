@@ -0,0 +1,12 @@
+package com.ren130302.config.schema;
+
+/**
+ * スキーマの違反。 key は違反した値のキー。
+ */
+public record ConfigViolation(String key, String message) {
+
+  @Override
+  public String toString() {
+    return this.key + ": " + this.message;
+  }
+}
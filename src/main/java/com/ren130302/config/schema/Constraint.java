@@ -0,0 +1,71 @@
+package com.ren130302.config.schema;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * 値の制約。 値はスキーマで宣言した型に変換してから渡す。
+ */
+@FunctionalInterface
+public interface Constraint {
+
+  /**
+   * value が制約を満たさなければ違反の説明、満たせば null。
+   */
+  String check(Object value);
+
+  /**
+   * min 以上 max 以下の整数。 数値以外は違反とする。
+   */
+  static Constraint range(long min, long max) {
+    if (min > max) {
+      throw new IllegalArgumentException("min must not be greater than max: " + min + " > " + max);
+    }
+    return value -> {
+      if (!(value instanceof Number number)) {
+        return "Expected a number but was " + value;
+      }
+      boolean inRange = number instanceof Double || number instanceof Float
+          ? number.doubleValue() >= min && number.doubleValue() <= max
+          : number.longValue() >= min && number.longValue() <= max;
+      return inRange ? null : "Must be between " + min + " and " + max + " but was " + value;
+    };
+  }
+
+  static Constraint range(double min, double max) {
+    if (min > max) {
+      throw new IllegalArgumentException("min must not be greater than max: " + min + " > " + max);
+    }
+    return value -> {
+      if (!(value instanceof Number number)) {
+        return "Expected a number but was " + value;
+      }
+      double d = number.doubleValue();
+      return d >= min && d <= max ? null
+          : "Must be between " + min + " and " + max + " but was " + value;
+    };
+  }
+
+  /**
+   * 文字列表現全体が regex に一致する。 正規表現はここで 1 回だけコンパイルする。
+   */
+  static Constraint pattern(String regex) {
+    Pattern pattern = Pattern.compile(regex);
+    return value -> pattern.matcher(value.toString()).matches() ? null
+        : "Must match " + regex + " but was " + value;
+  }
+
+  static Constraint oneOf(Object... values) {
+    Set<Object> allowed = Set.of(values);
+    return value -> allowed.contains(value) ? null
+        : "Must be one of " + allowed + " but was " + value;
+  }
+
+  static Constraint of(Predicate<Object> predicate, String message) {
+    Objects.requireNonNull(predicate, "predicate must not be null");
+    Objects.requireNonNull(message, "message must not be null");
+    return value -> predicate.test(value) ? null : message;
+  }
+}
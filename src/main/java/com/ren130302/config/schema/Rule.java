@@ -0,0 +1,36 @@
+package com.ren130302.config.schema;
+
+import java.util.List;
+import com.ren130302.config.convert.ConverterRegistry;
+
+/**
+ * 1 つのキー（または * を含むキーのパターン）の宣言。
+ */
+record Rule(String key, Class<?> type, boolean required, List<Constraint> constraints) {
+
+  /**
+   * key の生の値 raw を検査し、違反を violations に追加する。
+   */
+  void check(String key, Object raw, List<ConfigViolation> violations) {
+    if (raw == null) {
+      if (this.required) {
+        violations.add(new ConfigViolation(key, "Required value is missing"));
+      }
+      return;
+    }
+    Object value;
+    try {
+      value = ConverterRegistry.defaults().convert(raw, this.type);
+    } catch (RuntimeException e) {
+      violations.add(new ConfigViolation(key,
+          "Expected " + this.type.getSimpleName() + " but was '" + raw + "'"));
+      return;
+    }
+    for (Constraint constraint : this.constraints) {
+      String message = constraint.check(value);
+      if (message != null) {
+        violations.add(new ConfigViolation(key, message));
+      }
+    }
+  }
+}
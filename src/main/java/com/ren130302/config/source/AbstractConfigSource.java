@@ -1,11 +1,22 @@
 package com.ren130302.config.source;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import com.ren130302.config.convert.ConverterRegistry;
 
 /**
  * 抽象クラスとしての ConfigSource 基底。 生の値を返すだけで型変換は ConfigSource の default メソッドに任せる。 List/Set/Map など
@@ -13,8 +24,36 @@ import java.util.stream.Collectors;
  */
 public abstract class AbstractConfigSource<T> implements ConfigSource<T> {
 
+  /** 変換結果をキャッシュするキーの上限。 達した場合は 1/4 を破棄してから追加する */
+  private static final int MAX_CONVERTED = 4096;
+  /** 1 つのキーについて型ごとに保持する変換結果の上限 */
+  private static final int MAX_CONVERTED_TYPES = 4;
+  /** writeVersions と subtreeVersions の合計の上限。 超えた場合は両方を破棄して floor に集約する */
+  private static final int MAX_STAMPS = 16_384;
+
   protected final T source;
   protected final KeyPathResolver keyPathResolver;
+  private final AtomicLong version = new AtomicLong();
+  /** キーへの直接の書き込み時点のバージョン */
+  private final Map<String, Long> writeVersions = new ConcurrentHashMap<>();
+  /** キー自身またはその子孫が最後に変更された時点のバージョン */
+  private final Map<String, Long> subtreeVersions = new ConcurrentHashMap<>();
+  /** 破棄した記録のうち最大のバージョン。 記録のないキーの version(key) はこの値になる */
+  private volatile long floor;
+  /** 最初の購読時に作成する。 購読されていない間の変更は通知しない */
+  private volatile ChangeNotifier notifier;
+  /** update の適用中は書き込みロックを保持する。 readConsistent は楽観的読み出しで検証する */
+  private final StampedLock transactionLock = new StampedLock();
+  /** update を適用中のスレッドで、markChanged を確定まで保留したパス */
+  private final ThreadLocal<List<KeyPath>> pendingChanges = new ThreadLocal<>();
+  /** キーごとの変換結果。 型ごとに 1 件、新しいものから順に MAX_CONVERTED_TYPES 件まで */
+  private final Map<String, Converted[]> converted = new ConcurrentHashMap<>();
+
+  /**
+   * 変換結果。 変換元の値・変換先の型・登録簿の世代が一致する間は再利用する。
+   */
+  private record Converted(Object raw, Class<?> type, long generation, Object value) {
+  }
 
   protected AbstractConfigSource(T source, KeyPathResolver resolver) {
     this.source = source;
@@ -28,58 +67,268 @@ public abstract class AbstractConfigSource<T> implements ConfigSource<T> {
 
   @Override
   public <V> V get(String key) {
-    return (V) this.getRaw(this.keyPathResolver.normalizeKey(key));
+    return (V) this.getRaw(this.compile(key));
   }
 
   @Override
   @SuppressWarnings("unchecked")
   public <V> V get(String key, Class<V> type) {
-    Object value = this.getRaw(this.keyPathResolver.normalizeKey(key));
+    KeyPath path = this.compile(key);
+    Object value = this.getRaw(path);
     if (value == null) {
       return null;
     }
     if (type.isInstance(value)) {
       return (V) value;
     }
+    return this.convert(path.key(), value, type);
+  }
 
-    if (type == String.class) {
-      return (V) this.getString(key);
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V get(String key, V defaultValue) {
+    V value;
+    if (defaultValue != null) {
+      value = this.get(key, (Class<V>) defaultValue.getClass());
+    } else {
+      value = (V) this.get(key);
     }
-    if (type == Integer.class) {
-      return (V) Integer.valueOf(this.getInt(key));
+    return value != null ? value : defaultValue;
+  }
+
+  // ----------------- プリミティブ取得 -----------------
+  // KeyPath 版に集約し、各ソースは KeyPath 版をオーバーライドして String 経由の変換を避ける。
+
+  @Override
+  public boolean getBoolean(String key) {
+    return this.getBoolean(this.compile(key), false);
+  }
+
+  @Override
+  public boolean getBoolean(String key, boolean defaultValue) {
+    return this.getBoolean(this.compile(key), defaultValue);
+  }
+
+  @Override
+  public int getInt(String key) {
+    return this.getInt(this.compile(key), 0);
+  }
+
+  @Override
+  public int getInt(String key, int defaultValue) {
+    return this.getInt(this.compile(key), defaultValue);
+  }
+
+  @Override
+  public long getLong(String key) {
+    return this.getLong(this.compile(key), 0L);
+  }
+
+  @Override
+  public long getLong(String key, long defaultValue) {
+    return this.getLong(this.compile(key), defaultValue);
+  }
+
+  @Override
+  public double getDouble(String key) {
+    return this.getDouble(this.compile(key), 0d);
+  }
+
+  @Override
+  public double getDouble(String key, double defaultValue) {
+    return this.getDouble(this.compile(key), defaultValue);
+  }
+
+  @Override
+  public long version() {
+    return this.version.get();
+  }
+
+  /**
+   * 空文字列のキーはルート全体を指すため version() を返す。
+   */
+  @Override
+  public long version(String key) {
+    if (key.isEmpty()) {
+      return this.version();
     }
-    if (type == Long.class) {
-      return (V) Long.valueOf(this.getLong(key));
+    KeyPath path = this.compile(key);
+    long result = stamp(this.subtreeVersions, path.key());
+    for (KeyPath ancestor = path.parent(); ancestor != null; ancestor = ancestor.parent()) {
+      result = Math.max(result, stamp(this.writeVersions, ancestor.key()));
     }
-    if (type == Boolean.class) {
-      return (V) Boolean.valueOf(this.getBoolean(key));
+    // 記録を読んだ後に floor を読む。 破棄の途中でも、破棄された記録より小さい値は返さない
+    return Math.max(result, this.floor);
+  }
+
+  /**
+   * setRaw の実装から呼び出し、バージョンを進めて path への書き込みを記録する。 path 自身と祖先には「部分木が変更された」
+   * ことを記録するため、version(key) は key の部分木と、祖先そのものへの書き込みのみを見ればよい（兄弟の変更は影響しない）。
+   */
+  protected final void markChanged(KeyPath path) {
+    this.converted.remove(path.key());
+    List<KeyPath> pending = this.pendingChanges.get();
+    if (pending != null) {
+      pending.add(path);
+      return;
     }
-    if (type == Double.class) {
-      return (V) Double.valueOf(this.getDouble(key));
+    long stamp = this.version.incrementAndGet();
+    this.record(path, stamp);
+    ChangeNotifier notifier = this.notifier;
+    if (notifier != null) {
+      notifier.changed(path.key());
     }
-    if (type == Float.class) {
-      return (V) Float.valueOf(this.getFloat(key));
+  }
+
+  /**
+   * 積み上げた変更を 1 つのトランザクションとして適用する。 適用中は readConsistent の読み出しを待たせ、バージョンは変更した
+   * キー全体で 1 回だけ進めて、変更通知も 1 回にまとめる。 update の中から呼び出した update は外側のトランザクションに含める。
+   */
+  @Override
+  public void update(Consumer<ConfigEditor> changes) {
+    StagedChanges staged = new StagedChanges();
+    changes.accept(staged);
+    if (staged.isEmpty()) {
+      return;
     }
-    if (type == Short.class) {
-      return (V) Short.valueOf(this.getShort(key));
+    Map<KeyPath, Object> compiled = new LinkedHashMap<>();
+    staged.changes().forEach((key, value) -> compiled.put(this.compile(key), value));
+    if (this.pendingChanges.get() != null) {
+      this.applyUpdate(compiled);
+      return;
     }
-    if (type == Byte.class) {
-      return (V) Byte.valueOf(this.getByte(key));
+    List<KeyPath> pending = new ArrayList<>();
+    long lock = this.transactionLock.writeLock();
+    this.pendingChanges.set(pending);
+    try {
+      this.applyUpdate(compiled);
+    } finally {
+      this.pendingChanges.remove();
+      try {
+        if (!pending.isEmpty()) {
+          long stamp = this.version.incrementAndGet();
+          for (KeyPath path : pending) {
+            this.record(path, stamp);
+          }
+        }
+      } finally {
+        this.transactionLock.unlockWrite(lock);
+      }
+      // 同期的に配送される購読者が readConsistent を呼び出せるよう、通知は書き込みロックの解放後に行う
+      ChangeNotifier notifier = this.notifier;
+      if (notifier != null && !pending.isEmpty()) {
+        notifier.batch(() -> pending.forEach(path -> notifier.changed(path.key())));
+      }
     }
+  }
 
-    throw new UnsupportedOperationException("Unsupported type: " + type.getSimpleName());
+  /**
+   * update の変更を適用する。 値が null の変更は削除。 例外を送出する場合はソースを変更せず、markChanged も呼び出さない
+   * （update は markChanged されたパスのみを記録・通知する）。 既定の実装は setRaw を順に呼び出し、途中で失敗した場合は
+   * 書き込んだキーを元の値に戻す。 ツリー構造のソースは経路の探索を共有するようオーバーライドできる。
+   */
+  protected void applyUpdate(Map<KeyPath, Object> changes) {
+    List<KeyPath> pending = this.pendingChanges.get();
+    int marked = pending != null ? pending.size() : 0;
+    Map<KeyPath, Object> previous = new LinkedHashMap<>();
+    try {
+      for (Map.Entry<KeyPath, Object> e : changes.entrySet()) {
+        KeyPath path = e.getKey();
+        previous.put(path, this.containsKey(path) ? this.getRaw(path) : null);
+        this.setRaw(path, e.getValue());
+      }
+    } catch (RuntimeException e) {
+      try {
+        List<Map.Entry<KeyPath, Object>> written = new ArrayList<>(previous.entrySet());
+        for (int i = written.size() - 1; i >= 0; i--) {
+          this.setRaw(written.get(i).getKey(), written.get(i).getValue());
+        }
+        // 元に戻した書き込みは変更として扱わない
+        if (pending != null) {
+          pending.subList(marked, pending.size()).clear();
+        }
+      } catch (RuntimeException rollback) {
+        e.addSuppressed(rollback);
+      }
+      throw e;
+    }
   }
 
+  /**
+   * 楽観的に reads を実行し、その間に update が適用されていれば update の完了を待って読み直す。
+   */
   @Override
-  @SuppressWarnings("unchecked")
-  public <V> V get(String key, V defaultValue) {
-    V value;
-    if (defaultValue != null) {
-      value = this.get(key, (Class<V>) defaultValue.getClass());
+  public <R> R readConsistent(Supplier<R> reads) {
+    if (this.pendingChanges.get() != null) {
+      return reads.get();
+    }
+    long stamp = this.transactionLock.tryOptimisticRead();
+    if (stamp != 0L) {
+      try {
+        R result = reads.get();
+        if (this.transactionLock.validate(stamp)) {
+          return result;
+        }
+      } catch (RuntimeException e) {
+        // 適用途中の状態を読んだことによる失敗は読み直す
+        if (this.transactionLock.validate(stamp)) {
+          throw e;
+        }
+      }
+    }
+    stamp = this.transactionLock.readLock();
+    try {
+      return reads.get();
+    } finally {
+      this.transactionLock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * 読み出しを update と一貫させる。
+   */
+  @Override
+  public Object[] getAll(KeyPath... paths) {
+    return this.readConsistent(() -> ConfigSource.super.getAll(paths));
+  }
+
+  /**
+   * keys() の値をコピーした読み取り専用のスナップショット。 update の適用中の状態はコピーしない。
+   */
+  @Override
+  public ConfigSource<?> snapshot() {
+    return this.readConsistent(() -> PersistentConfigSource.snapshotOf(this));
+  }
+
+  /**
+   * writes の間の書き込みを 1 つの変更イベントにまとめて通知する。
+   */
+  protected final void batch(Runnable writes) {
+    ChangeNotifier notifier = this.notifier;
+    if (notifier != null) {
+      notifier.batch(writes);
     } else {
-      value = (V) this.get(key);
+      writes.run();
     }
-    return value != null ? value : defaultValue;
+  }
+
+  protected final ChangeNotifier notifier() {
+    ChangeNotifier notifier = this.notifier;
+    if (notifier == null) {
+      synchronized (this) {
+        notifier = this.notifier;
+        if (notifier == null) {
+          notifier = new ChangeNotifier(this);
+          this.notifier = notifier;
+        }
+      }
+    }
+    return notifier;
+  }
+
+  @Override
+  public Subscription subscribe(String prefix, ConfigListener listener, Executor executor) {
+    return this.notifier().subscribe(prefix, listener, executor);
   }
 
   @Override
@@ -89,36 +338,45 @@ public abstract class AbstractConfigSource<T> implements ConfigSource<T> {
 
   @Override
   public void set(String key, Object value) {
-    this.setRaw(this.keyPathResolver.normalizeKey(key), value);
+    this.setRaw(this.compile(key), value);
   }
 
   @Override
   public void remove(String key) {
-    this.setRaw(this.keyPathResolver.normalizeKey(key), null);
+    this.setRaw(this.compile(key), null);
   }
 
+  /**
+   * map のすべての変更を 1 つのトランザクションとして適用する。
+   */
   @Override
   public void putAll(Map<String, Object> map) {
-    if (map != null) {
-      map.forEach(this::set);
+    if (map != null && !map.isEmpty()) {
+      this.update(editor -> editor.putAll(map));
     }
   }
 
   @Override
   public boolean containsKey(String key) {
-    return this.keys().contains(this.keyPathResolver.normalizeKey(key));
+    return this.containsKey(this.compile(key));
+  }
+
+  @Override
+  public boolean containsKey(KeyPath path) {
+    return this.keys().contains(path.key());
   }
 
   @Override
   @SuppressWarnings("unchecked")
   public <E> List<E> getList(String key, Class<E> elementType) {
-    Object raw = this.getRaw(this.keyPathResolver.normalizeKey(key));
+    Object raw = this.getRaw(this.compile(key));
     if (raw == null) {
       return List.of();
     }
 
     if (raw instanceof Collection<?> collection) {
-      return collection.stream().filter(Objects::nonNull).map(elementType::cast)
+      return collection.stream().filter(Objects::nonNull)
+          .map(e -> ConverterRegistry.defaults().convert(e, elementType))
           .collect(Collectors.toList());
     }
 
@@ -134,13 +392,14 @@ public abstract class AbstractConfigSource<T> implements ConfigSource<T> {
   @Override
   @SuppressWarnings("unchecked")
   public <E> Set<E> getSet(String key, Class<E> elementType) {
-    Object raw = this.getRaw(this.keyPathResolver.normalizeKey(key));
+    Object raw = this.getRaw(this.compile(key));
     if (raw == null) {
       return Set.of();
     }
 
     if (raw instanceof Collection<?> collection) {
-      return collection.stream().filter(Objects::nonNull).map(elementType::cast)
+      return collection.stream().filter(Objects::nonNull)
+          .map(e -> ConverterRegistry.defaults().convert(e, elementType))
           .collect(Collectors.toSet());
     }
 
@@ -156,14 +415,16 @@ public abstract class AbstractConfigSource<T> implements ConfigSource<T> {
   @Override
   @SuppressWarnings("unchecked")
   public <K, V> Map<K, V> getMap(String key, Class<K> keyType, Class<V> valueType) {
-    Object raw = this.getRaw(this.keyPathResolver.normalizeKey(key));
+    Object raw = this.getRaw(this.compile(key));
     if (raw == null) {
       return Map.of();
     }
 
     if (raw instanceof Map<?, ?> map) {
-      return map.entrySet().stream().collect(
-          Collectors.toMap(e -> keyType.cast(e.getKey()), e -> valueType.cast(e.getValue())));
+      ConverterRegistry converters = ConverterRegistry.defaults();
+      return map.entrySet().stream()
+          .collect(Collectors.toMap(e -> converters.convert(e.getKey(), keyType),
+              e -> converters.convert(e.getValue(), valueType)));
     }
 
     throw new ClassCastException("Expected Map but found " + raw.getClass().getSimpleName());
@@ -174,6 +435,137 @@ public abstract class AbstractConfigSource<T> implements ConfigSource<T> {
     this.set(key, value);
   }
 
+  // ----------------- ヘルパーメソッド -----------------
+
+  /**
+   * raw を ConverterRegistry で type に変換する。 結果は (キー, 型) ごとにキャッシュし、同じ値を同じ型に変換する場合は
+   * Duration の解析や Pattern のコンパイルなどを繰り返さない。 同じキーを異なる型で交互に読んでも互いを追い出さない。
+   * キーへの書き込み（markChanged）でそのキーの結果は破棄する。
+   */
+  @SuppressWarnings("unchecked")
+  protected final <V> V convert(String key, Object raw, Class<V> type) {
+    ConverterRegistry converters = ConverterRegistry.defaults();
+    long generation = converters.generation();
+    Converted[] cached = this.converted.get(key);
+    if (cached != null) {
+      for (Converted entry : cached) {
+        if (entry.type() == type && entry.generation() == generation
+            && (entry.raw() == raw || entry.raw().equals(raw))) {
+          return (V) entry.value();
+        }
+      }
+    }
+    V value = converters.convert(raw, type);
+    this.cacheConverted(key, cached, new Converted(raw, type, generation, value));
+    return value;
+  }
+
+  /**
+   * key の変換結果の先頭に entry を加える。 同じ型の古い結果と、上限を超えた最も古い結果は除く。 新しいキーを加える際に
+   * 上限に達していれば、任意の 1/4 のキーの結果を破棄する。
+   */
+  private void cacheConverted(String key, Converted[] cached, Converted entry) {
+    if (cached == null) {
+      if (this.converted.size() >= MAX_CONVERTED) {
+        Iterator<String> keys = this.converted.keySet().iterator();
+        for (int i = 0; i < MAX_CONVERTED / 4 && keys.hasNext(); i++) {
+          keys.next();
+          keys.remove();
+        }
+      }
+      this.converted.put(key, new Converted[] {entry});
+      return;
+    }
+    Converted[] next = new Converted[Math.min(cached.length + 1, MAX_CONVERTED_TYPES)];
+    next[0] = entry;
+    int size = 1;
+    for (int i = 0; i < cached.length && size < next.length; i++) {
+      if (cached[i].type() != entry.type()) {
+        next[size++] = cached[i];
+      }
+    }
+    this.converted.put(key, size == next.length ? next : Arrays.copyOf(next, size));
+  }
+
+  /**
+   * path への書き込みを記録する。 記録が MAX_STAMPS を超えた場合は、その時点の version() を floor としてすべて破棄する。
+   * 削除したキーの記録もここで破棄されるため、書き込まれたキーの数だけ記録が増え続けることはない。 破棄の直後は全キーの
+   * version(key) が floor まで進むため、キャッシュは 1 度だけ読み直しになる。
+   */
+  private void record(KeyPath path, long stamp) {
+    synchronized (this) {
+      if (this.writeVersions.size() + this.subtreeVersions.size() >= MAX_STAMPS) {
+        // floor を先に進めてから破棄する。 破棄される記録はすべて floor 以下
+        this.floor = this.version.get();
+        this.writeVersions.clear();
+        this.subtreeVersions.clear();
+      }
+      this.writeVersions.put(path.key(), stamp);
+      for (KeyPath current = path; current != null; current = current.parent()) {
+        this.subtreeVersions.put(current.key(), stamp);
+      }
+    }
+  }
+
+  private static long stamp(Map<String, Long> versions, String key) {
+    Long stamp = versions.get(key);
+    return stamp != null ? stamp : 0L;
+  }
+
+  /**
+   * 生の値を int に変換する。 整数型はそのままアンボックスし、それ以外は文字列として解析する。
+   */
+  protected static int toInt(Object raw, int defaultValue) {
+    if (raw == null) {
+      return defaultValue;
+    }
+    if (raw instanceof Integer || raw instanceof Short || raw instanceof Byte) {
+      return ((Number) raw).intValue();
+    }
+    if (raw instanceof Long l) {
+      return Math.toIntExact(l);
+    }
+    return Integer.parseInt(raw.toString());
+  }
+
+  protected static long toLong(Object raw, long defaultValue) {
+    if (raw == null) {
+      return defaultValue;
+    }
+    if (raw instanceof Long || raw instanceof Integer || raw instanceof Short
+        || raw instanceof Byte) {
+      return ((Number) raw).longValue();
+    }
+    return Long.parseLong(raw.toString());
+  }
+
+  protected static double toDouble(Object raw, double defaultValue) {
+    if (raw == null) {
+      return defaultValue;
+    }
+    if (raw instanceof Number n) {
+      return n.doubleValue();
+    }
+    return Double.parseDouble(raw.toString());
+  }
+
+  protected static boolean toBoolean(Object raw, boolean defaultValue) {
+    if (raw == null) {
+      return defaultValue;
+    }
+    if (raw instanceof Boolean b) {
+      return b;
+    }
+    return Boolean.parseBoolean(raw.toString());
+  }
+
+  /**
+   * キャッシュ済みの KeyPath を取得する
+   */
+  protected final KeyPath compile(String key) {
+    return this.keyPathResolver.compile(key);
+  }
+
   @Override
   public abstract Object getRaw(String key);
 
@@ -0,0 +1,267 @@
+package com.ren130302.config.source;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ConfigSource の変更通知。 購読はキーのセグメントで分岐するトライに登録し、変更されたキーの経路上の購読（接頭辞）と、
+ * キー配下の購読（祖先への書き込みで置き換えられる子孫）のみを照合する。 購読者の数に比例する走査は行わない。
+ * <p>
+ * batch の実行中に変更されたキーは 1 つのイベントにまとめて、batch の終了時に通知する。 通知は購読ごとのキューに積み、購読時の
+ * Executor 上で発生順に配送するため、書き込み側は配送を待たない。 購読がなければ changed は何もしない。
+ */
+public final class ChangeNotifier {
+
+  /** 既定の配送先。 配送ごとに仮想スレッドを起動する。 */
+  public static final Executor DEFAULT_EXECUTOR =
+      task -> Thread.ofVirtual().name("config-listener").start(task);
+
+  private final ConfigSource<?> source;
+  private final Node root = new Node(null, null);
+  private final AtomicInteger subscriptions = new AtomicInteger();
+  private final ThreadLocal<Set<String>> pending = new ThreadLocal<>();
+
+  /**
+   * トライのノード。 registrations はこのノードのキー（接頭辞）への購読。 購読も子もなくなったノードは親から取り除く。
+   */
+  private static final class Node {
+    final Node parent;
+    final String segment;
+    final Map<String, Node> children = new ConcurrentHashMap<>();
+    final List<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    Node(Node parent, String segment) {
+      this.parent = parent;
+      this.segment = segment;
+    }
+  }
+
+  public ChangeNotifier(ConfigSource<?> source) {
+    this.source = Objects.requireNonNull(source, "source must not be null");
+  }
+
+  /**
+   * prefix 自身とその配下のキーの変更を購読する。 prefix が空文字列の場合はすべてのキーが対象になる。
+   */
+  public Subscription subscribe(String prefix, ConfigListener listener, Executor executor) {
+    Objects.requireNonNull(listener, "listener must not be null");
+    Objects.requireNonNull(executor, "executor must not be null");
+    List<String> segments =
+        prefix.isEmpty() ? List.of() : this.source.keyPathResolver().compile(prefix).segments();
+    // close によるノードの削除と競合しないよう、トライの構造の変更は root で同期する
+    synchronized (this.root) {
+      Node node = this.root;
+      for (String segment : segments) {
+        Node parent = node;
+        node = parent.children.computeIfAbsent(segment, s -> new Node(parent, s));
+      }
+      Registration registration = new Registration(node, listener, executor);
+      node.registrations.add(registration);
+      this.subscriptions.incrementAndGet();
+      return registration;
+    }
+  }
+
+  public boolean hasSubscribers() {
+    return this.subscriptions.get() > 0;
+  }
+
+  /**
+   * key の変更を記録する。 batch の実行中であれば batch の終了時に、そうでなければ直ちに通知する。
+   */
+  public void changed(String key) {
+    if (!this.hasSubscribers()) {
+      return;
+    }
+    Set<String> batch = this.pending.get();
+    if (batch != null) {
+      batch.add(key);
+    } else {
+      this.publish(Set.of(key));
+    }
+  }
+
+  /**
+   * keys の変更を記録する。 他のソースの変更イベントを中継する場合に使い、batch の外では keys を 1 つのイベントとして通知する。
+   */
+  public void changedAll(Collection<String> keys) {
+    if (!this.hasSubscribers()) {
+      return;
+    }
+    Set<String> batch = this.pending.get();
+    if (batch != null) {
+      batch.addAll(keys);
+    } else {
+      this.publish(keys);
+    }
+  }
+
+  /**
+   * writes の間の変更を 1 つのイベントにまとめる。 入れ子の batch は外側の batch にまとめる。 writes が例外を送出した場合も、
+   * それまでの変更は通知する。
+   */
+  public void batch(Runnable writes) {
+    if (this.pending.get() != null) {
+      writes.run();
+      return;
+    }
+    Set<String> batch = new LinkedHashSet<>();
+    this.pending.set(batch);
+    try {
+      writes.run();
+    } finally {
+      this.pending.remove();
+      if (!batch.isEmpty()) {
+        this.publish(batch);
+      }
+    }
+  }
+
+  /**
+   * keys の変更を直ちに通知する。 購読ごとに一致するキーのみを集めたイベントを配送する。
+   */
+  public void publish(Collection<String> keys) {
+    if (!this.hasSubscribers() || keys.isEmpty()) {
+      return;
+    }
+    Map<Registration, Set<String>> matches = new LinkedHashMap<>();
+    for (String key : keys) {
+      this.match(key, matches);
+    }
+    if (matches.isEmpty()) {
+      return;
+    }
+    long version = this.source.version();
+    matches.forEach((registration, matched) -> registration.enqueue(
+        new ConfigChangeEvent(this.source, Collections.unmodifiableSet(matched), version)));
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  /**
+   * key の経路上の購読と、key 配下の購読を集める。
+   */
+  private void match(String key, Map<Registration, Set<String>> matches) {
+    Node node = this.root;
+    collect(node, key, matches);
+    if (!key.isEmpty()) {
+      KeyPath path = this.source.keyPathResolver().compile(key);
+      for (int i = 0; i < path.size() && node != null; i++) {
+        node = node.children.get(path.segment(i));
+        if (node != null) {
+          collect(node, key, matches);
+        }
+      }
+    }
+    if (node == null || node.children.isEmpty()) {
+      return;
+    }
+    Deque<Node> descendants = new ArrayDeque<>(node.children.values());
+    while (!descendants.isEmpty()) {
+      Node descendant = descendants.poll();
+      collect(descendant, key, matches);
+      descendants.addAll(descendant.children.values());
+    }
+  }
+
+  private static void collect(Node node, String key, Map<Registration, Set<String>> matches) {
+    for (Registration registration : node.registrations) {
+      matches.computeIfAbsent(registration, r -> new LinkedHashSet<>()).add(key);
+    }
+  }
+
+  /**
+   * 購読も子もなくなったノードを、node から root の手前まで親から取り除く。 root で同期して呼び出す。
+   */
+  private static void prune(Node node) {
+    while (node.parent != null && node.registrations.isEmpty() && node.children.isEmpty()) {
+      node.parent.children.remove(node.segment, node);
+      node = node.parent;
+    }
+  }
+
+  /**
+   * 1 件の購読。 イベントをキューに積み、配送中でなければ Executor に配送タスクを 1 つだけ投入する。
+   */
+  private final class Registration implements Subscription {
+
+    private final Node node;
+    private final ConfigListener listener;
+    private final Executor executor;
+    private final Queue<ConfigChangeEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    Registration(Node node, ConfigListener listener, Executor executor) {
+      this.node = node;
+      this.listener = listener;
+      this.executor = executor;
+    }
+
+    void enqueue(ConfigChangeEvent event) {
+      if (this.closed) {
+        return;
+      }
+      this.queue.add(event);
+      this.schedule();
+    }
+
+    private void schedule() {
+      if (this.scheduled.compareAndSet(false, true)) {
+        try {
+          this.executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+          this.scheduled.set(false);
+          throw e;
+        }
+      }
+    }
+
+    private void drain() {
+      ConfigChangeEvent event;
+      while (!this.closed && (event = this.queue.poll()) != null) {
+        try {
+          this.listener.onChange(event);
+        } catch (RuntimeException e) {
+          Thread current = Thread.currentThread();
+          current.getUncaughtExceptionHandler().uncaughtException(current, e);
+        }
+      }
+      this.scheduled.set(false);
+      // 配送の終了と enqueue が競合した場合に取り残されたイベントを配送する
+      if (!this.closed && !this.queue.isEmpty()) {
+        this.schedule();
+      }
+    }
+
+    @Override
+    public void close() {
+      if (!this.closed) {
+        this.closed = true;
+        this.queue.clear();
+        synchronized (ChangeNotifier.this.root) {
+          if (this.node.registrations.remove(this)) {
+            ChangeNotifier.this.subscriptions.decrementAndGet();
+          }
+          prune(this.node);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,353 @@
+package com.ren130302.config.source;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 複数の ConfigSource を優先順位順に重ねた ConfigSource。 先頭のレイヤーが最も優先され、書き込みも先頭のレイヤーに対して行う。
+ * <p>
+ * キーごとに値を持つレイヤー（所有レイヤー）の索引を構築時に作成し、読み出しは所有レイヤーのみを参照する。 索引の各エントリは
+ * 解決時の全体バージョンと各レイヤーの version(key) の合計を記録し、レイヤーが変更された場合もそのキーのスタンプが変わった
+ * エントリのみを解決し直す。 全体バージョンはいずれかのレイヤーの変更イベントごとに進めるカウンタで、読み出しはレイヤーの
+ * バージョンを合計しない。 キーの和集合も変更イベントのキーとその配下のみを更新し、全体を作り直さない。
+ * <p>
+ * 変更イベントを通知しないレイヤー（subscribe が UnsupportedOperationException を送出する）は購読せず、全体バージョンに
+ * そのレイヤーの version() を加えて変更を検出する。 そのレイヤーの version() が変わった場合は、キーの和集合を作り直す。
+ * <p>
+ * subscribe の通知はいずれかのレイヤーで変更されたキーを対象にし、上位のレイヤーに隠されたキーの変更も含む（通知しない
+ * レイヤーの変更は含まない）。 close で各レイヤーの購読を解除する。
+ */
+public class CompositeConfigSource extends AbstractConfigSource<List<ConfigSource<?>>>
+    implements Closeable {
+
+  private static final int ABSENT = -1;
+  /** 値のないキーも索引に記録するが、索引がこの件数を超えた後は記録しない */
+  private static final int MAX_INDEX_SIZE = 1 << 20;
+
+  private final ConfigSource<?>[] layers;
+  private final Map<String, Owner> owners = new ConcurrentHashMap<>();
+  private final KeyIndex keyIndex = KeyIndex.sorted(this::collectKeys);
+  /** レイヤーの変更イベントごとに進める全体のバージョン */
+  private final AtomicLong changes = new AtomicLong();
+  /** 変更イベントを通知するレイヤーの購読 */
+  private final List<Subscription> subscriptions;
+  /** 変更イベントを通知しないレイヤー */
+  private final ConfigSource<?>[] silentLayers;
+  /** キーの和集合を構築した時点の silentLayers の version() の合計 */
+  private volatile long silentVersion;
+
+  /**
+   * キーの所有レイヤー。 version は解決時の全体バージョン、stamp は解決時の各レイヤーの version(key) の合計。
+   */
+  private record Owner(int layer, long version, long stamp) {
+  }
+
+  private CompositeConfigSource(List<ConfigSource<?>> layers) {
+    super(List.copyOf(layers), KeyPathResolvers.DOT);
+    if (layers.isEmpty()) {
+      throw new IllegalArgumentException("At least one layer is required");
+    }
+    this.layers = this.source.toArray(ConfigSource<?>[]::new);
+    // 各レイヤーの変更をこのソースの変更として中継する（書き込みスレッド上で受け取り、配送は購読側の Executor で行う）
+    List<Subscription> subscriptions = new ArrayList<>();
+    List<ConfigSource<?>> silentLayers = new ArrayList<>();
+    for (ConfigSource<?> layer : this.layers) {
+      try {
+        subscriptions.add(layer.subscribe("", this::layerChanged, Runnable::run));
+      } catch (UnsupportedOperationException e) {
+        silentLayers.add(layer);
+      }
+    }
+    this.subscriptions = List.copyOf(subscriptions);
+    this.silentLayers = silentLayers.toArray(ConfigSource<?>[]::new);
+    this.silentVersion = this.silentLayersVersion();
+    this.buildIndex();
+  }
+
+  /**
+   * layers は優先順位の高い順に指定する。
+   */
+  public static CompositeConfigSource of(ConfigSource<?>... layers) {
+    return new CompositeConfigSource(List.of(layers));
+  }
+
+  public static CompositeConfigSource of(List<ConfigSource<?>> layers) {
+    return new CompositeConfigSource(layers);
+  }
+
+  /**
+   * key の値を持つ最も優先順位の高いレイヤー。 どのレイヤーにもなければ null。
+   */
+  public ConfigSource<?> ownerOf(String key) {
+    int layer = this.owner(this.compile(key).key());
+    return layer != ABSENT ? this.layers[layer] : null;
+  }
+
+  @Override
+  public Object getRaw(String key) {
+    return this.getRaw(this.compile(key));
+  }
+
+  @Override
+  public Object getRaw(KeyPath path) {
+    int layer = this.owner(path.key());
+    return layer != ABSENT ? this.layers[layer].get(path.key()) : null;
+  }
+
+  @Override
+  public Object getRaw(String key, Object defaultValue) {
+    Object value = this.getRaw(key);
+    return value != null ? value : defaultValue;
+  }
+
+  @Override
+  public boolean containsKey(KeyPath path) {
+    int layer = this.owner(path.key());
+    return layer != ABSENT && this.layers[layer].containsKey(path.key());
+  }
+
+  @Override
+  public boolean getBoolean(KeyPath path, boolean defaultValue) {
+    int layer = this.owner(path.key());
+    return layer != ABSENT ? this.layers[layer].getBoolean(path.key(), defaultValue)
+        : defaultValue;
+  }
+
+  @Override
+  public int getInt(KeyPath path, int defaultValue) {
+    int layer = this.owner(path.key());
+    return layer != ABSENT ? this.layers[layer].getInt(path.key(), defaultValue) : defaultValue;
+  }
+
+  @Override
+  public long getLong(KeyPath path, long defaultValue) {
+    int layer = this.owner(path.key());
+    return layer != ABSENT ? this.layers[layer].getLong(path.key(), defaultValue) : defaultValue;
+  }
+
+  @Override
+  public double getDouble(KeyPath path, double defaultValue) {
+    int layer = this.owner(path.key());
+    return layer != ABSENT ? this.layers[layer].getDouble(path.key(), defaultValue)
+        : defaultValue;
+  }
+
+  @Override
+  public <E> List<E> getList(String key, Class<E> elementType) {
+    int layer = this.owner(this.compile(key).key());
+    return layer != ABSENT ? this.layers[layer].getList(key, elementType) : List.of();
+  }
+
+  @Override
+  public <E> Set<E> getSet(String key, Class<E> elementType) {
+    int layer = this.owner(this.compile(key).key());
+    return layer != ABSENT ? this.layers[layer].getSet(key, elementType) : Set.of();
+  }
+
+  @Override
+  public <K, V> Map<K, V> getMap(String key, Class<K> keyType, Class<V> valueType) {
+    int layer = this.owner(this.compile(key).key());
+    return layer != ABSENT ? this.layers[layer].getMap(key, keyType, valueType) : Map.of();
+  }
+
+  /**
+   * 先頭のレイヤーに書き込み、所有レイヤーの索引の該当キーのみを更新する。 キーの和集合は先頭のレイヤーの変更イベントで更新する。
+   */
+  @Override
+  public void setRaw(String key, Object value) {
+    String normalized = this.compile(key).key();
+    this.layers[0].set(normalized, value);
+    this.indexWrite(normalized, value);
+  }
+
+  /**
+   * 先頭のレイヤーに 1 つのトランザクションとして書き込み、索引の該当キーを更新する。
+   */
+  @Override
+  protected void applyUpdate(Map<KeyPath, Object> changes) {
+    this.layers[0].update(
+        editor -> changes.forEach((path, value) -> editor.set(path.key(), value)));
+    changes.forEach((path, value) -> this.indexWrite(path.key(), value));
+  }
+
+  /**
+   * 全レイヤーのキーの和集合。 辞書順。
+   */
+  @Override
+  public Set<String> keys() {
+    this.checkSilentLayers();
+    return this.keyIndex.get();
+  }
+
+  @Override
+  public Set<String> keys(String prefix) {
+    this.checkSilentLayers();
+    return this.keyIndex.subtree(this.compile(prefix).key());
+  }
+
+  /**
+   * いずれかのレイヤーの変更イベントごとに進む。 変更イベントを通知しないレイヤーの version() も加える。
+   */
+  @Override
+  public long version() {
+    return this.changes.get() + this.silentLayersVersion();
+  }
+
+  /**
+   * 各レイヤーの購読を解除する。 以降のレイヤーの変更は version() とキーの和集合に反映されない。
+   */
+  @Override
+  public void close() {
+    this.subscriptions.forEach(Subscription::close);
+  }
+
+  @Override
+  public long version(String key) {
+    return this.stamp(this.compile(key).key());
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private void buildIndex() {
+    long version = this.version();
+    for (int i = this.layers.length - 1; i >= 0; i--) {
+      for (String key : this.layers[i].keys()) {
+        String normalized = this.compile(key).key();
+        this.owners.put(normalized, new Owner(i, version, this.stamp(normalized)));
+      }
+    }
+  }
+
+  /**
+   * レイヤーの変更イベント。 全体のバージョンを進め、変更されたキーの和集合を更新してから、このソースの購読者に中継する。
+   */
+  private void layerChanged(ConfigChangeEvent event) {
+    this.changes.incrementAndGet();
+    for (String key : event.keys()) {
+      this.refreshKeys(key);
+    }
+    this.notifier().changedAll(event.keys());
+  }
+
+  /**
+   * key とその配下のキーについて、いずれかのレイヤーが値を持つかを調べ直して和集合に反映する。 祖先への書き込みで置き換えられた
+   * 子孫も含めるため、和集合と各レイヤーの key 配下のキーを候補にする。
+   */
+  private void refreshKeys(String key) {
+    synchronized (this.keyIndex) {
+      if (key.isEmpty()) {
+        this.keyIndex.invalidate();
+        return;
+      }
+      String normalized = this.compile(key).key();
+      Set<String> candidates = new LinkedHashSet<>();
+      candidates.add(normalized);
+      candidates.addAll(this.keyIndex.subtree(normalized));
+      for (ConfigSource<?> layer : this.layers) {
+        for (String child : layer.keys(normalized)) {
+          candidates.add(this.compile(child).key());
+        }
+      }
+      for (String candidate : candidates) {
+        if (this.hasKey(candidate)) {
+          this.keyIndex.added(candidate);
+        } else {
+          this.keyIndex.removed(candidate);
+        }
+      }
+    }
+  }
+
+  /**
+   * 変更イベントを通知しないレイヤーが変更されていれば、キーの和集合を次回の参照時に作り直す。
+   */
+  private void checkSilentLayers() {
+    if (this.silentLayers.length == 0) {
+      return;
+    }
+    long version = this.silentLayersVersion();
+    if (version != this.silentVersion) {
+      synchronized (this.keyIndex) {
+        this.keyIndex.invalidate();
+        this.silentVersion = version;
+      }
+    }
+  }
+
+  private long silentLayersVersion() {
+    long version = 0L;
+    for (ConfigSource<?> layer : this.silentLayers) {
+      version += layer.version();
+    }
+    return version;
+  }
+
+  private boolean hasKey(String key) {
+    for (ConfigSource<?> layer : this.layers) {
+      if (layer.containsKey(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void indexWrite(String normalized, Object value) {
+    if (value != null) {
+      this.owners.put(normalized, new Owner(0, this.version(), this.stamp(normalized)));
+    } else {
+      this.owners.remove(normalized);
+    }
+  }
+
+  private int owner(String key) {
+    long version = this.version();
+    Owner owner = this.owners.get(key);
+    if (owner != null && owner.version() == version) {
+      return owner.layer();
+    }
+    long stamp = this.stamp(key);
+    if (owner != null && owner.stamp() == stamp) {
+      this.owners.put(key, new Owner(owner.layer(), version, stamp));
+      return owner.layer();
+    }
+    int layer = this.locate(key);
+    if (layer != ABSENT || this.owners.size() < MAX_INDEX_SIZE) {
+      this.owners.put(key, new Owner(layer, version, stamp));
+    }
+    return layer;
+  }
+
+  private int locate(String key) {
+    for (int i = 0; i < this.layers.length; i++) {
+      ConfigSource<?> layer = this.layers[i];
+      if (layer.containsKey(key) || layer.get(key) != null) {
+        return i;
+      }
+    }
+    return ABSENT;
+  }
+
+  private long stamp(String key) {
+    long stamp = 0L;
+    for (ConfigSource<?> layer : this.layers) {
+      stamp += layer.version(key);
+    }
+    return stamp;
+  }
+
+  private Set<String> collectKeys() {
+    Set<String> keys = new LinkedHashSet<>();
+    for (ConfigSource<?> layer : this.layers) {
+      for (String key : layer.keys()) {
+        keys.add(this.compile(key).key());
+      }
+    }
+    return keys;
+  }
+}
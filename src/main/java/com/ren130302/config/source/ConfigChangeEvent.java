@@ -0,0 +1,10 @@
+package com.ren130302.config.source;
+
+import java.util.Set;
+
+/**
+ * 1 回の書き込み（set / remove、または putAll 全体）で変更されたキー。 keys は購読した接頭辞に一致するキーのみを含む。
+ * version は通知時点の source.version()。
+ */
+public record ConfigChangeEvent(ConfigSource<?> source, Set<String> keys, long version) {
+}
@@ -0,0 +1,20 @@
+package com.ren130302.config.source;
+
+import java.util.Map;
+
+/**
+ * ConfigSource#update で変更を積み上げる。 積み上げた変更は update の終了時にまとめて適用する。 同じキーへの変更は最後のものが
+ * 有効になり、変更は積み上げた順に適用する。
+ */
+public interface ConfigEditor {
+
+  ConfigEditor set(String key, Object value);
+
+  ConfigEditor remove(String key);
+
+  default ConfigEditor putAll(Map<String, ?> values) {
+    values.forEach(this::set);
+    return this;
+  }
+
+}
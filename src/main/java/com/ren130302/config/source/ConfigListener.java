@@ -0,0 +1,11 @@
+package com.ren130302.config.source;
+
+/**
+ * ConfigSource の変更通知を受け取る。 呼び出しは登録時の Executor 上で行われ、同じ登録に対しては発生順に 1 つずつ届く。
+ */
+@FunctionalInterface
+public interface ConfigListener {
+
+  void onChange(ConfigChangeEvent event);
+
+}
@@ -1,8 +1,15 @@
 package com.ren130302.config.source;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import com.ren130302.config.convert.ConverterRegistry;
 
 public interface ConfigSource<T> {
 
@@ -38,6 +45,194 @@ public interface ConfigSource<T> {
 
   T source();
 
+  /**
+   * 書き込みのたびに単調増加するバージョン。 変更を追跡しないソースは常に 0 を返す。
+   */
+  default long version() {
+    return 0L;
+  }
+
+  /**
+   * key、またはその祖先・子孫が最後に変更された時点の version()。 key の値が変わっていなければ同じ値を返す。
+   */
+  default long version(String key) {
+    return this.version();
+  }
+
+  /**
+   * 現在の内容の読み取り専用のスナップショット。 以降の書き込みはスナップショットに反映されない。 既定の実装は keys() の値を
+   * コピーするため、書き込みと並行して呼び出さないこと。 PersistentConfigSource / MapConfigSource / JsonConfigSource は
+   * 公開済みの版を共有するため、書き込み中でもロックなしに O(1) で作成できる。
+   */
+  default ConfigSource<?> snapshot() {
+    return PersistentConfigSource.snapshotOf(this);
+  }
+
+  /**
+   * keys() のうち prefix. で始まるキー（prefix 自身は含まない）。 既定の実装は keys() を走査する。
+   */
+  default Set<String> keys(String prefix) {
+    String start = this.keyPathResolver().normalizeKey(prefix) + ".";
+    Set<String> result = new LinkedHashSet<>();
+    for (String key : this.keys()) {
+      if (key.startsWith(start)) {
+        result.add(key);
+      }
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  /**
+   * prefix 以下を切り出したビュー。 ビューへの読み書きは prefix. を付けたキーとしてこのソースに対して行い、値はコピーしない。
+   */
+  default ConfigSource<T> subtree(String prefix) {
+    return SubtreeConfigSource.of(this, prefix);
+  }
+
+  /**
+   * prefix が指す配列の要素数。 要素は prefix.0, prefix.1, ... のキー（または生の値が Collection）として表される。 配列で
+   * なければ 0。 既定の実装は keys(prefix) を走査する。
+   */
+  default int size(String prefix) {
+    KeyPath path = this.keyPathResolver().compile(prefix);
+    if (this.getRaw(path) instanceof Collection<?> collection) {
+      return collection.size();
+    }
+    int size = 0;
+    int depth = path.size();
+    KeyPathResolver resolver = this.keyPathResolver();
+    for (String key : this.keys(path.key())) {
+      KeyPath child = resolver.compile(key);
+      if (child.size() > depth && child.isIndex(depth)) {
+        size = Math.max(size, child.index(depth) + 1);
+      }
+    }
+    return size;
+  }
+
+  /**
+   * prefix が指す配列の index 番目の要素の subKey の生の値。 subKey が空文字列の場合は要素自身。 size(prefix) と組み合わせて
+   * prefix[i].subKey を走査する。 既定の実装はキー文字列を組み立てて getRaw で探す。
+   */
+  default Object getAt(String prefix, int index, String subKey) {
+    if (index < 0) {
+      return null;
+    }
+    String key = this.keyPathResolver().compile(prefix).key() + "." + index;
+    return this.getRaw(subKey.isEmpty() ? key : key + "." + subKey);
+  }
+
+  /**
+   * getAt の値を type に変換する。
+   */
+  default <V> V getAt(String prefix, int index, String subKey, Class<V> type) {
+    return ConverterRegistry.defaults().convert(this.getAt(prefix, index, subKey), type);
+  }
+
+  /**
+   * prefix 自身とその配下のキーの変更を購読する。 prefix が空文字列の場合はすべてのキーが対象になる。 putAll などの一括書き込みは
+   * 1 つのイベントにまとめ、ChangeNotifier.DEFAULT_EXECUTOR（仮想スレッド）上で非同期に通知する。
+   *
+   * @throws UnsupportedOperationException 変更を通知しないソースの場合
+   */
+  default Subscription subscribe(String prefix, ConfigListener listener) {
+    return this.subscribe(prefix, listener, ChangeNotifier.DEFAULT_EXECUTOR);
+  }
+
+  default Subscription subscribe(String prefix, ConfigListener listener, Executor executor) {
+    throw new UnsupportedOperationException(
+        this.getClass().getSimpleName() + " does not publish change events");
+  }
+
+  /**
+   * changes で積み上げた変更を 1 つのトランザクションとして適用する。 変更通知はトランザクションごとに 1 回で、
+   * readConsistent の中の読み出しは適用前か適用後のいずれかの状態のみを観測する。 既定の実装は putAll で適用する。
+   */
+  default void update(Consumer<ConfigEditor> changes) {
+    StagedChanges staged = new StagedChanges();
+    changes.accept(staged);
+    if (!staged.isEmpty()) {
+      this.putAll(staged.changes());
+    }
+  }
+
+  /**
+   * reads の中の複数の読み出しを、update による変更と一貫した状態に対して行う。 update の適用中であれば適用後に読み直す。
+   * 既定の実装はそのまま reads を実行する。
+   */
+  default <R> R readConsistent(Supplier<R> reads) {
+    return reads.get();
+  }
+
+  // ----------------- KeyPath オーバーロード -----------------
+  // path は keyPathResolver().compile(...) で生成したものを渡すこと。
+
+  default Object getRaw(KeyPath path) {
+    return this.getRaw(path.key());
+  }
+
+  default void setRaw(KeyPath path, Object value) {
+    this.setRaw(path.key(), value);
+  }
+
+  default boolean containsKey(KeyPath path) {
+    return this.containsKey(path.key());
+  }
+
+  @SuppressWarnings("unchecked")
+  default <V> V get(KeyPath path) {
+    return (V) this.getRaw(path);
+  }
+
+  default void set(KeyPath path, Object value) {
+    this.setRaw(path, value);
+  }
+
+  /**
+   * paths の生の値を引数の順に返す。 値のないキーは null。 ツリー構造のソースは共通の接頭辞の探索を共有する。
+   */
+  default Object[] getAll(KeyPath... paths) {
+    Object[] values = new Object[paths.length];
+    for (int i = 0; i < paths.length; i++) {
+      values[i] = this.getRaw(paths[i]);
+    }
+    return values;
+  }
+
+  default Object[] getAll(Collection<String> keys) {
+    KeyPathResolver resolver = this.keyPathResolver();
+    KeyPath[] paths = new KeyPath[keys.size()];
+    int i = 0;
+    for (String key : keys) {
+      paths[i++] = resolver.compile(key);
+    }
+    return this.getAll(paths);
+  }
+
+  default String getString(KeyPath path) {
+    Object raw = this.getRaw(path);
+    return raw != null ? raw.toString() : null;
+  }
+
+  default boolean getBoolean(KeyPath path, boolean defaultValue) {
+    String value = this.getString(path);
+    return value != null ? Boolean.parseBoolean(value) : defaultValue;
+  }
+
+  default int getInt(KeyPath path, int defaultValue) {
+    String value = this.getString(path);
+    return value != null ? Integer.parseInt(value) : defaultValue;
+  }
+
+  default long getLong(KeyPath path, long defaultValue) {
+    String value = this.getString(path);
+    return value != null ? Long.parseLong(value) : defaultValue;
+  }
+
+  default double getDouble(KeyPath path, double defaultValue) {
+    String value = this.getString(path);
+    return value != null ? Double.parseDouble(value) : defaultValue;
+  }
 
   default String getString(String key) {
     Object raw = this.getRaw(key);
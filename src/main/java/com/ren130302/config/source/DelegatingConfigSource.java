@@ -0,0 +1,315 @@
+package com.ren130302.config.source;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * すべての操作を delegate() に委譲する ConfigSource。 ラッパー実装は必要なメソッドのみオーバーライドする。
+ */
+public abstract class DelegatingConfigSource<T> implements ConfigSource<T> {
+
+  /**
+   * 委譲先。 呼び出しごとに評価されるため、差し替え可能な実装では現在の委譲先を返す。
+   */
+  protected abstract ConfigSource<T> delegate();
+
+  @Override
+  public boolean containsKey(String key) {
+    return this.delegate().containsKey(key);
+  }
+
+  @Override
+  public boolean containsKey(KeyPath path) {
+    return this.delegate().containsKey(path);
+  }
+
+  @Override
+  public Object getRaw(String key) {
+    return this.delegate().getRaw(key);
+  }
+
+  @Override
+  public Object getRaw(KeyPath path) {
+    return this.delegate().getRaw(path);
+  }
+
+  @Override
+  public Object getRaw(String key, Object defaultValue) {
+    return this.delegate().getRaw(key, defaultValue);
+  }
+
+  @Override
+  public void setRaw(String key, Object value) {
+    this.delegate().setRaw(key, value);
+  }
+
+  @Override
+  public void setRaw(KeyPath path, Object value) {
+    this.delegate().setRaw(path, value);
+  }
+
+  @Override
+  public void remove(String key) {
+    this.delegate().remove(key);
+  }
+
+  @Override
+  public Set<String> keys() {
+    return this.delegate().keys();
+  }
+
+  @Override
+  public void putAll(Map<String, Object> map) {
+    this.delegate().putAll(map);
+  }
+
+  @Override
+  public void set(String key, Object value) {
+    this.delegate().set(key, value);
+  }
+
+  @Override
+  public void set(KeyPath path, Object value) {
+    this.delegate().set(path, value);
+  }
+
+  @Override
+  public <E> List<E> getList(String key, Class<E> elementType) {
+    return this.delegate().getList(key, elementType);
+  }
+
+  @Override
+  public <E> void setList(String key, List<E> value) {
+    this.delegate().setList(key, value);
+  }
+
+  @Override
+  public <E> Set<E> getSet(String key, Class<E> elementType) {
+    return this.delegate().getSet(key, elementType);
+  }
+
+  @Override
+  public <E> void setSet(String key, Set<E> value) {
+    this.delegate().setSet(key, value);
+  }
+
+  @Override
+  public <K, V> Map<K, V> getMap(String key, Class<K> keyType, Class<V> valueType) {
+    return this.delegate().getMap(key, keyType, valueType);
+  }
+
+  @Override
+  public <K, V> void setMap(String key, Map<K, V> value) {
+    this.delegate().setMap(key, value);
+  }
+
+  @Override
+  public KeyPathResolver keyPathResolver() {
+    return this.delegate().keyPathResolver();
+  }
+
+  @Override
+  public T source() {
+    return this.delegate().source();
+  }
+
+  @Override
+  public long version() {
+    return this.delegate().version();
+  }
+
+  @Override
+  public long version(String key) {
+    return this.delegate().version(key);
+  }
+
+  @Override
+  public Set<String> keys(String prefix) {
+    return this.delegate().keys(prefix);
+  }
+
+  @Override
+  public ConfigSource<?> snapshot() {
+    return this.delegate().snapshot();
+  }
+
+  @Override
+  public void update(Consumer<ConfigEditor> changes) {
+    this.delegate().update(changes);
+  }
+
+  @Override
+  public <R> R readConsistent(Supplier<R> reads) {
+    return this.delegate().readConsistent(reads);
+  }
+
+  @Override
+  public int size(String prefix) {
+    return this.delegate().size(prefix);
+  }
+
+  @Override
+  public Object getAt(String prefix, int index, String subKey) {
+    return this.delegate().getAt(prefix, index, subKey);
+  }
+
+  @Override
+  public Subscription subscribe(String prefix, ConfigListener listener, Executor executor) {
+    return this.delegate().subscribe(prefix, listener, executor);
+  }
+
+  @Override
+  public String getString(String key) {
+    return this.delegate().getString(key);
+  }
+
+  @Override
+  public Object[] getAll(KeyPath... paths) {
+    return this.delegate().getAll(paths);
+  }
+
+  @Override
+  public Object[] getAll(Collection<String> keys) {
+    return this.delegate().getAll(keys);
+  }
+
+  @Override
+  public String getString(KeyPath path) {
+    return this.delegate().getString(path);
+  }
+
+  @Override
+  public String getString(String key, String defaultValue) {
+    return this.delegate().getString(key, defaultValue);
+  }
+
+  @Override
+  public char getChar(String key) {
+    return this.delegate().getChar(key);
+  }
+
+  @Override
+  public char getChar(String key, char defaultValue) {
+    return this.delegate().getChar(key, defaultValue);
+  }
+
+  @Override
+  public boolean getBoolean(String key) {
+    return this.delegate().getBoolean(key);
+  }
+
+  @Override
+  public boolean getBoolean(String key, boolean defaultValue) {
+    return this.delegate().getBoolean(key, defaultValue);
+  }
+
+  @Override
+  public boolean getBoolean(KeyPath path, boolean defaultValue) {
+    return this.delegate().getBoolean(path, defaultValue);
+  }
+
+  @Override
+  public byte getByte(String key) {
+    return this.delegate().getByte(key);
+  }
+
+  @Override
+  public byte getByte(String key, byte defaultValue) {
+    return this.delegate().getByte(key, defaultValue);
+  }
+
+  @Override
+  public short getShort(String key) {
+    return this.delegate().getShort(key);
+  }
+
+  @Override
+  public short getShort(String key, short defaultValue) {
+    return this.delegate().getShort(key, defaultValue);
+  }
+
+  @Override
+  public int getInt(String key) {
+    return this.delegate().getInt(key);
+  }
+
+  @Override
+  public int getInt(String key, int defaultValue) {
+    return this.delegate().getInt(key, defaultValue);
+  }
+
+  @Override
+  public int getInt(KeyPath path, int defaultValue) {
+    return this.delegate().getInt(path, defaultValue);
+  }
+
+  @Override
+  public long getLong(String key) {
+    return this.delegate().getLong(key);
+  }
+
+  @Override
+  public long getLong(String key, long defaultValue) {
+    return this.delegate().getLong(key, defaultValue);
+  }
+
+  @Override
+  public long getLong(KeyPath path, long defaultValue) {
+    return this.delegate().getLong(path, defaultValue);
+  }
+
+  @Override
+  public float getFloat(String key) {
+    return this.delegate().getFloat(key);
+  }
+
+  @Override
+  public float getFloat(String key, float defaultValue) {
+    return this.delegate().getFloat(key, defaultValue);
+  }
+
+  @Override
+  public double getDouble(String key) {
+    return this.delegate().getDouble(key);
+  }
+
+  @Override
+  public double getDouble(String key, double defaultValue) {
+    return this.delegate().getDouble(key, defaultValue);
+  }
+
+  @Override
+  public double getDouble(KeyPath path, double defaultValue) {
+    return this.delegate().getDouble(path, defaultValue);
+  }
+
+  @Override
+  public <V> V get(String key) {
+    return this.delegate().get(key);
+  }
+
+  @Override
+  public <V> V get(KeyPath path) {
+    return this.delegate().get(path);
+  }
+
+  @Override
+  public <V> V get(String key, Class<V> type) {
+    return this.delegate().get(key, type);
+  }
+
+  @Override
+  public <V> V get(String key, V defaultValue) {
+    return this.delegate().get(key, defaultValue);
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + "[" + this.delegate() + "]";
+  }
+}
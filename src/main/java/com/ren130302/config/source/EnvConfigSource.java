@@ -0,0 +1,187 @@
+package com.ren130302.config.source;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 環境変数の ConfigSource。 構築時に System.getenv() のスナップショットを取り、変数名も {@link KeyPathResolvers#ENV} で
+ * 正規化した形式（server_port / Server.Port -> SERVER_PORT）をキーとする表に格納する。 参照するキーも同じ形式に正規化する
+ * ため、小文字や大文字小文字の混在した変数名も server.port で参照できる。 KeyPath はキャッシュされるため、参照は 1 回の
+ * ハッシュ探索のみ。 正規化後に同じ名前になる変数が複数ある場合は、正規化前と同じ名前の変数、なければ辞書順で最初の変数を使う。
+ * <p>
+ * keys() は設定キーの形式（SERVER_PORT -> server.port）で返す。 返すキーはいずれも正規化で元の変数に戻る。
+ * <p>
+ * relaxedBinding を有効にすると、英数字以外を除いた大文字表記（SERVER_PORT -> SERVERPORT）の索引も構築時に作成し、
+ * server-port や serverPort のような表記でも参照できる。 読み取り専用。
+ */
+public class EnvConfigSource extends AbstractConfigSource<Map<String, String>> {
+
+  private static final int MAX_ALIASES = 4096;
+
+  private final Set<String> keys;
+  private final Map<String, String> relaxedIndex;
+  private final Map<String, String> aliases;
+
+  public EnvConfigSource() {
+    this(System.getenv(), false);
+  }
+
+  public EnvConfigSource(boolean relaxedBinding) {
+    this(System.getenv(), relaxedBinding);
+  }
+
+  public EnvConfigSource(Map<String, String> env, boolean relaxedBinding) {
+    super(normalize(env), KeyPathResolvers.ENV);
+    Set<String> keys = new LinkedHashSet<>();
+    for (String name : this.source.keySet()) {
+      keys.add(keyOf(name));
+    }
+    this.keys = Collections.unmodifiableSet(keys);
+    if (relaxedBinding) {
+      this.relaxedIndex = new HashMap<>();
+      this.source.keySet().stream().sorted()
+          .forEach(name -> this.relaxedIndex.putIfAbsent(relaxedName(name), name));
+      this.aliases = new ConcurrentHashMap<>();
+    } else {
+      this.relaxedIndex = null;
+      this.aliases = null;
+    }
+  }
+
+  @Override
+  public Object getRaw(String key) {
+    return this.getRaw(this.compile(key));
+  }
+
+  @Override
+  public Object getRaw(KeyPath path) {
+    String value = this.source.get(path.key());
+    if (value == null && this.relaxedIndex != null) {
+      String name = this.resolveRelaxed(path.key());
+      return name != null ? this.source.get(name) : null;
+    }
+    return value;
+  }
+
+  @Override
+  public Object getRaw(String key, Object defaultValue) {
+    Object value = this.getRaw(key);
+    return value != null ? value : defaultValue;
+  }
+
+  @Override
+  public boolean containsKey(KeyPath path) {
+    return this.getRaw(path) != null;
+  }
+
+  @Override
+  public void setRaw(String key, Object value) {
+    throw new UnsupportedOperationException("Environment variables are read-only");
+  }
+
+  @Override
+  public Set<String> keys() {
+    return this.keys;
+  }
+
+  /**
+   * 正規化した変数名の表から PREFIX_ で始まる変数を探し、設定キーの形式で返す。
+   */
+  @Override
+  public Set<String> keys(String prefix) {
+    String start = this.compile(prefix).key() + "_";
+    Set<String> result = new LinkedHashSet<>();
+    for (String name : this.source.keySet()) {
+      if (name.startsWith(start)) {
+        result.add(keyOf(name));
+      }
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  /**
+   * PREFIX_0, PREFIX_1, ... の変数から配列の要素数を求める。 ENV のキーは 1 セグメントのため既定の実装は使えない。
+   */
+  @Override
+  public int size(String prefix) {
+    String start = this.compile(prefix).key() + "_";
+    int size = 0;
+    for (String name : this.source.keySet()) {
+      if (name.startsWith(start)) {
+        int end = name.indexOf('_', start.length());
+        String segment = name.substring(start.length(), end < 0 ? name.length() : end);
+        if (!segment.isEmpty() && segment.length() < 10
+            && segment.chars().allMatch(c -> c >= '0' && c <= '9')) {
+          size = Math.max(size, Integer.parseInt(segment) + 1);
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * 読み取り専用のため自身を返す。
+   */
+  @Override
+  public EnvConfigSource snapshot() {
+    return this;
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  /**
+   * 変数名を ENV の形式に正規化した表。 辞書順に格納する。
+   */
+  private static Map<String, String> normalize(Map<String, String> env) {
+    Map<String, String> table = new LinkedHashMap<>();
+    env.keySet().stream().sorted().forEach(name -> {
+      String normalized = KeyPathResolvers.ENV.join(KeyPathResolvers.ENV.parse(name));
+      if (!table.containsKey(normalized) || name.equals(normalized)) {
+        table.put(normalized, env.get(name));
+      }
+    });
+    return Collections.unmodifiableMap(table);
+  }
+
+  /**
+   * 正規化した変数名の設定キーの形式。 SERVER_PORT -> server.port
+   */
+  private static String keyOf(String name) {
+    return name.toLowerCase(Locale.ROOT).replace('_', '.');
+  }
+
+  /**
+   * 正規化済みのキーから relaxed 索引で環境変数名を引く。 結果はキーごとに記録し、以降は正規化をやり直さない。
+   */
+  private String resolveRelaxed(String key) {
+    String name = this.aliases.get(key);
+    if (name != null) {
+      return name;
+    }
+    name = this.relaxedIndex.get(relaxedName(key));
+    if (name != null && this.aliases.size() < MAX_ALIASES) {
+      this.aliases.put(key, name);
+    }
+    return name;
+  }
+
+  /**
+   * 英数字以外を除き大文字にした名前。 SERVER_PORT / server-port / serverPort はすべて SERVERPORT になる。
+   */
+  static String relaxedName(String name) {
+    StringBuilder sb = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (Character.isLetterOrDigit(c)) {
+        sb.append(c);
+      }
+    }
+    return sb.toString().toUpperCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,722 @@
+package com.ren130302.config.source;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import com.ren130302.config.convert.ConverterRegistry;
+
+/**
+ * 値の中の ${key} / ${key:default} を展開する ConfigSource のラッパー。 参照先はこのソースのキー、なければ環境変数、それも
+ * なければ既定値の順に解決する。 値全体が 1 つのプレースホルダーの場合は参照先の値を型を保ったまま返す。 List / Map の値は
+ * 要素の文字列を展開したコピーを返す。
+ * <p>
+ * 作成時に keys() のすべての値を Template に解析して循環参照を検査し、循環があれば IllegalStateException を送出する。 以降は
+ * 元のソースの変更イベントで変更されたキーを解析し直し、このソースを通じた書き込みは適用する前に検査して、循環参照を作る
+ * 書き込みを IllegalStateException で拒否する。 元のソースへ直接書き込んで作られた循環は、変更イベントの購読の例外として
+ * 報告し、読み出し時にも送出する。 変更イベントを通知しないソースは読み出し時にのみ検査する。
+ * <p>
+ * 展開結果は、値自身と推移的に参照したキーそれぞれの version(key) とともにキャッシュするため、server.port を変更しても
+ * server.port を参照する値のみを展開し直す。 バージョンを追跡しないソースへの外部からの変更は検出できない。
+ * <p>
+ * 読み出しのみをオーバーライドし、書き込み・キー・変更通知は元のソースに委譲する。 close で変更イベントの購読を解除する。
+ */
+public final class InterpolatingConfigSource<T> extends DelegatingConfigSource<T>
+    implements Closeable {
+
+  private static final int MAX_CACHED = 4096;
+  private static final String PLACEHOLDER = "${";
+
+  private final ConfigSource<T> source;
+  private final Function<String, String> environment;
+  private final Map<String, Template> templates = new ConcurrentHashMap<>();
+  private final Map<String, Resolved> resolved = new ConcurrentHashMap<>();
+  /** 元のソースの変更イベントの購読。 変更イベントを通知しないソースでは null */
+  private final Subscription subscription;
+
+  /**
+   * 展開結果。 dependencies は値自身と推移的に参照したキー、stamps は展開前に読んだそれぞれの version(key)。 version は最後に
+   * 有効と確認した時点の全体のバージョン。
+   */
+  private static final class Resolved {
+
+    final Object value;
+    final String[] dependencies;
+    final long[] stamps;
+    volatile long version;
+
+    Resolved(Object value, String[] dependencies, long[] stamps, long version) {
+      this.value = value;
+      this.dependencies = dependencies;
+      this.stamps = stamps;
+      this.version = version;
+    }
+
+    boolean isValid(ConfigSource<?> source, long current) {
+      if (this.version == current) {
+        return true;
+      }
+      for (int i = 0; i < this.dependencies.length; i++) {
+        if (source.version(this.dependencies[i]) != this.stamps[i]) {
+          return false;
+        }
+      }
+      this.version = current;
+      return true;
+    }
+  }
+
+  private InterpolatingConfigSource(ConfigSource<T> source, Function<String, String> environment) {
+    this.source = Objects.requireNonNull(source, "source must not be null");
+    this.environment = Objects.requireNonNull(environment, "environment must not be null");
+    for (String key : source.keys()) {
+      this.validate(key);
+    }
+    Subscription subscription;
+    try {
+      subscription = source.subscribe("", this::sourceChanged, Runnable::run);
+    } catch (UnsupportedOperationException e) {
+      subscription = null;
+    }
+    this.subscription = subscription;
+  }
+
+  /**
+   * 環境変数に System.getenv を使う。
+   */
+  public static <T> InterpolatingConfigSource<T> of(ConfigSource<T> source) {
+    return new InterpolatingConfigSource<>(source, System::getenv);
+  }
+
+  /**
+   * environment はソースにないプレースホルダーの名前を値に変換する。 値がなければ null を返す。
+   */
+  public static <T> InterpolatingConfigSource<T> of(ConfigSource<T> source,
+      Function<String, String> environment) {
+    return new InterpolatingConfigSource<>(source, environment);
+  }
+
+  @Override
+  protected ConfigSource<T> delegate() {
+    return this.source;
+  }
+
+  /**
+   * 元のソースの変更イベントの購読を解除する。 以降の元のソースへの直接の書き込みは読み出し時にのみ検査する。
+   */
+  @Override
+  public void close() {
+    if (this.subscription != null) {
+      this.subscription.close();
+    }
+  }
+
+  @Override
+  public Object getRaw(String key) {
+    return this.resolve(this.source.keyPathResolver().normalizeKey(key), null);
+  }
+
+  @Override
+  public Object getRaw(KeyPath path) {
+    return this.resolve(path.key(), null);
+  }
+
+  @Override
+  public Object getRaw(String key, Object defaultValue) {
+    Object value = this.getRaw(key);
+    return value != null ? value : defaultValue;
+  }
+
+  @Override
+  public Object[] getAll(KeyPath... paths) {
+    Object[] values = new Object[paths.length];
+    for (int i = 0; i < paths.length; i++) {
+      values[i] = this.getRaw(paths[i]);
+    }
+    return values;
+  }
+
+  @Override
+  public Object[] getAll(Collection<String> keys) {
+    Object[] values = new Object[keys.size()];
+    int i = 0;
+    for (String key : keys) {
+      values[i++] = this.getRaw(key);
+    }
+    return values;
+  }
+
+  @Override
+  public Object getAt(String prefix, int index, String subKey) {
+    if (index < 0) {
+      return null;
+    }
+    String key = this.source.keyPathResolver().compile(prefix).key() + "." + index;
+    return this.getRaw(subKey.isEmpty() ? key : key + "." + subKey);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V get(String key) {
+    return (V) this.getRaw(key);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V get(KeyPath path) {
+    return (V) this.getRaw(path);
+  }
+
+  @Override
+  public <V> V get(String key, Class<V> type) {
+    return ConverterRegistry.defaults().convert(this.getRaw(key), type);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V get(String key, V defaultValue) {
+    Object value = this.getRaw(key);
+    return value != null ? (V) value : defaultValue;
+  }
+
+  @Override
+  public String getString(String key) {
+    Object raw = this.getRaw(key);
+    return raw != null ? raw.toString() : null;
+  }
+
+  @Override
+  public String getString(KeyPath path) {
+    Object raw = this.getRaw(path);
+    return raw != null ? raw.toString() : null;
+  }
+
+  @Override
+  public String getString(String key, String defaultValue) {
+    String value = this.getString(key);
+    return value != null ? value : defaultValue;
+  }
+
+  @Override
+  public char getChar(String key) {
+    return this.getChar(key, '\0');
+  }
+
+  @Override
+  public char getChar(String key, char defaultValue) {
+    String value = this.getString(key);
+    return (value != null && !value.isEmpty()) ? value.charAt(0) : defaultValue;
+  }
+
+  @Override
+  public boolean getBoolean(String key) {
+    return this.getBoolean(key, false);
+  }
+
+  @Override
+  public boolean getBoolean(String key, boolean defaultValue) {
+    String value = this.getString(key);
+    return value != null ? Boolean.parseBoolean(value) : defaultValue;
+  }
+
+  @Override
+  public boolean getBoolean(KeyPath path, boolean defaultValue) {
+    String value = this.getString(path);
+    return value != null ? Boolean.parseBoolean(value) : defaultValue;
+  }
+
+  @Override
+  public byte getByte(String key) {
+    return this.getByte(key, (byte) 0);
+  }
+
+  @Override
+  public byte getByte(String key, byte defaultValue) {
+    String value = this.getString(key);
+    return value != null ? Byte.parseByte(value) : defaultValue;
+  }
+
+  @Override
+  public short getShort(String key) {
+    return this.getShort(key, (short) 0);
+  }
+
+  @Override
+  public short getShort(String key, short defaultValue) {
+    String value = this.getString(key);
+    return value != null ? Short.parseShort(value) : defaultValue;
+  }
+
+  @Override
+  public int getInt(String key) {
+    return this.getInt(key, 0);
+  }
+
+  @Override
+  public int getInt(String key, int defaultValue) {
+    String value = this.getString(key);
+    return value != null ? Integer.parseInt(value) : defaultValue;
+  }
+
+  @Override
+  public int getInt(KeyPath path, int defaultValue) {
+    String value = this.getString(path);
+    return value != null ? Integer.parseInt(value) : defaultValue;
+  }
+
+  @Override
+  public long getLong(String key) {
+    return this.getLong(key, 0L);
+  }
+
+  @Override
+  public long getLong(String key, long defaultValue) {
+    String value = this.getString(key);
+    return value != null ? Long.parseLong(value) : defaultValue;
+  }
+
+  @Override
+  public long getLong(KeyPath path, long defaultValue) {
+    String value = this.getString(path);
+    return value != null ? Long.parseLong(value) : defaultValue;
+  }
+
+  @Override
+  public float getFloat(String key) {
+    return this.getFloat(key, 0f);
+  }
+
+  @Override
+  public float getFloat(String key, float defaultValue) {
+    String value = this.getString(key);
+    return value != null ? Float.parseFloat(value) : defaultValue;
+  }
+
+  @Override
+  public double getDouble(String key) {
+    return this.getDouble(key, 0d);
+  }
+
+  @Override
+  public double getDouble(String key, double defaultValue) {
+    String value = this.getString(key);
+    return value != null ? Double.parseDouble(value) : defaultValue;
+  }
+
+  @Override
+  public double getDouble(KeyPath path, double defaultValue) {
+    String value = this.getString(path);
+    return value != null ? Double.parseDouble(value) : defaultValue;
+  }
+
+  /**
+   * 展開した値が文字列であればカンマ区切りの要素として扱う。
+   */
+  @Override
+  public <E> List<E> getList(String key, Class<E> elementType) {
+    if (!this.hasPlaceholder(key)) {
+      return this.source.getList(key, elementType);
+    }
+    ConverterRegistry converters = ConverterRegistry.defaults();
+    List<E> result = new ArrayList<>();
+    for (Object element : elements(this.getRaw(key))) {
+      result.add(converters.convert(element, elementType));
+    }
+    return List.copyOf(result);
+  }
+
+  @Override
+  public <E> Set<E> getSet(String key, Class<E> elementType) {
+    if (!this.hasPlaceholder(key)) {
+      return this.source.getSet(key, elementType);
+    }
+    return Set.copyOf(this.getList(key, elementType));
+  }
+
+  @Override
+  public <K, V> Map<K, V> getMap(String key, Class<K> keyType, Class<V> valueType) {
+    if (!this.hasPlaceholder(key)) {
+      return this.source.getMap(key, keyType, valueType);
+    }
+    Object raw = this.getRaw(key);
+    if (!(raw instanceof Map<?, ?> map)) {
+      throw new ClassCastException("Expected Map but found " + raw.getClass().getSimpleName());
+    }
+    ConverterRegistry converters = ConverterRegistry.defaults();
+    Map<K, V> result = new LinkedHashMap<>();
+    map.forEach((k, v) -> result.put(converters.convert(k, keyType),
+        converters.convert(v, valueType)));
+    return result;
+  }
+
+  /**
+   * 展開した値をコピーした読み取り専用のスナップショット。
+   */
+  @Override
+  public ConfigSource<?> snapshot() {
+    return PersistentConfigSource.snapshotOf(this);
+  }
+
+  // 書き込みは循環参照を作らないことを確認してから元のソースに委譲する
+
+  @Override
+  public void setRaw(String key, Object value) {
+    this.checkWrites(Collections.singletonMap(key, value));
+    this.source.setRaw(key, value);
+  }
+
+  @Override
+  public void setRaw(KeyPath path, Object value) {
+    this.checkWrites(Collections.singletonMap(path.key(), value));
+    this.source.setRaw(path, value);
+  }
+
+  @Override
+  public void set(String key, Object value) {
+    this.checkWrites(Collections.singletonMap(key, value));
+    this.source.set(key, value);
+  }
+
+  @Override
+  public void set(KeyPath path, Object value) {
+    this.checkWrites(Collections.singletonMap(path.key(), value));
+    this.source.set(path, value);
+  }
+
+  @Override
+  public void putAll(Map<String, Object> map) {
+    if (map != null) {
+      this.checkWrites(map);
+    }
+    this.source.putAll(map);
+  }
+
+  @Override
+  public <E> void setList(String key, List<E> value) {
+    this.checkWrites(Collections.singletonMap(key, value));
+    this.source.setList(key, value);
+  }
+
+  @Override
+  public <E> void setSet(String key, Set<E> value) {
+    this.checkWrites(Collections.singletonMap(key, value));
+    this.source.setSet(key, value);
+  }
+
+  @Override
+  public <K, V> void setMap(String key, Map<K, V> value) {
+    this.checkWrites(Collections.singletonMap(key, value));
+    this.source.setMap(key, value);
+  }
+
+  @Override
+  public void update(Consumer<ConfigEditor> changes) {
+    Map<String, Object> staged = new LinkedHashMap<>();
+    changes.accept(new ConfigEditor() {
+      @Override
+      public ConfigEditor set(String key, Object value) {
+        staged.put(key, value);
+        return this;
+      }
+
+      @Override
+      public ConfigEditor remove(String key) {
+        staged.put(key, null);
+        return this;
+      }
+    });
+    this.checkWrites(staged);
+    this.source.update(editor -> staged.forEach((key, value) -> {
+      if (value != null) {
+        editor.set(key, value);
+      } else {
+        editor.remove(key);
+      }
+    }));
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  /**
+   * key を展開する。 dependencies が null でなければ、展開に使ったキーとそのスタンプを追加する。 プレースホルダーを含まない
+   * 文字列などのスカラー値はキャッシュしない。 List / Map の値はプレースホルダーを含むかを走査し直さないよう常にキャッシュする。
+   */
+  private Object resolve(String key, Map<String, Long> dependencies) {
+    long version = this.source.version();
+    Resolved cached = this.resolved.get(key);
+    if (cached != null && cached.isValid(this.source, version)) {
+      if (dependencies != null) {
+        for (int i = 0; i < cached.dependencies.length; i++) {
+          dependencies.putIfAbsent(cached.dependencies[i], cached.stamps[i]);
+        }
+      }
+      return cached.value;
+    }
+    // 値を読む前にスタンプを読み、展開中の変更は次回の isValid で検出する。 依存を記録しない読み出しでは、
+    // 展開が必要な値であると分かってからスタンプを読んで値を読み直す
+    long stamp = dependencies != null ? this.source.version(key) : 0L;
+    Object raw = this.source.getRaw(key);
+    if (dependencies == null && isExpandable(raw)) {
+      stamp = this.source.version(key);
+      raw = this.source.getRaw(key);
+    }
+    if (!isExpandable(raw)) {
+      if (dependencies != null) {
+        dependencies.putIfAbsent(key, stamp);
+      }
+      return raw;
+    }
+    Map<String, Long> used = new LinkedHashMap<>();
+    used.put(key, stamp);
+    Object value = raw instanceof String text ? this.evaluate(key, this.template(key, text), used)
+        : this.expand(key, raw, used);
+    Resolved result = new Resolved(value, used.keySet().toArray(String[]::new),
+        used.values().stream().mapToLong(Long::longValue).toArray(), version);
+    if (cached != null || this.resolved.size() < MAX_CACHED) {
+      this.resolved.put(key, result);
+    }
+    if (dependencies != null) {
+      used.forEach(dependencies::putIfAbsent);
+    }
+    return value;
+  }
+
+  private Object evaluate(String key, Template template, Map<String, Long> used) {
+    if (template.isSingleReference()) {
+      return this.lookup(key, (Template.Reference) template.part(0), used);
+    }
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < template.size(); i++) {
+      Object part = template.part(i);
+      if (part instanceof Template.Reference reference) {
+        result.append(this.lookup(key, reference, used));
+      } else {
+        result.append((String) part);
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * List / Map の値 raw の要素の文字列を展開したコピー。 プレースホルダーを含まなければ raw をそのまま返す。
+   */
+  private Object expand(String key, Object raw, Map<String, Long> used) {
+    List<Template> templates = new ArrayList<>();
+    collectTemplates(raw, templates);
+    if (templates.isEmpty()) {
+      return raw;
+    }
+    Deque<String> path = new ArrayDeque<>();
+    path.add(key);
+    this.checkCycles(templates, path, new HashSet<>(), this.source::getRaw);
+    return this.expandElements(key, raw, templates.iterator(), used);
+  }
+
+  /**
+   * raw の要素を collectTemplates と同じ順に走査し、プレースホルダーを含む文字列を templates の順に展開する。
+   */
+  private Object expandElements(String key, Object raw, Iterator<Template> templates,
+      Map<String, Long> used) {
+    return switch (raw) {
+      case String text when text.contains(PLACEHOLDER) ->
+        this.evaluate(key, templates.next(), used);
+      case Collection<?> collection -> {
+        List<Object> result = new ArrayList<>(collection.size());
+        for (Object element : collection) {
+          result.add(this.expandElements(key, element, templates, used));
+        }
+        yield Collections.unmodifiableList(result);
+      }
+      case Map<?, ?> map -> {
+        Map<Object, Object> result = new LinkedHashMap<>();
+        map.forEach((k, v) -> result.put(k, this.expandElements(key, v, templates, used)));
+        yield Collections.unmodifiableMap(result);
+      }
+      case null, default -> raw;
+    };
+  }
+
+  /**
+   * 参照をソースのキー、環境変数、既定値の順に解決する。 ソースにないキーも依存として記録し、後から追加された場合に展開し直す。
+   */
+  private Object lookup(String key, Template.Reference reference, Map<String, Long> used) {
+    String name = this.source.keyPathResolver().normalizeKey(reference.name());
+    Object value = this.resolve(name, used);
+    if (value == null) {
+      value = this.environment.apply(reference.name());
+    }
+    if (value == null) {
+      value = reference.defaultValue();
+    }
+    if (value == null) {
+      throw new IllegalStateException(
+          "Unresolvable placeholder ${" + reference.name() + "} in value of " + key);
+    }
+    return value;
+  }
+
+  /**
+   * key の値 text の Template。 解析済みの文字列と同じであれば再利用し、新たに解析した場合は循環参照を検査する。
+   */
+  private Template template(String key, String text) {
+    Template template = this.templates.get(key);
+    if (template != null && template.text().equals(text)) {
+      return template;
+    }
+    template = Template.parse(text);
+    Deque<String> path = new ArrayDeque<>();
+    path.add(key);
+    this.checkCycles(List.of(template), path, new HashSet<>(), this.source::getRaw);
+    if (this.templates.containsKey(key) || this.templates.size() < MAX_CACHED) {
+      this.templates.put(key, template);
+    }
+    return template;
+  }
+
+  /**
+   * key の現在の値を解析して循環参照を検査し、解析結果を保持する。
+   */
+  private void validate(String key) {
+    String normalized = this.source.keyPathResolver().normalizeKey(key);
+    Object raw = this.source.getRaw(normalized);
+    if (raw instanceof String text && text.contains(PLACEHOLDER)) {
+      this.template(normalized, text);
+      return;
+    }
+    this.templates.remove(normalized);
+    List<Template> templates = new ArrayList<>();
+    collectTemplates(raw, templates);
+    if (!templates.isEmpty()) {
+      Deque<String> path = new ArrayDeque<>();
+      path.add(normalized);
+      this.checkCycles(templates, path, new HashSet<>(), this.source::getRaw);
+    }
+  }
+
+  /**
+   * 元のソースの変更イベント。 変更されたキーとその配下を検査し直す。 空文字列のキーはすべてのキーを検査する。
+   */
+  private void sourceChanged(ConfigChangeEvent event) {
+    for (String key : event.keys()) {
+      Collection<String> keys = key.isEmpty() ? this.source.keys() : this.source.keys(key);
+      if (!key.isEmpty()) {
+        this.validate(key);
+      }
+      for (String child : keys) {
+        this.validate(child);
+      }
+    }
+  }
+
+  /**
+   * writes を適用した後の値で循環参照を検査する。 プレースホルダーを含まない書き込みは循環を作らないため検査しない。
+   */
+  private void checkWrites(Map<String, ?> writes) {
+    Map<String, Object> staged = new LinkedHashMap<>();
+    KeyPathResolver resolver = this.source.keyPathResolver();
+    writes.forEach((key, value) -> staged.put(resolver.normalizeKey(key), value));
+    Function<String, Object> raws =
+        name -> staged.containsKey(name) ? staged.get(name) : this.source.getRaw(name);
+    staged.forEach((key, value) -> {
+      List<Template> templates = new ArrayList<>();
+      collectTemplates(value, templates);
+      if (!templates.isEmpty()) {
+        Deque<String> path = new ArrayDeque<>();
+        path.add(key);
+        this.checkCycles(templates, path, new HashSet<>(), raws);
+      }
+    });
+  }
+
+  /**
+   * templates から参照をたどり、path 上のキーに戻る参照があれば IllegalStateException を送出する。 checked は検査を終えた
+   * キー、raws は参照先のキーの値。
+   */
+  private void checkCycles(List<Template> templates, Deque<String> path, Set<String> checked,
+      Function<String, Object> raws) {
+    for (Template template : templates) {
+      for (Template.Reference reference : template.references()) {
+        String name = this.source.keyPathResolver().normalizeKey(reference.name());
+        if (path.contains(name)) {
+          List<String> cycle = new ArrayList<>(path);
+          cycle.add(name);
+          throw new IllegalStateException(
+              "Circular placeholder reference: " + String.join(" -> ", cycle));
+        }
+        if (checked.contains(name)) {
+          continue;
+        }
+        List<Template> children = new ArrayList<>();
+        Object raw = raws.apply(name);
+        Template cached = this.templates.get(name);
+        if (raw instanceof String text && cached != null && cached.text().equals(text)) {
+          children.add(cached);
+        } else {
+          collectTemplates(raw, children);
+        }
+        path.addLast(name);
+        this.checkCycles(children, path, checked, raws);
+        path.removeLast();
+        checked.add(name);
+      }
+    }
+  }
+
+  private boolean hasPlaceholder(String key) {
+    return containsTemplate(this.source.getRaw(key));
+  }
+
+  /**
+   * raw とその要素のうち、プレースホルダーを含む文字列の Template を走査順に templates に追加する。
+   */
+  private static void collectTemplates(Object raw, List<Template> templates) {
+    switch (raw) {
+      case String text when text.contains(PLACEHOLDER) -> templates.add(Template.parse(text));
+      case Collection<?> collection -> collection.forEach(e -> collectTemplates(e, templates));
+      case Map<?, ?> map -> map.values().forEach(v -> collectTemplates(v, templates));
+      case null, default -> {
+      }
+    }
+  }
+
+  private static boolean containsTemplate(Object raw) {
+    return switch (raw) {
+      case String text -> text.contains(PLACEHOLDER);
+      case Collection<?> collection -> collection.stream()
+          .anyMatch(InterpolatingConfigSource::containsTemplate);
+      case Map<?, ?> map -> map.values().stream()
+          .anyMatch(InterpolatingConfigSource::containsTemplate);
+      case null, default -> false;
+    };
+  }
+
+  /** 展開を試みる値。 List / Map はプレースホルダーを含むかを expand で調べる */
+  private static boolean isExpandable(Object raw) {
+    return (raw instanceof String text && text.contains(PLACEHOLDER))
+        || raw instanceof Collection<?> || raw instanceof Map<?, ?>;
+  }
+
+  private static Collection<?> elements(Object raw) {
+    if (raw instanceof Collection<?> collection) {
+      return collection;
+    }
+    if (raw instanceof String text) {
+      return Arrays.stream(text.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+    throw new ClassCastException(
+        "Expected String or Collection but found " + raw.getClass().getSimpleName());
+  }
+}
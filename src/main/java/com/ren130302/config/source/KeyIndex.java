@@ -0,0 +1,146 @@
+package com.ren130302.config.source;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Supplier;
+
+/**
+ * ConfigSource#keys() 用のキャッシュ済みキー集合。 初回参照時に loader で構築し、以降は setRaw からの added / removed で
+ * 差分更新する。 差分で追えない変更の場合は invalidate で破棄し、次回参照時に再構築する。 返す集合は変更不可のライブビュー。
+ * どちらの索引も並行コレクションで保持するため、書き込みと同時に走査しても ConcurrentModificationException にはならない
+ * （走査は弱い一貫性）。 sorted でない索引は挿入順を保つ。
+ * <p>
+ * sorted で作成した索引はキーを辞書順に保持し、subtree で接頭辞の範囲を O(log n + k) で取り出せる。
+ */
+public final class KeyIndex {
+
+  private final Supplier<? extends Set<String>> loader;
+  private final boolean sorted;
+  private volatile Set<String> keys;
+  private volatile Set<String> view;
+
+  public KeyIndex(Supplier<? extends Set<String>> loader) {
+    this(loader, false);
+  }
+
+  private KeyIndex(Supplier<? extends Set<String>> loader, boolean sorted) {
+    this.loader = loader;
+    this.sorted = sorted;
+  }
+
+  /**
+   * キーを辞書順に保持する索引。 keys() の順序も辞書順になる。
+   */
+  public static KeyIndex sorted(Supplier<? extends Set<String>> loader) {
+    return new KeyIndex(loader, true);
+  }
+
+  public Set<String> get() {
+    Set<String> current = this.view;
+    if (current == null) {
+      synchronized (this) {
+        current = this.view;
+        if (current == null) {
+          if (this.sorted) {
+            NavigableSet<String> loaded = new ConcurrentSkipListSet<>(this.loader.get());
+            this.keys = loaded;
+            current = Collections.unmodifiableNavigableSet(loaded);
+          } else {
+            Set<String> loaded = new InsertionOrderedSet(this.loader.get());
+            this.keys = loaded;
+            current = Collections.unmodifiableSet(loaded);
+          }
+          this.view = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * prefix. で始まるキーのライブビュー。 prefix 自身は含まない。 sorted で作成した索引でのみ使用できる。
+   */
+  public NavigableSet<String> subtree(String prefix) {
+    if (!this.sorted) {
+      throw new IllegalStateException("Key index is not sorted");
+    }
+    // '/' は '.' の次の文字のため、[prefix. , prefix/) が prefix. で始まるキーの範囲になる
+    return ((NavigableSet<String>) this.get()).subSet(prefix + ".", true, prefix + "/", false);
+  }
+
+  public synchronized void added(String key) {
+    if (this.keys != null) {
+      this.keys.add(key);
+    }
+  }
+
+  public synchronized void removed(String key) {
+    if (this.keys != null) {
+      this.keys.remove(key);
+    }
+  }
+
+  public synchronized void invalidate() {
+    this.keys = null;
+    this.view = null;
+  }
+
+  /**
+   * 挿入順を保つ並行集合。 キーごとの挿入番号を持ち、番号順の ConcurrentSkipListMap を走査する。 書き込みは KeyIndex の
+   * ロックの下でのみ行う。
+   */
+  private static final class InsertionOrderedSet extends AbstractSet<String> {
+
+    private final Map<String, Long> order = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, String> keys = new ConcurrentSkipListMap<>();
+    private long sequence;
+
+    InsertionOrderedSet(Set<String> initial) {
+      initial.forEach(this::add);
+    }
+
+    @Override
+    public boolean add(String key) {
+      if (this.order.containsKey(key)) {
+        return false;
+      }
+      long next = this.sequence++;
+      this.keys.put(next, key);
+      this.order.put(key, next);
+      return true;
+    }
+
+    @Override
+    public boolean remove(Object key) {
+      Long removed = this.order.remove(key);
+      if (removed == null) {
+        return false;
+      }
+      this.keys.remove(removed);
+      return true;
+    }
+
+    @Override
+    public boolean contains(Object key) {
+      return this.order.containsKey(key);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return this.keys.values().iterator();
+    }
+
+    @Override
+    public int size() {
+      return this.order.size();
+    }
+  }
+}
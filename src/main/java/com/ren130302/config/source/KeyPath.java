@@ -0,0 +1,126 @@
+package com.ren130302.config.source;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link KeyPathResolver} によって一度だけ解析されたキーパス。 セグメント分割・正規化済みキー・ハッシュ値・配列インデックス判定を
+ * 保持するため、参照時に文字列の分割や結合を行わない。
+ */
+public final class KeyPath {
+
+  private static final int NOT_INDEX = -1;
+
+  private final KeyPathResolver resolver;
+  private final String key;
+  private final String[] segments;
+  private final int[] indices;
+  private final int hash;
+  private KeyPath parent;
+
+  private KeyPath(KeyPathResolver resolver, String key, String[] segments) {
+    this.resolver = resolver;
+    this.key = key;
+    this.segments = segments;
+    this.indices = new int[segments.length];
+    for (int i = 0; i < segments.length; i++) {
+      this.indices[i] = parseIndex(segments[i]);
+    }
+    this.hash = key.hashCode();
+  }
+
+  /**
+   * resolver でキーを解析して KeyPath を生成する（キャッシュしない）。
+   */
+  public static KeyPath of(KeyPathResolver resolver, String key) {
+    List<String> path = resolver.parse(key);
+    if (path.isEmpty()) {
+      throw new IllegalArgumentException("Invalid key path: " + key);
+    }
+    return new KeyPath(resolver, resolver.join(path), path.toArray(String[]::new));
+  }
+
+  /** 正規化済みのキー文字列 */
+  public String key() {
+    return this.key;
+  }
+
+  public int size() {
+    return this.segments.length;
+  }
+
+  public String segment(int i) {
+    return this.segments[i];
+  }
+
+  public String lastSegment() {
+    return this.segments[this.segments.length - 1];
+  }
+
+  /** セグメントが配列インデックス（非負の整数）として解釈できるか */
+  public boolean isIndex(int i) {
+    return this.indices[i] != NOT_INDEX;
+  }
+
+  /** 配列インデックス。インデックスでないセグメントは -1 */
+  public int index(int i) {
+    return this.indices[i];
+  }
+
+  public List<String> segments() {
+    return List.of(this.segments);
+  }
+
+  /**
+   * 末尾のセグメントを除いた親パス。 セグメントが 1 つの場合は null。 初回呼び出し時に生成し以降は同じインスタンスを返す。
+   */
+  public KeyPath parent() {
+    if (this.segments.length == 1) {
+      return null;
+    }
+    KeyPath current = this.parent;
+    if (current == null) {
+      current = this.resolver.compile(
+          this.resolver.join(List.of(this.segments).subList(0, this.segments.length - 1)));
+      this.parent = current;
+    }
+    return current;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    return obj instanceof KeyPath other && this.hash == other.hash && this.key.equals(other.key)
+        && Arrays.equals(this.segments, other.segments);
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+
+  @Override
+  public String toString() {
+    return this.key;
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private static int parseIndex(String segment) {
+    int length = segment.length();
+    if (length == 0 || length > 9) {
+      return NOT_INDEX;
+    }
+    int value = 0;
+    for (int i = 0; i < length; i++) {
+      char c = segment.charAt(i);
+      if (c < '0' || c > '9') {
+        return NOT_INDEX;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+}
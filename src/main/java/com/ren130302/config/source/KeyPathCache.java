@@ -0,0 +1,39 @@
+package com.ren130302.config.source;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 入力キー文字列 -> {@link KeyPath} の上限付きキャッシュ。 上限に達した後はキャッシュせず都度解析する。
+ */
+final class KeyPathCache {
+
+  static final int DEFAULT_CAPACITY = 4096;
+
+  private final KeyPathResolver resolver;
+  private final int capacity;
+  private final ConcurrentHashMap<String, KeyPath> paths = new ConcurrentHashMap<>();
+
+  KeyPathCache(KeyPathResolver resolver, int capacity) {
+    this.resolver = resolver;
+    this.capacity = capacity;
+  }
+
+  KeyPath get(String key) {
+    KeyPath path = this.paths.get(key);
+    if (path != null) {
+      return path;
+    }
+    path = KeyPath.of(this.resolver, key);
+    if (this.paths.size() < this.capacity) {
+      KeyPath existing = this.paths.putIfAbsent(key, path);
+      if (existing != null) {
+        return existing;
+      }
+    }
+    return path;
+  }
+
+  void clear() {
+    this.paths.clear();
+  }
+}
@@ -9,11 +9,14 @@ public interface KeyPathResolver {
   String join(List<String> path);
 
   default String normalizeKey(String key) {
-    var path = this.parse(key);
-    if (path.isEmpty()) {
-      throw new IllegalArgumentException("Invalid key path: " + key);
-    }
-    return this.join(path);
+    return this.compile(key).key();
+  }
+
+  /**
+   * キーを解析済みの {@link KeyPath} に変換する。 実装はキャッシュを返してよい。
+   */
+  default KeyPath compile(String key) {
+    return KeyPath.of(this, key);
   }
 
 }
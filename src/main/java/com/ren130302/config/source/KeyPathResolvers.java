@@ -1,5 +1,6 @@
 package com.ren130302.config.source;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public enum KeyPathResolvers implements KeyPathResolver {
@@ -16,10 +17,16 @@ public enum KeyPathResolvers implements KeyPathResolver {
     }
   },
 
+  /**
+   * ドット区切り。 配列の要素は connections.0.url のほか connections[0].url とも書け、どちらも同じキーに正規化する。
+   */
   DOT {
     @Override
     public List<String> parse(String keyPath) {
-      return List.of(keyPath.split("\\."));
+      if (keyPath.indexOf('[') < 0) {
+        return List.of(keyPath.split("\\."));
+      }
+      return parseBrackets(keyPath);
     }
 
     @Override
@@ -40,4 +47,43 @@ public enum KeyPathResolvers implements KeyPathResolver {
     }
   };
 
+  private final KeyPathCache cache = new KeyPathCache(this, KeyPathCache.DEFAULT_CAPACITY);
+
+  @Override
+  public KeyPath compile(String key) {
+    return this.cache.get(key);
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  /**
+   * a.b[0][1].c を [a, b, 0, 1, c] に分割する。 角括弧の中は非負の整数のみ受け付ける。
+   */
+  private static List<String> parseBrackets(String keyPath) {
+    List<String> segments = new ArrayList<>();
+    for (String part : keyPath.split("\\.")) {
+      int open = part.indexOf('[');
+      if (open < 0) {
+        segments.add(part);
+        continue;
+      }
+      if (open > 0) {
+        segments.add(part.substring(0, open));
+      }
+      while (open < part.length()) {
+        int close = part.indexOf(']', open);
+        if (part.charAt(open) != '[' || close < 0) {
+          throw new IllegalArgumentException("Invalid key path: " + keyPath);
+        }
+        String index = part.substring(open + 1, close);
+        if (index.isEmpty() || !index.chars().allMatch(c -> c >= '0' && c <= '9')) {
+          throw new IllegalArgumentException("Invalid array index in key path: " + keyPath);
+        }
+        segments.add(index);
+        open = close + 1;
+      }
+    }
+    return segments;
+  }
+
 }
@@ -3,34 +3,44 @@ package com.ren130302.config.source;
 import java.util.Map;
 import java.util.Set;
 
-public class MapConfigSource extends AbstractConfigSource<Map<String, Object>> {
+/**
+ * キーと値の Map を保持する ConfigSource。 内容は PersistentMap にコピーして保持し、書き込みは新しい版を公開する
+ * （PersistentConfigSource と同じ）。 snapshot() は現在の版を共有する読み取り専用のソースを O(1) で返す。 構築後に渡した
+ * map を変更しても反映されない。
+ */
+public class MapConfigSource extends PersistentConfigSource {
+
+  /** keys(prefix) 用の辞書順の索引 */
+  private final KeyIndex prefixIndex = KeyIndex.sorted(() -> this.source().keySet());
 
   public MapConfigSource(Map<String, Object> map) {
-    super(map, KeyPathResolvers.DOT);
+    super(map);
   }
 
   @Override
-  public Object getRaw(String key) {
-    return this.source.get(key);
+  public void setRaw(String key, Object value) {
+    super.setRaw(key, value);
+    this.indexWrite(this.compile(key).key(), value);
   }
 
   @Override
-  public Object getRaw(String key, Object defaultValue) {
-    return this.source.getOrDefault(key, defaultValue);
+  protected void applyUpdate(Map<KeyPath, Object> changes) {
+    super.applyUpdate(changes);
+    changes.forEach((path, value) -> this.indexWrite(path.key(), value));
   }
 
   @Override
-  public void setRaw(String key, Object value) {
+  public Set<String> keys(String prefix) {
+    return this.prefixIndex.subtree(this.compile(prefix).key());
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private void indexWrite(String key, Object value) {
     if (value == null) {
-      this.source.remove(key);
+      this.prefixIndex.removed(key);
     } else {
-      this.source.put(key, value);
+      this.prefixIndex.added(key);
     }
   }
-
-  @Override
-  public Set<String> keys() {
-    return this.source.keySet();
-  }
-
 }
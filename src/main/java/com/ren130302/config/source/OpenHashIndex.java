@@ -0,0 +1,99 @@
+package com.ren130302.config.source;
+
+/**
+ * 文字列キー -> 値のオープンアドレス法（線形探索）ハッシュ表。 構築後は読み取り専用として扱い、参照は 1 回のハッシュ計算と
+ * 探索のみで行う（ボクシングやイテレータの生成はない）。 構築中の put はスレッドセーフではない。
+ */
+public final class OpenHashIndex {
+
+  private String[] keys;
+  private Object[] values;
+  private int mask;
+  private int size;
+
+  public OpenHashIndex(int expectedSize) {
+    int capacity = tableSizeFor(Math.max(expectedSize, 4) * 2);
+    this.keys = new String[capacity];
+    this.values = new Object[capacity];
+    this.mask = capacity - 1;
+  }
+
+  public Object get(String key) {
+    String[] keys = this.keys;
+    int mask = this.mask;
+    int i = spread(key.hashCode()) & mask;
+    String current;
+    while ((current = keys[i]) != null) {
+      if (current == key || current.equals(key)) {
+        return this.values[i];
+      }
+      i = (i + 1) & mask;
+    }
+    return null;
+  }
+
+  public boolean containsKey(String key) {
+    String[] keys = this.keys;
+    int mask = this.mask;
+    int i = spread(key.hashCode()) & mask;
+    String current;
+    while ((current = keys[i]) != null) {
+      if (current == key || current.equals(key)) {
+        return true;
+      }
+      i = (i + 1) & mask;
+    }
+    return false;
+  }
+
+  public void put(String key, Object value) {
+    if ((this.size + 1) * 2 > this.keys.length) {
+      this.resize();
+    }
+    int i = spread(key.hashCode()) & this.mask;
+    String current;
+    while ((current = this.keys[i]) != null) {
+      if (current.equals(key)) {
+        this.values[i] = value;
+        return;
+      }
+      i = (i + 1) & this.mask;
+    }
+    this.keys[i] = key;
+    this.values[i] = value;
+    this.size++;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private void resize() {
+    String[] oldKeys = this.keys;
+    Object[] oldValues = this.values;
+    this.keys = new String[oldKeys.length * 2];
+    this.values = new Object[oldValues.length * 2];
+    this.mask = this.keys.length - 1;
+    this.size = 0;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != null) {
+        this.put(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  /**
+   * 連番を含むキーの String#hashCode は連続した値になりやすく、線形探索では長いクラスタを作るため、乗算で下位ビットに拡散する。
+   */
+  private static int spread(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int tableSizeFor(int n) {
+    int capacity = Integer.highestOneBit(Math.max(n - 1, 1)) << 1;
+    return capacity < 0 ? 1 << 30 : capacity;
+  }
+}
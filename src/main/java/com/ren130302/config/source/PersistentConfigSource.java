@@ -0,0 +1,149 @@
+package com.ren130302.config.source;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * PersistentMap を保持する ConfigSource。 書き込みは新しいマップを作って CAS で差し替えるため、読み出しはロックを取らず、常に
+ * 公開済みのいずれかの版を一貫して参照する。 snapshot() は現在の版を共有する読み取り専用のソースを O(1) で返す。
+ * <p>
+ * 値はそのまま格納するため、Map や List を格納した場合は呼び出し側で変更しないこと。
+ */
+public class PersistentConfigSource extends AbstractConfigSource<Map<String, Object>> {
+
+  private final AtomicReference<PersistentMap> root;
+  private final boolean readOnly;
+
+  public PersistentConfigSource() {
+    this(PersistentMap.empty(), false);
+  }
+
+  public PersistentConfigSource(Map<String, ?> map) {
+    this(PersistentMap.copyOf(map), false);
+  }
+
+  private PersistentConfigSource(PersistentMap root, boolean readOnly) {
+    super(root, KeyPathResolvers.DOT);
+    this.root = new AtomicReference<>(root);
+    this.readOnly = readOnly;
+  }
+
+  /**
+   * source の keys() と値をコピーした読み取り専用のソースを作成する。 source への書き込みと並行して呼び出さないこと。
+   */
+  public static PersistentConfigSource snapshotOf(ConfigSource<?> source) {
+    PersistentMap map = PersistentMap.empty();
+    for (String key : source.keys()) {
+      Object value = source.getRaw(key);
+      if (value != null) {
+        map = map.plus(key, value);
+      }
+    }
+    return new PersistentConfigSource(map, true);
+  }
+
+  /**
+   * 現在の版。 返すマップは不変で、以降の書き込みの影響を受けない。
+   */
+  @Override
+  public PersistentMap source() {
+    return this.root.get();
+  }
+
+  @Override
+  public Object getRaw(String key) {
+    return this.root.get().get(this.compile(key).key());
+  }
+
+  @Override
+  public Object getRaw(KeyPath path) {
+    return this.root.get().get(path.key());
+  }
+
+  @Override
+  public Object getRaw(String key, Object defaultValue) {
+    Object value = this.getRaw(key);
+    return value != null ? value : defaultValue;
+  }
+
+  @Override
+  public boolean containsKey(KeyPath path) {
+    return this.root.get().containsKey(path.key());
+  }
+
+  @Override
+  public boolean getBoolean(KeyPath path, boolean defaultValue) {
+    return toBoolean(this.root.get().get(path.key()), defaultValue);
+  }
+
+  @Override
+  public int getInt(KeyPath path, int defaultValue) {
+    return toInt(this.root.get().get(path.key()), defaultValue);
+  }
+
+  @Override
+  public long getLong(KeyPath path, long defaultValue) {
+    return toLong(this.root.get().get(path.key()), defaultValue);
+  }
+
+  @Override
+  public double getDouble(KeyPath path, double defaultValue) {
+    return toDouble(this.root.get().get(path.key()), defaultValue);
+  }
+
+  @Override
+  public void setRaw(String key, Object value) {
+    this.checkWritable();
+    KeyPath path = this.compile(key);
+    PersistentMap current;
+    PersistentMap next;
+    do {
+      current = this.root.get();
+      next = value != null ? current.plus(path.key(), value) : current.minus(path.key());
+    } while (current != next && !this.root.compareAndSet(current, next));
+    if (current != next) {
+      this.markChanged(path);
+    }
+  }
+
+  /**
+   * すべての変更を 1 つの版として公開する。 読み出し側が一部のみ反映された状態を見ることはない。
+   */
+  @Override
+  protected void applyUpdate(Map<KeyPath, Object> changes) {
+    this.checkWritable();
+    PersistentMap current;
+    PersistentMap next;
+    do {
+      current = this.root.get();
+      next = current;
+      for (Map.Entry<KeyPath, Object> e : changes.entrySet()) {
+        String key = e.getKey().key();
+        next = e.getValue() != null ? next.plus(key, e.getValue()) : next.minus(key);
+      }
+    } while (current != next && !this.root.compareAndSet(current, next));
+    changes.keySet().forEach(this::markChanged);
+  }
+
+  /**
+   * 現在のキー集合。 呼び出し時点の版のキーで、以降の書き込みの影響を受けない。
+   */
+  @Override
+  public Set<String> keys() {
+    return this.root.get().keySet();
+  }
+
+  @Override
+  public PersistentConfigSource snapshot() {
+    return this.readOnly ? this : new PersistentConfigSource(this.root.get(), true);
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private void checkWritable() {
+    if (this.readOnly) {
+      throw new UnsupportedOperationException("Snapshot is read-only");
+    }
+  }
+}
@@ -0,0 +1,332 @@
+package com.ren130302.config.source;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 文字列キーの永続ハッシュ配列マップトライ（HAMT）。 plus / minus は変更したパス上のノードのみを複製した新しいマップを返し、
+ * 変更のない部分木は元のマップと共有する。 インスタンスは不変で、ロックなしに複数スレッドから読める。 値に null は格納できない。
+ */
+public final class PersistentMap extends AbstractMap<String, Object> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  private static final PersistentMap EMPTY = new PersistentMap(BitmapNode.EMPTY, 0);
+
+  private final Node root;
+  private final int size;
+  private Set<Map.Entry<String, Object>> entrySet;
+
+  private PersistentMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  public static PersistentMap empty() {
+    return EMPTY;
+  }
+
+  public static PersistentMap copyOf(Map<String, ?> map) {
+    if (map instanceof PersistentMap persistent) {
+      return persistent;
+    }
+    PersistentMap result = EMPTY;
+    for (Map.Entry<String, ?> e : map.entrySet()) {
+      if (e.getValue() != null) {
+        result = result.plus(e.getKey(), e.getValue());
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (!(key instanceof String s)) {
+      return null;
+    }
+    return this.root.find(s, hash(s), 0);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return this.get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * key に value を対応付けたマップを返す。 既に同じ値が対応付けられている場合は this を返す。
+   */
+  public PersistentMap plus(String key, Object value) {
+    if (value == null) {
+      throw new IllegalArgumentException("value must not be null");
+    }
+    boolean[] added = new boolean[1];
+    Node root = this.root.put(key, hash(key), 0, value, added);
+    return root == this.root ? this : new PersistentMap(root, added[0] ? this.size + 1 : this.size);
+  }
+
+  /**
+   * key を除いたマップを返す。 key がなければ this を返す。
+   */
+  public PersistentMap minus(String key) {
+    Node root = this.root.remove(key, hash(key), 0);
+    if (root == this.root) {
+      return this;
+    }
+    return this.size == 1 ? EMPTY : new PersistentMap(root != null ? root : BitmapNode.EMPTY,
+        this.size - 1);
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    Set<Map.Entry<String, Object>> entries = this.entrySet;
+    if (entries == null) {
+      entries = new AbstractSet<>() {
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+          List<Map.Entry<String, Object>> list = new ArrayList<>(PersistentMap.this.size);
+          PersistentMap.this.root.collect(list);
+          return list.iterator();
+        }
+
+        @Override
+        public int size() {
+          return PersistentMap.this.size;
+        }
+      };
+      this.entrySet = entries;
+    }
+    return entries;
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private static int hash(String key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  private interface Node {
+
+    /** key の値。 なければ null */
+    Object find(String key, int hash, int shift);
+
+    /** 変更がなければ this を返す。 新しいキーを追加した場合は added[0] を true にする */
+    Node put(String key, int hash, int shift, Object value, boolean[] added);
+
+    /** 変更がなければ this、空になった場合は null を返す */
+    Node remove(String key, int hash, int shift);
+
+    void collect(List<Map.Entry<String, Object>> out);
+  }
+
+  /**
+   * ハッシュの 5 ビットごとに分岐するノード。 array はビットの立っている位置ごとに (キー, 値) または (null, 子ノード) を持つ。
+   */
+  private static final class BitmapNode implements Node {
+
+    static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    final int bitmap;
+    final Object[] array;
+
+    BitmapNode(int bitmap, Object[] array) {
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+    private int index(int bit) {
+      return 2 * Integer.bitCount(this.bitmap & (bit - 1));
+    }
+
+    @Override
+    public Object find(String key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((this.bitmap & bit) == 0) {
+        return null;
+      }
+      int index = this.index(bit);
+      Object k = this.array[index];
+      Object v = this.array[index + 1];
+      if (k == null) {
+        return ((Node) v).find(key, hash, shift + BITS);
+      }
+      return key.equals(k) ? v : null;
+    }
+
+    @Override
+    public Node put(String key, int hash, int shift, Object value, boolean[] added) {
+      int bit = bit(hash, shift);
+      int index = this.index(bit);
+      if ((this.bitmap & bit) == 0) {
+        Object[] array = new Object[this.array.length + 2];
+        System.arraycopy(this.array, 0, array, 0, index);
+        array[index] = key;
+        array[index + 1] = value;
+        System.arraycopy(this.array, index, array, index + 2, this.array.length - index);
+        added[0] = true;
+        return new BitmapNode(this.bitmap | bit, array);
+      }
+      Object k = this.array[index];
+      Object v = this.array[index + 1];
+      if (k == null) {
+        Node child = ((Node) v).put(key, hash, shift + BITS, value, added);
+        return child == v ? this : this.with(index, null, child);
+      }
+      if (key.equals(k)) {
+        return v == value ? this : this.with(index, k, value);
+      }
+      added[0] = true;
+      Node child = pair(shift + BITS, (String) k, hash((String) k), v, key, hash, value);
+      return this.with(index, null, child);
+    }
+
+    @Override
+    public Node remove(String key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((this.bitmap & bit) == 0) {
+        return this;
+      }
+      int index = this.index(bit);
+      Object k = this.array[index];
+      Object v = this.array[index + 1];
+      if (k == null) {
+        Node child = ((Node) v).remove(key, hash, shift + BITS);
+        if (child == v) {
+          return this;
+        }
+        return child != null ? this.with(index, null, child) : this.without(bit, index);
+      }
+      return key.equals(k) ? this.without(bit, index) : this;
+    }
+
+    @Override
+    public void collect(List<Map.Entry<String, Object>> out) {
+      for (int i = 0; i < this.array.length; i += 2) {
+        if (this.array[i] == null) {
+          ((Node) this.array[i + 1]).collect(out);
+        } else {
+          out.add(Map.entry((String) this.array[i], this.array[i + 1]));
+        }
+      }
+    }
+
+    private BitmapNode with(int index, Object key, Object value) {
+      Object[] array = this.array.clone();
+      array[index] = key;
+      array[index + 1] = value;
+      return new BitmapNode(this.bitmap, array);
+    }
+
+    private BitmapNode without(int bit, int index) {
+      if (this.bitmap == bit) {
+        return null;
+      }
+      Object[] array = new Object[this.array.length - 2];
+      System.arraycopy(this.array, 0, array, 0, index);
+      System.arraycopy(this.array, index + 2, array, index, array.length - index);
+      return new BitmapNode(this.bitmap ^ bit, array);
+    }
+  }
+
+  /**
+   * 32 ビットのハッシュがすべて一致するキーを線形に保持するノード。
+   */
+  private static final class CollisionNode implements Node {
+
+    final int hash;
+    final Object[] array;
+
+    CollisionNode(int hash, Object[] array) {
+      this.hash = hash;
+      this.array = array;
+    }
+
+    private int indexOf(String key) {
+      for (int i = 0; i < this.array.length; i += 2) {
+        if (key.equals(this.array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public Object find(String key, int hash, int shift) {
+      int index = hash == this.hash ? this.indexOf(key) : -1;
+      return index >= 0 ? this.array[index + 1] : null;
+    }
+
+    @Override
+    public Node put(String key, int hash, int shift, Object value, boolean[] added) {
+      if (hash != this.hash) {
+        // ハッシュの異なるキーが来た場合は、この階層で分岐するノードの下に入れ直す
+        BitmapNode parent = new BitmapNode(bit(this.hash, shift), new Object[] {null, this});
+        return parent.put(key, hash, shift, value, added);
+      }
+      int index = this.indexOf(key);
+      if (index >= 0) {
+        if (this.array[index + 1] == value) {
+          return this;
+        }
+        Object[] array = this.array.clone();
+        array[index + 1] = value;
+        return new CollisionNode(hash, array);
+      }
+      Object[] array = new Object[this.array.length + 2];
+      System.arraycopy(this.array, 0, array, 0, this.array.length);
+      array[this.array.length] = key;
+      array[this.array.length + 1] = value;
+      added[0] = true;
+      return new CollisionNode(hash, array);
+    }
+
+    @Override
+    public Node remove(String key, int hash, int shift) {
+      int index = hash == this.hash ? this.indexOf(key) : -1;
+      if (index < 0) {
+        return this;
+      }
+      if (this.array.length == 2) {
+        return null;
+      }
+      Object[] array = new Object[this.array.length - 2];
+      System.arraycopy(this.array, 0, array, 0, index);
+      System.arraycopy(this.array, index + 2, array, index, array.length - index);
+      return new CollisionNode(hash, array);
+    }
+
+    @Override
+    public void collect(List<Map.Entry<String, Object>> out) {
+      for (int i = 0; i < this.array.length; i += 2) {
+        out.add(Map.entry((String) this.array[i], this.array[i + 1]));
+      }
+    }
+  }
+
+  /**
+   * 2 つのキーを持つノードを作る。 ハッシュが完全に一致する場合は CollisionNode にする。
+   */
+  private static Node pair(int shift, String k1, int h1, Object v1, String k2, int h2,
+      Object v2) {
+    if (h1 == h2) {
+      return new CollisionNode(h1, new Object[] {k1, v1, k2, v2});
+    }
+    boolean[] ignored = new boolean[1];
+    return BitmapNode.EMPTY.put(k1, h1, shift, v1, ignored).put(k2, h2, shift, v2, ignored);
+  }
+}
@@ -0,0 +1,34 @@
+package com.ren130302.config.source;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 積み上げた変更。 値が null の変更は削除を表す。
+ */
+final class StagedChanges implements ConfigEditor {
+
+  private final Map<String, Object> changes = new LinkedHashMap<>();
+
+  @Override
+  public ConfigEditor set(String key, Object value) {
+    // 後から変更したキーは後に適用する（祖先の置き換えより前に子孫の変更が適用されないように）
+    this.changes.remove(key);
+    this.changes.put(key, value);
+    return this;
+  }
+
+  @Override
+  public ConfigEditor remove(String key) {
+    return this.set(key, null);
+  }
+
+  boolean isEmpty() {
+    return this.changes.isEmpty();
+  }
+
+  Map<String, Object> changes() {
+    return Collections.unmodifiableMap(this.changes);
+  }
+}
@@ -0,0 +1,11 @@
+package com.ren130302.config.source;
+
+/**
+ * ConfigSource#subscribe の登録。 close で購読を解除し、配送待ちの通知も破棄する。
+ */
+public interface Subscription extends AutoCloseable {
+
+  @Override
+  void close();
+
+}
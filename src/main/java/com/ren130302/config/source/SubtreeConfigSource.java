@@ -0,0 +1,416 @@
+package com.ren130302.config.source;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 親の ConfigSource の prefix 以下を切り出したビュー。 キーは prefix からの相対キーで、読み書きは prefix. を付けたキーとして
+ * 親に対して行う。 値はコピーしないため、親への変更はそのままビューに反映される。
+ * <p>
+ * 相対キーから親のキーへの変換結果はキーごとに保持し、2 回目以降の参照では文字列の連結や解析を行わない。 keyPathResolver() は
+ * 親と同じで、KeyPath 版のメソッドには相対キーを compile したものを渡す。 source() は親の source() をそのまま返す。
+ */
+public class SubtreeConfigSource<T> extends DelegatingConfigSource<T> {
+
+  private static final int MAX_CACHED_PATHS = 4096;
+
+  private final ConfigSource<T> parent;
+  private final String prefix;
+  private final String start;
+  private final Map<String, KeyPath> paths = new ConcurrentHashMap<>();
+
+  private SubtreeConfigSource(ConfigSource<T> parent, String prefix) {
+    this.parent = parent;
+    this.prefix = prefix;
+    this.start = prefix + ".";
+  }
+
+  public static <T> SubtreeConfigSource<T> of(ConfigSource<T> parent, String prefix) {
+    String normalized = parent.keyPathResolver().normalizeKey(prefix);
+    if (parent instanceof SubtreeConfigSource<T> subtree) {
+      // 入れ子のビューは元の親に対する 1 段のビューにする
+      return new SubtreeConfigSource<>(subtree.parent, subtree.start + normalized);
+    }
+    return new SubtreeConfigSource<>(parent, normalized);
+  }
+
+  @Override
+  protected ConfigSource<T> delegate() {
+    return this.parent;
+  }
+
+  public String prefix() {
+    return this.prefix;
+  }
+
+  @Override
+  public ConfigSource<T> subtree(String prefix) {
+    return of(this, prefix);
+  }
+
+  @Override
+  public boolean containsKey(String key) {
+    return this.parent.containsKey(this.absolute(key));
+  }
+
+  @Override
+  public boolean containsKey(KeyPath path) {
+    return this.parent.containsKey(this.absolute(path));
+  }
+
+  @Override
+  public Object getRaw(String key) {
+    return this.parent.getRaw(this.absolute(key));
+  }
+
+  @Override
+  public Object getRaw(KeyPath path) {
+    return this.parent.getRaw(this.absolute(path));
+  }
+
+  @Override
+  public Object getRaw(String key, Object defaultValue) {
+    return this.parent.getRaw(this.absolute(key).key(), defaultValue);
+  }
+
+  @Override
+  public Object[] getAll(KeyPath... paths) {
+    KeyPath[] absolute = new KeyPath[paths.length];
+    for (int i = 0; i < paths.length; i++) {
+      absolute[i] = this.absolute(paths[i]);
+    }
+    return this.parent.getAll(absolute);
+  }
+
+  @Override
+  public Object[] getAll(Collection<String> keys) {
+    KeyPath[] absolute = new KeyPath[keys.size()];
+    int i = 0;
+    for (String key : keys) {
+      absolute[i++] = this.absolute(key);
+    }
+    return this.parent.getAll(absolute);
+  }
+
+  @Override
+  public void setRaw(String key, Object value) {
+    this.parent.setRaw(this.absolute(key), value);
+  }
+
+  @Override
+  public void setRaw(KeyPath path, Object value) {
+    this.parent.setRaw(this.absolute(path), value);
+  }
+
+  @Override
+  public void remove(String key) {
+    this.parent.remove(this.absolute(key).key());
+  }
+
+  @Override
+  public void set(String key, Object value) {
+    this.parent.set(this.absolute(key), value);
+  }
+
+  @Override
+  public void set(KeyPath path, Object value) {
+    this.parent.set(this.absolute(path), value);
+  }
+
+  @Override
+  public void putAll(Map<String, Object> map) {
+    if (map == null) {
+      return;
+    }
+    Map<String, Object> absolute = new LinkedHashMap<>();
+    map.forEach((key, value) -> absolute.put(this.absolute(key).key(), value));
+    this.parent.putAll(absolute);
+  }
+
+  /**
+   * 親の keys(prefix) から prefix. を除いた相対キー。
+   */
+  @Override
+  public Set<String> keys() {
+    return this.relative(this.parent.keys(this.prefix));
+  }
+
+  @Override
+  public int size(String prefix) {
+    return this.parent.size(prefix.isEmpty() ? this.prefix : this.absolute(prefix).key());
+  }
+
+  @Override
+  public Object getAt(String prefix, int index, String subKey) {
+    return this.parent.getAt(prefix.isEmpty() ? this.prefix : this.absolute(prefix).key(), index,
+        subKey);
+  }
+
+  @Override
+  public Set<String> keys(String prefix) {
+    return this.relative(
+        this.parent.keys(this.start + this.parent.keyPathResolver().normalizeKey(prefix)));
+  }
+
+  @Override
+  public <E> List<E> getList(String key, Class<E> elementType) {
+    return this.parent.getList(this.absolute(key).key(), elementType);
+  }
+
+  @Override
+  public <E> void setList(String key, List<E> value) {
+    this.parent.setList(this.absolute(key).key(), value);
+  }
+
+  @Override
+  public <E> Set<E> getSet(String key, Class<E> elementType) {
+    return this.parent.getSet(this.absolute(key).key(), elementType);
+  }
+
+  @Override
+  public <E> void setSet(String key, Set<E> value) {
+    this.parent.setSet(this.absolute(key).key(), value);
+  }
+
+  @Override
+  public <K, V> Map<K, V> getMap(String key, Class<K> keyType, Class<V> valueType) {
+    return this.parent.getMap(this.absolute(key).key(), keyType, valueType);
+  }
+
+  @Override
+  public <K, V> void setMap(String key, Map<K, V> value) {
+    this.parent.setMap(this.absolute(key).key(), value);
+  }
+
+  @Override
+  public long version(String key) {
+    return this.parent.version(this.absolute(key).key());
+  }
+
+  /**
+   * 相対キーの変更を親のキーに変換し、親の 1 つのトランザクションとして適用する。
+   */
+  @Override
+  public void update(Consumer<ConfigEditor> changes) {
+    this.parent.update(editor -> changes.accept(new ConfigEditor() {
+      @Override
+      public ConfigEditor set(String key, Object value) {
+        editor.set(SubtreeConfigSource.this.absolute(key).key(), value);
+        return this;
+      }
+
+      @Override
+      public ConfigEditor remove(String key) {
+        editor.remove(SubtreeConfigSource.this.absolute(key).key());
+        return this;
+      }
+    }));
+  }
+
+  @Override
+  public <R> R readConsistent(Supplier<R> reads) {
+    return this.parent.readConsistent(reads);
+  }
+
+  /**
+   * 親の prefix.key 以下を購読する。 イベントのキーはビューからの相対キーで、prefix 自身またはその祖先への書き込みは空文字列の
+   * キーとして通知する。 source はこのビュー。
+   */
+  @Override
+  public Subscription subscribe(String prefix, ConfigListener listener, Executor executor) {
+    String absolute = prefix.isEmpty() ? this.prefix : this.absolute(prefix).key();
+    return this.parent.subscribe(absolute, event -> {
+      Set<String> keys = new LinkedHashSet<>();
+      for (String key : event.keys()) {
+        keys.add(key.startsWith(this.start) ? key.substring(this.start.length()) : "");
+      }
+      listener.onChange(
+          new ConfigChangeEvent(this, Collections.unmodifiableSet(keys), event.version()));
+    }, executor);
+  }
+
+  /**
+   * ビューの内容をコピーした読み取り専用のスナップショット。
+   */
+  @Override
+  public ConfigSource<?> snapshot() {
+    return PersistentConfigSource.snapshotOf(this);
+  }
+
+  @Override
+  public String getString(String key) {
+    return this.parent.getString(this.absolute(key));
+  }
+
+  @Override
+  public String getString(KeyPath path) {
+    return this.parent.getString(this.absolute(path));
+  }
+
+  @Override
+  public String getString(String key, String defaultValue) {
+    return this.parent.getString(this.absolute(key).key(), defaultValue);
+  }
+
+  @Override
+  public char getChar(String key) {
+    return this.parent.getChar(this.absolute(key).key());
+  }
+
+  @Override
+  public char getChar(String key, char defaultValue) {
+    return this.parent.getChar(this.absolute(key).key(), defaultValue);
+  }
+
+  @Override
+  public boolean getBoolean(String key) {
+    return this.parent.getBoolean(this.absolute(key), false);
+  }
+
+  @Override
+  public boolean getBoolean(String key, boolean defaultValue) {
+    return this.parent.getBoolean(this.absolute(key), defaultValue);
+  }
+
+  @Override
+  public boolean getBoolean(KeyPath path, boolean defaultValue) {
+    return this.parent.getBoolean(this.absolute(path), defaultValue);
+  }
+
+  @Override
+  public byte getByte(String key) {
+    return this.parent.getByte(this.absolute(key).key());
+  }
+
+  @Override
+  public byte getByte(String key, byte defaultValue) {
+    return this.parent.getByte(this.absolute(key).key(), defaultValue);
+  }
+
+  @Override
+  public short getShort(String key) {
+    return this.parent.getShort(this.absolute(key).key());
+  }
+
+  @Override
+  public short getShort(String key, short defaultValue) {
+    return this.parent.getShort(this.absolute(key).key(), defaultValue);
+  }
+
+  @Override
+  public int getInt(String key) {
+    return this.parent.getInt(this.absolute(key), 0);
+  }
+
+  @Override
+  public int getInt(String key, int defaultValue) {
+    return this.parent.getInt(this.absolute(key), defaultValue);
+  }
+
+  @Override
+  public int getInt(KeyPath path, int defaultValue) {
+    return this.parent.getInt(this.absolute(path), defaultValue);
+  }
+
+  @Override
+  public long getLong(String key) {
+    return this.parent.getLong(this.absolute(key), 0L);
+  }
+
+  @Override
+  public long getLong(String key, long defaultValue) {
+    return this.parent.getLong(this.absolute(key), defaultValue);
+  }
+
+  @Override
+  public long getLong(KeyPath path, long defaultValue) {
+    return this.parent.getLong(this.absolute(path), defaultValue);
+  }
+
+  @Override
+  public float getFloat(String key) {
+    return this.parent.getFloat(this.absolute(key).key());
+  }
+
+  @Override
+  public float getFloat(String key, float defaultValue) {
+    return this.parent.getFloat(this.absolute(key).key(), defaultValue);
+  }
+
+  @Override
+  public double getDouble(String key) {
+    return this.parent.getDouble(this.absolute(key), 0d);
+  }
+
+  @Override
+  public double getDouble(String key, double defaultValue) {
+    return this.parent.getDouble(this.absolute(key), defaultValue);
+  }
+
+  @Override
+  public double getDouble(KeyPath path, double defaultValue) {
+    return this.parent.getDouble(this.absolute(path), defaultValue);
+  }
+
+  @Override
+  public <V> V get(String key) {
+    return this.parent.get(this.absolute(key));
+  }
+
+  @Override
+  public <V> V get(KeyPath path) {
+    return this.parent.get(this.absolute(path));
+  }
+
+  @Override
+  public <V> V get(String key, Class<V> type) {
+    return this.parent.get(this.absolute(key).key(), type);
+  }
+
+  @Override
+  public <V> V get(String key, V defaultValue) {
+    return this.parent.get(this.absolute(key).key(), defaultValue);
+  }
+
+  @Override
+  public String toString() {
+    return "SubtreeConfigSource[" + this.prefix + " of " + this.parent + "]";
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private Set<String> relative(Set<String> keys) {
+    Set<String> result = new LinkedHashSet<>(keys.size() * 2);
+    for (String key : keys) {
+      result.add(key.substring(this.start.length()));
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  private KeyPath absolute(String key) {
+    return this.absolute(this.parent.keyPathResolver().compile(key));
+  }
+
+  /**
+   * 相対パスを親のパスに変換する。
+   */
+  private KeyPath absolute(KeyPath path) {
+    KeyPath absolute = this.paths.get(path.key());
+    if (absolute == null) {
+      absolute = this.parent.keyPathResolver().compile(this.start + path.key());
+      if (this.paths.size() < MAX_CACHED_PATHS) {
+        this.paths.put(path.key(), absolute);
+      }
+    }
+    return absolute;
+  }
+}
@@ -0,0 +1,29 @@
+package com.ren130302.config.source;
+
+import java.util.Properties;
+import com.ren130302.config.source.properties.PropertiesConfigSource;
+
+/**
+ * システムプロパティの ConfigSource。 構築時に System.getProperties() をコピーし、以降の参照はコピーに対する 1 回の
+ * ハッシュ探索で行う。 書き込みはコピーにのみ反映され、JVM のシステムプロパティは変更しない。
+ */
+public class SystemPropertiesConfigSource extends PropertiesConfigSource {
+
+  public SystemPropertiesConfigSource() {
+    this(System.getProperties());
+  }
+
+  public SystemPropertiesConfigSource(Properties properties) {
+    super(snapshot(properties));
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private static Properties snapshot(Properties properties) {
+    Properties copy = new Properties();
+    for (String name : properties.stringPropertyNames()) {
+      copy.setProperty(name, properties.getProperty(name));
+    }
+    return copy;
+  }
+}
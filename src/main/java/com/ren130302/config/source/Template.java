@@ -0,0 +1,97 @@
+package com.ren130302.config.source;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ${name} / ${name:default} 形式のプレースホルダーを含む値を、リテラルと参照の並びに解析したもの。 $${ は ${ のリテラル。
+ * 既定値はリテラルとして扱い、中のプレースホルダーは展開しない。
+ */
+final class Template {
+
+  /**
+   * プレースホルダー。 defaultValue は既定値がなければ null。
+   */
+  record Reference(String name, String defaultValue) {
+  }
+
+  private final String text;
+  /** String（リテラル）または Reference */
+  private final Object[] parts;
+  private final List<Reference> references;
+
+  private Template(String text, Object[] parts, List<Reference> references) {
+    this.text = text;
+    this.parts = parts;
+    this.references = references;
+  }
+
+  /**
+   * @throws IllegalArgumentException プレースホルダーが閉じていない、または名前が空の場合
+   */
+  static Template parse(String text) {
+    List<Object> parts = new ArrayList<>();
+    List<Reference> references = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    int i = 0;
+    while (i < text.length()) {
+      if (text.startsWith("$${", i)) {
+        literal.append("${");
+        i += 3;
+      } else if (text.startsWith("${", i)) {
+        int close = text.indexOf('}', i + 2);
+        if (close < 0) {
+          throw new IllegalArgumentException("Unclosed placeholder in: " + text);
+        }
+        String body = text.substring(i + 2, close);
+        int colon = body.indexOf(':');
+        String name = (colon < 0 ? body : body.substring(0, colon)).trim();
+        if (name.isEmpty()) {
+          throw new IllegalArgumentException("Empty placeholder in: " + text);
+        }
+        if (!literal.isEmpty()) {
+          parts.add(literal.toString());
+          literal.setLength(0);
+        }
+        Reference reference = new Reference(name, colon < 0 ? null : body.substring(colon + 1));
+        parts.add(reference);
+        references.add(reference);
+        i = close + 1;
+      } else {
+        literal.append(text.charAt(i));
+        i++;
+      }
+    }
+    if (!literal.isEmpty()) {
+      parts.add(literal.toString());
+    }
+    return new Template(text, parts.toArray(), List.copyOf(references));
+  }
+
+  /** 解析元の文字列 */
+  String text() {
+    return this.text;
+  }
+
+  List<Reference> references() {
+    return this.references;
+  }
+
+  /**
+   * 値全体が 1 つのプレースホルダーであれば true。 この場合は参照先の値を文字列にせずそのまま使う。
+   */
+  boolean isSingleReference() {
+    return this.parts.length == 1 && this.parts[0] instanceof Reference;
+  }
+
+  /**
+   * parts の i 番目。 String または Reference。
+   */
+  Object part(int i) {
+    return this.parts[i];
+  }
+
+  int size() {
+    return this.parts.length;
+  }
+}
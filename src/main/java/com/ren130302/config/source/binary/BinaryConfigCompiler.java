@@ -0,0 +1,171 @@
+package com.ren130302.config.source.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.KeyPath;
+import com.ren130302.config.source.KeyPathResolvers;
+
+/**
+ * 任意の ConfigSource を BinaryConfigSource が読み込むバイナリ形式に変換する。
+ * <p>
+ * keys() の各キーの値を平坦化して格納する。 Map の値は子キーに、List の値は要素数と key.0, key.1 ... の要素に展開する。
+ * キーの祖先が List を返す場合（JSON の配列など）は、その List も要素数とともに格納する。 文字列・数値・真偽値以外の値は
+ * toString() した文字列として格納する。
+ */
+public final class BinaryConfigCompiler {
+
+  private BinaryConfigCompiler() {} // インスタンス化禁止
+
+  /**
+   * target に書き込む。 一時ファイルに書き込んだ後で置き換えるため、読み込み中のプロセスが書きかけのファイルを見ることはない。
+   */
+  public static void compile(ConfigSource<?> source, Path target) throws IOException {
+    Path dir = target.toAbsolutePath().getParent();
+    Path temp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+    try {
+      Files.write(temp, compile(source));
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  public static byte[] compile(ConfigSource<?> source) {
+    TreeMap<String, Entry> entries = new TreeMap<>();
+    for (String key : source.keys()) {
+      add(entries, key, source.getRaw(key), true);
+      KeyPath path = KeyPathResolvers.DOT.compile(key);
+      for (KeyPath parent = path.parent(); parent != null; parent = parent.parent()) {
+        if (!entries.containsKey(parent.key())
+            && source.getRaw(parent.key()) instanceof Collection<?> list) {
+          add(entries, parent.key(), list, false);
+        }
+      }
+    }
+    return write(entries);
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private record Entry(Object value, byte type, boolean keyed) {
+  }
+
+  private static void add(Map<String, Entry> entries, String key, Object value, boolean keyed) {
+    Entry existing = entries.get(key);
+    if (existing != null) {
+      if (keyed && !existing.keyed()) {
+        entries.put(key, new Entry(existing.value(), existing.type(), true));
+      }
+      return;
+    }
+    if (value instanceof Map<?, ?> map) {
+      entries.put(key, new Entry(null, BinaryFormat.TYPE_MAP, keyed));
+      map.forEach((k, v) -> add(entries, key + "." + k, v, false));
+    } else if (value instanceof Collection<?> collection) {
+      entries.put(key, new Entry(collection.size(), BinaryFormat.TYPE_LIST, keyed));
+      int i = 0;
+      for (Object element : collection) {
+        add(entries, key + "." + i++, element, false);
+      }
+    } else {
+      entries.put(key, scalar(value, keyed));
+    }
+  }
+
+  private static Entry scalar(Object value, boolean keyed) {
+    if (value == null) {
+      return new Entry(null, BinaryFormat.TYPE_NULL, keyed);
+    }
+    if (value instanceof Boolean) {
+      return new Entry(value, BinaryFormat.TYPE_BOOLEAN, keyed);
+    }
+    if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return new Entry(((Number) value).intValue(), BinaryFormat.TYPE_INT, keyed);
+    }
+    if (value instanceof Long) {
+      return new Entry(value, BinaryFormat.TYPE_LONG, keyed);
+    }
+    if (value instanceof Double || value instanceof Float) {
+      return new Entry(((Number) value).doubleValue(), BinaryFormat.TYPE_DOUBLE, keyed);
+    }
+    return new Entry(value.toString(), BinaryFormat.TYPE_STRING, keyed);
+  }
+
+  private static byte[] write(TreeMap<String, Entry> entries) {
+    int count = entries.size();
+    int slots = BinaryFormat.slotCount(count);
+    int entryTable = BinaryFormat.HEADER_SIZE;
+    int slotTable = entryTable + count * BinaryFormat.ENTRY_SIZE;
+    int dataOffset = slotTable + slots * 4;
+
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    ByteBuffer table = ByteBuffer.allocate(dataOffset);
+    int[] slotEntries = new int[slots];
+    int index = 0;
+    for (Map.Entry<String, Entry> e : entries.entrySet()) {
+      String key = e.getKey();
+      Entry entry = e.getValue();
+      byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+      int base = entryTable + index * BinaryFormat.ENTRY_SIZE;
+      table.putInt(base + BinaryFormat.ENTRY_KEY_OFFSET, data.size());
+      table.putInt(base + BinaryFormat.ENTRY_KEY_LENGTH, keyBytes.length);
+      table.putInt(base + BinaryFormat.ENTRY_KEY_HASH, key.hashCode());
+      table.put(base + BinaryFormat.ENTRY_TYPE, entry.type());
+      table.put(base + BinaryFormat.ENTRY_FLAGS, entry.keyed() ? BinaryFormat.FLAG_KEYED : 0);
+      data.writeBytes(keyBytes);
+      table.putLong(base + BinaryFormat.ENTRY_VALUE, encode(entry, data));
+
+      int mask = slots - 1;
+      int slot = BinaryFormat.slot(key.hashCode(), mask);
+      while (slotEntries[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slotEntries[slot] = index + 1;
+      index++;
+    }
+    for (int i = 0; i < slots; i++) {
+      table.putInt(slotTable + i * 4, slotEntries[i]);
+    }
+
+    table.putInt(0, BinaryFormat.MAGIC);
+    table.putInt(4, BinaryFormat.FORMAT_VERSION);
+    table.putInt(8, count);
+    table.putInt(12, slots);
+    table.putInt(16, entryTable);
+    table.putInt(20, slotTable);
+    table.putInt(24, dataOffset);
+    table.putInt(28, data.size());
+
+    byte[] result = new byte[dataOffset + data.size()];
+    System.arraycopy(table.array(), 0, result, 0, dataOffset);
+    System.arraycopy(data.toByteArray(), 0, result, dataOffset, data.size());
+    return result;
+  }
+
+  private static long encode(Entry entry, ByteArrayOutputStream data) {
+    return switch (entry.type()) {
+      case BinaryFormat.TYPE_BOOLEAN -> (Boolean) entry.value() ? 1L : 0L;
+      case BinaryFormat.TYPE_INT -> (Integer) entry.value();
+      case BinaryFormat.TYPE_LONG -> (Long) entry.value();
+      case BinaryFormat.TYPE_DOUBLE -> Double.doubleToRawLongBits((Double) entry.value());
+      case BinaryFormat.TYPE_LIST -> (Integer) entry.value();
+      case BinaryFormat.TYPE_STRING -> {
+        byte[] bytes = ((String) entry.value()).getBytes(StandardCharsets.UTF_8);
+        long offset = data.size();
+        data.writeBytes(bytes);
+        yield offset << 32 | bytes.length;
+      }
+      default -> 0L;
+    };
+  }
+}
@@ -0,0 +1,371 @@
+package com.ren130302.config.source.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import com.ren130302.config.source.AbstractConfigSource;
+import com.ren130302.config.source.KeyIndex;
+import com.ren130302.config.source.KeyPath;
+import com.ren130302.config.source.KeyPathResolvers;
+
+/**
+ * BinaryConfigCompiler で変換したバイナリ形式を読む読み取り専用の ConfigSource。 ファイルは読み取り専用でメモリマップするため、
+ * 起動時の解析はなく、同じホスト上の複数のプロセスがページを共有する。
+ * <p>
+ * キーの参照はファイル内のハッシュ表を 1 回探索し、キーのバイト列を文字列と直接比較する。 数値・真偽値はバッファから直接読み、
+ * 文字列は初回参照時にデコードしてエントリーごとに保持する。 オブジェクトは子キーの範囲から、配列は要素のエントリーから組み立てる。
+ */
+public final class BinaryConfigSource extends AbstractConfigSource<ByteBuffer> {
+
+  private final ByteBuffer buffer;
+  private final int count;
+  private final int slotMask;
+  private final int entryTable;
+  private final int slotTable;
+  private final int dataOffset;
+  /** デコード済みの値。 不変オブジェクトのみを格納するため、競合して同じ値を二重に格納しても問題ない */
+  private final Object[] decoded;
+  private final Map<String, Object> containers = new ConcurrentHashMap<>();
+  private final KeyIndex keyIndex = new KeyIndex(this::collectKeys);
+
+  private BinaryConfigSource(ByteBuffer buffer) {
+    super(buffer.asReadOnlyBuffer().order(ByteOrder.BIG_ENDIAN), KeyPathResolvers.DOT);
+    this.buffer = this.source;
+    if (buffer.capacity() < BinaryFormat.HEADER_SIZE
+        || this.buffer.getInt(0) != BinaryFormat.MAGIC) {
+      throw new IllegalArgumentException("Not a binary config");
+    }
+    if (this.buffer.getInt(4) != BinaryFormat.FORMAT_VERSION) {
+      throw new IllegalArgumentException(
+          "Unsupported binary config version: " + this.buffer.getInt(4));
+    }
+    this.count = this.buffer.getInt(8);
+    this.slotMask = this.buffer.getInt(12) - 1;
+    this.entryTable = this.buffer.getInt(16);
+    this.slotTable = this.buffer.getInt(20);
+    this.dataOffset = this.buffer.getInt(24);
+    this.decoded = new Object[this.count];
+  }
+
+  /**
+   * ファイルを読み取り専用でメモリマップする。 マップはチャネルを閉じた後も有効。
+   */
+  public static BinaryConfigSource open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new BinaryConfigSource(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public static BinaryConfigSource wrap(byte[] bytes) {
+    return new BinaryConfigSource(ByteBuffer.wrap(bytes));
+  }
+
+  public static BinaryConfigSource wrap(ByteBuffer buffer) {
+    return new BinaryConfigSource(buffer);
+  }
+
+  @Override
+  public Object getRaw(String key) {
+    return this.getRaw(this.compile(key));
+  }
+
+  @Override
+  public Object getRaw(KeyPath path) {
+    int entry = this.find(path.key());
+    if (entry < 0) {
+      return this.container(path.key());
+    }
+    Object value = this.decoded[entry];
+    if (value == null) {
+      value = this.decode(entry, path.key());
+      this.decoded[entry] = value;
+    }
+    return value;
+  }
+
+  @Override
+  public Object getRaw(String key, Object defaultValue) {
+    Object value = this.getRaw(key);
+    return value != null ? value : defaultValue;
+  }
+
+  @Override
+  public boolean containsKey(KeyPath path) {
+    int entry = this.find(path.key());
+    return entry >= 0 && (this.buffer.get(this.base(entry) + BinaryFormat.ENTRY_FLAGS)
+        & BinaryFormat.FLAG_KEYED) != 0;
+  }
+
+  @Override
+  public boolean getBoolean(KeyPath path, boolean defaultValue) {
+    int entry = this.find(path.key());
+    if (entry >= 0 && this.type(entry) == BinaryFormat.TYPE_BOOLEAN) {
+      return this.value(entry) != 0L;
+    }
+    return toBoolean(this.getRaw(path), defaultValue);
+  }
+
+  @Override
+  public int getInt(KeyPath path, int defaultValue) {
+    int entry = this.find(path.key());
+    if (entry >= 0 && this.type(entry) == BinaryFormat.TYPE_INT) {
+      return (int) this.value(entry);
+    }
+    return toInt(this.getRaw(path), defaultValue);
+  }
+
+  @Override
+  public long getLong(KeyPath path, long defaultValue) {
+    int entry = this.find(path.key());
+    if (entry >= 0) {
+      byte type = this.type(entry);
+      if (type == BinaryFormat.TYPE_INT || type == BinaryFormat.TYPE_LONG) {
+        return this.value(entry);
+      }
+    }
+    return toLong(this.getRaw(path), defaultValue);
+  }
+
+  @Override
+  public double getDouble(KeyPath path, double defaultValue) {
+    int entry = this.find(path.key());
+    if (entry >= 0) {
+      byte type = this.type(entry);
+      if (type == BinaryFormat.TYPE_DOUBLE) {
+        return Double.longBitsToDouble(this.value(entry));
+      }
+      if (type == BinaryFormat.TYPE_INT || type == BinaryFormat.TYPE_LONG) {
+        return this.value(entry);
+      }
+    }
+    return toDouble(this.getRaw(path), defaultValue);
+  }
+
+  @Override
+  public void setRaw(String key, Object value) {
+    throw new UnsupportedOperationException("BinaryConfigSource is read-only");
+  }
+
+  @Override
+  public Set<String> keys() {
+    return this.keyIndex.get();
+  }
+
+  /**
+   * 読み取り専用のため自身を返す。
+   */
+  @Override
+  public BinaryConfigSource snapshot() {
+    return this;
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private int base(int entry) {
+    return this.entryTable + entry * BinaryFormat.ENTRY_SIZE;
+  }
+
+  private byte type(int entry) {
+    return this.buffer.get(this.base(entry) + BinaryFormat.ENTRY_TYPE);
+  }
+
+  private long value(int entry) {
+    return this.buffer.getLong(this.base(entry) + BinaryFormat.ENTRY_VALUE);
+  }
+
+  /**
+   * key のエントリー番号。 なければ -1。
+   */
+  private int find(String key) {
+    int hash = key.hashCode();
+    int slot = BinaryFormat.slot(hash, this.slotMask);
+    while (true) {
+      int entry = this.buffer.getInt(this.slotTable + slot * 4) - 1;
+      if (entry < 0) {
+        return -1;
+      }
+      int base = this.base(entry);
+      if (this.buffer.getInt(base + BinaryFormat.ENTRY_KEY_HASH) == hash
+          && this.keyEquals(base, key)) {
+        return entry;
+      }
+      slot = (slot + 1) & this.slotMask;
+    }
+  }
+
+  /**
+   * キーのバイト列と key を比較する。 ASCII のみのキーはデコードせずに比較する。
+   */
+  private boolean keyEquals(int base, String key) {
+    int offset = this.dataOffset + this.buffer.getInt(base + BinaryFormat.ENTRY_KEY_OFFSET);
+    int length = this.buffer.getInt(base + BinaryFormat.ENTRY_KEY_LENGTH);
+    if (length == key.length()) {
+      int i = 0;
+      for (; i < length; i++) {
+        byte b = this.buffer.get(offset + i);
+        if (b < 0) {
+          break;
+        }
+        if (b != key.charAt(i)) {
+          return false;
+        }
+      }
+      if (i == length) {
+        return true;
+      }
+    } else if (length < key.length()) {
+      return false; // UTF-8 のバイト長は文字数より短くならない
+    }
+    return this.string(offset, length).equals(key);
+  }
+
+  /**
+   * エントリーのキーと key を String#compareTo の順で比較する。 ASCII の範囲はデコードせずにバイト列のまま比較する
+   * （ASCII 以外の文字の UTF-16 コード単位はいずれの ASCII 文字より大きい）。
+   */
+  private int compareKey(int entry, String key) {
+    int base = this.base(entry);
+    int offset = this.dataOffset + this.buffer.getInt(base + BinaryFormat.ENTRY_KEY_OFFSET);
+    int length = this.buffer.getInt(base + BinaryFormat.ENTRY_KEY_LENGTH);
+    int limit = Math.min(length, key.length());
+    for (int i = 0; i < limit; i++) {
+      byte b = this.buffer.get(offset + i);
+      if (b < 0) {
+        return this.string(offset, length).compareTo(key);
+      }
+      if (b != key.charAt(i)) {
+        return b - key.charAt(i);
+      }
+    }
+    // 比較したバイトはすべて 1 文字ずつに対応するため、残りのある方が大きい
+    return length - key.length();
+  }
+
+  /**
+   * エントリーのキーが prefix で始まるか。 ASCII の範囲はデコードせずに比較する。
+   */
+  private boolean keyStartsWith(int entry, String prefix) {
+    int base = this.base(entry);
+    int offset = this.dataOffset + this.buffer.getInt(base + BinaryFormat.ENTRY_KEY_OFFSET);
+    int length = this.buffer.getInt(base + BinaryFormat.ENTRY_KEY_LENGTH);
+    if (length < prefix.length()) {
+      return false; // UTF-8 のバイト長は文字数より短くならない
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      byte b = this.buffer.get(offset + i);
+      if (b < 0) {
+        return this.string(offset, length).startsWith(prefix);
+      }
+      if (b != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String key(int entry) {
+    int base = this.base(entry);
+    return this.string(this.dataOffset + this.buffer.getInt(base + BinaryFormat.ENTRY_KEY_OFFSET),
+        this.buffer.getInt(base + BinaryFormat.ENTRY_KEY_LENGTH));
+  }
+
+  private String string(int offset, int length) {
+    byte[] bytes = new byte[length];
+    this.buffer.get(offset, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private Object decode(int entry, String key) {
+    long value = this.value(entry);
+    return switch (this.type(entry)) {
+      case BinaryFormat.TYPE_BOOLEAN -> value != 0L;
+      case BinaryFormat.TYPE_INT -> (int) value;
+      case BinaryFormat.TYPE_LONG -> value;
+      case BinaryFormat.TYPE_DOUBLE -> Double.longBitsToDouble(value);
+      case BinaryFormat.TYPE_STRING -> this.string(this.dataOffset + (int) (value >>> 32),
+          (int) value);
+      case BinaryFormat.TYPE_LIST -> this.list(key, (int) value);
+      case BinaryFormat.TYPE_MAP -> this.container(key);
+      default -> null;
+    };
+  }
+
+  private List<Object> list(String key, int size) {
+    List<Object> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(this.getRaw(this.compile(key + "." + i)));
+    }
+    return Collections.unmodifiableList(list);
+  }
+
+  /**
+   * key. で始まるエントリーの範囲から Map を組み立てる。 範囲が空なら null。 組み立てた Map は以降の参照で共有する。
+   */
+  private Map<String, Object> container(String key) {
+    @SuppressWarnings("unchecked")
+    Map<String, Object> cached = (Map<String, Object>) this.containers.get(key);
+    if (cached != null) {
+      return cached;
+    }
+    String prefix = key + ".";
+    Map<String, Object> map = new LinkedHashMap<>();
+    for (int entry = this.lowerBound(prefix); entry < this.count; entry++) {
+      if (!this.keyStartsWith(entry, prefix)) {
+        break;
+      }
+      String current = this.key(entry);
+      int dot = current.indexOf('.', prefix.length());
+      String child = dot < 0 ? current.substring(prefix.length())
+          : current.substring(prefix.length(), dot);
+      if (!map.containsKey(child)) {
+        map.put(child, this.getRaw(this.compile(prefix + child)));
+      }
+    }
+    if (map.isEmpty()) {
+      return null;
+    }
+    Map<String, Object> view = Collections.unmodifiableMap(map);
+    this.containers.putIfAbsent(key, view);
+    return view;
+  }
+
+  /**
+   * key 以上となる最初のエントリー番号。 エントリー表はキーの String#compareTo 順に並んでいる。
+   */
+  private int lowerBound(String key) {
+    int low = 0;
+    int high = this.count;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (this.compareKey(mid, key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private Set<String> collectKeys() {
+    Set<String> keys = new LinkedHashSet<>();
+    for (int entry = 0; entry < this.count; entry++) {
+      if ((this.buffer.get(this.base(entry) + BinaryFormat.ENTRY_FLAGS)
+          & BinaryFormat.FLAG_KEYED) != 0) {
+        keys.add(this.key(entry));
+      }
+    }
+    return keys;
+  }
+}
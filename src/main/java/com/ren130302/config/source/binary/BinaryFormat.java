@@ -0,0 +1,70 @@
+package com.ren130302.config.source.binary;
+
+/**
+ * バイナリ設定ファイルのレイアウト。 すべての整数はビッグエンディアン。
+ *
+ * <pre>
+ * ヘッダー (32 バイト)
+ *   0  int  MAGIC
+ *   4  int  FORMAT_VERSION
+ *   8  int  エントリー数
+ *  12  int  スロット数（2 の累乗）
+ *  16  int  エントリー表の開始位置
+ *  20  int  スロット表の開始位置
+ *  24  int  データ領域の開始位置
+ *  28  int  データ領域の長さ
+ * エントリー表 (ENTRY_SIZE バイト x エントリー数、キーの昇順)
+ *   0  int  キーのデータ領域内オフセット
+ *   4  int  キーの UTF-8 バイト長
+ *   8  int  キーの String#hashCode
+ *  12  byte 値の型
+ *  13  byte フラグ
+ *  16  long 値（型ごとの表現）
+ * スロット表 (int x スロット数)
+ *   エントリー番号 + 1 を格納するオープンアドレス法のハッシュ表。 0 は空き
+ * データ領域
+ *   キーと文字列値の UTF-8 バイト列
+ * </pre>
+ */
+final class BinaryFormat {
+
+  static final int MAGIC = 0x43464742; // "CFGB"
+  static final int FORMAT_VERSION = 1;
+
+  static final int HEADER_SIZE = 32;
+  static final int ENTRY_SIZE = 24;
+
+  static final int ENTRY_KEY_OFFSET = 0;
+  static final int ENTRY_KEY_LENGTH = 4;
+  static final int ENTRY_KEY_HASH = 8;
+  static final int ENTRY_TYPE = 12;
+  static final int ENTRY_FLAGS = 13;
+  static final int ENTRY_VALUE = 16;
+
+  static final byte TYPE_NULL = 0;
+  static final byte TYPE_BOOLEAN = 1;
+  static final byte TYPE_INT = 2;
+  static final byte TYPE_LONG = 3;
+  static final byte TYPE_DOUBLE = 4;
+  /** 値はデータ領域内のオフセット（上位 32 ビット）と長さ（下位 32 ビット） */
+  static final byte TYPE_STRING = 5;
+  /** 値は要素数。 要素は key.0, key.1 ... のエントリーとして格納する */
+  static final byte TYPE_LIST = 6;
+  /** 値は持たない。 子は key.* のエントリーとして格納する */
+  static final byte TYPE_MAP = 7;
+
+  /** 元の ConfigSource#keys() に含まれていたエントリー */
+  static final byte FLAG_KEYED = 1;
+
+  private BinaryFormat() {} // インスタンス化禁止
+
+  /** キーのハッシュからスロット位置を求める。 OpenHashIndex と同じく連番キーのクラスタを避けるため乗算で拡散する */
+  static int slot(int hash, int mask) {
+    int h = hash * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  static int slotCount(int entryCount) {
+    return Integer.highestOneBit(Math.max(entryCount, 2) * 2 - 1) << 1;
+  }
+}
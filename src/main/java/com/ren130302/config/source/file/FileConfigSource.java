@@ -0,0 +1,322 @@
+package com.ren130302.config.source.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.ChangeNotifier;
+import com.ren130302.config.source.ConfigListener;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.DelegatingConfigSource;
+import com.ren130302.config.source.Subscription;
+import com.ren130302.config.source.json.JsonConfigSource;
+import com.ren130302.config.source.properties.PropertiesConfigSource;
+
+/**
+ * ファイルを監視し、変更時に再読み込みする ConfigSource。 変更イベントは debounce の間隔で集約し、監視スレッド上で解析した後
+ * volatile フィールド 1 つの差し替えで公開する。 読み出し側はロックを取らず、常に解析の完了した設定のみを参照する。 イベントが
+ * 途切れなくても、最初のイベントから maxWait が経過した時点でリロードする。
+ * <p>
+ * ファイルがシンボリックリンクの場合は、リンク先のディレクトリと、リンクが経由する同じディレクトリ内のリンク（Kubernetes の
+ * ConfigMap の ..data など）も監視し、リンクの差し替えでもリロードする。 監視対象はリロードのたびに解決し直す。
+ * <p>
+ * set / setRaw による書き込みは現在の設定（メモリ上）にのみ反映され、次のリロードで失われる。
+ * <p>
+ * subscribe の購読はリロードをまたいで維持する。 リロード時は新旧の設定で値が異なるキーを 1 つのイベントとして通知する。
+ */
+public final class FileConfigSource<T> extends DelegatingConfigSource<T> implements Closeable {
+
+  public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(200);
+
+  /** maxWait を指定しない場合の debounce に対する倍率 */
+  private static final int DEFAULT_MAX_WAIT_FACTOR = 10;
+  /** たどるシンボリックリンクの最大数 */
+  private static final int MAX_LINKS = 8;
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  /**
+   * ファイルを解析して ConfigSource を生成する
+   */
+  @FunctionalInterface
+  public interface Loader<T> {
+    ConfigSource<T> load(Path path) throws IOException;
+  }
+
+  private final Path path;
+  private final Loader<T> loader;
+  private final long debounceNanos;
+  private final long maxWaitNanos;
+  private final ReloadMetrics metrics = new ReloadMetrics();
+  private final ChangeNotifier notifier = new ChangeNotifier(this);
+  private final WatchService watchService;
+  /** 監視中のディレクトリ -> リロードの契機とするエントリ名。 監視スレッドのみが更新する */
+  private final Map<WatchKey, Set<Path>> watched = new HashMap<>();
+  private final Thread watcher;
+  private volatile Generation<T> current;
+  private volatile boolean closed;
+
+  /**
+   * 公開中の設定とバージョンの底上げ分。 リロード後も version() が単調増加するよう、差し替え時に旧バージョンより大きい base を持つ。
+   */
+  private record Generation<T>(ConfigSource<T> source, long base, Subscription relay) {
+  }
+
+  private FileConfigSource(Path path, Loader<T> loader, Duration debounce, Duration maxWait)
+      throws IOException {
+    this.path = path.toAbsolutePath();
+    this.loader = Objects.requireNonNull(loader, "loader must not be null");
+    this.debounceNanos = debounce.toNanos();
+    this.maxWaitNanos = Math.max(maxWait.toNanos(), this.debounceNanos);
+    this.reload();
+
+    this.watchService = FileSystems.getDefault().newWatchService();
+    try {
+      this.registerTargets();
+    } catch (IOException | RuntimeException e) {
+      try {
+        this.watchService.close();
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+    this.watcher = Thread.ofPlatform().daemon().name("config-watch-" + this.path.getFileName())
+        .start(this::watchLoop);
+  }
+
+  /**
+   * maxWait は debounce の 10 倍。
+   */
+  public static <T> FileConfigSource<T> watch(Path path, Loader<T> loader, Duration debounce)
+      throws IOException {
+    return watch(path, loader, debounce, debounce.multipliedBy(DEFAULT_MAX_WAIT_FACTOR));
+  }
+
+  /**
+   * maxWait は最初のイベントからリロードまでの最大の待ち時間。 debounce より短い場合は debounce を使う。
+   */
+  public static <T> FileConfigSource<T> watch(Path path, Loader<T> loader, Duration debounce,
+      Duration maxWait) throws IOException {
+    return new FileConfigSource<>(path, loader, debounce, maxWait);
+  }
+
+  public static FileConfigSource<ObjectNode> json(Path path) throws IOException {
+    return watch(path, FileConfigSource::loadJson, DEFAULT_DEBOUNCE);
+  }
+
+  public static FileConfigSource<Properties> properties(Path path) throws IOException {
+    return watch(path, FileConfigSource::loadProperties, DEFAULT_DEBOUNCE);
+  }
+
+  @Override
+  protected ConfigSource<T> delegate() {
+    return this.current.source();
+  }
+
+  @Override
+  public long version() {
+    Generation<T> generation = this.current;
+    return generation.base() + generation.source().version();
+  }
+
+  @Override
+  public long version(String key) {
+    Generation<T> generation = this.current;
+    return generation.base() + generation.source().version(key);
+  }
+
+  @Override
+  public Subscription subscribe(String prefix, ConfigListener listener, Executor executor) {
+    return this.notifier.subscribe(prefix, listener, executor);
+  }
+
+  public Path path() {
+    return this.path;
+  }
+
+  public ReloadMetrics metrics() {
+    return this.metrics;
+  }
+
+  /**
+   * 監視イベントを待たずに同期的に再読み込みする。 解析に失敗した場合は旧設定を維持して例外を送出する。
+   */
+  public void reload() throws IOException {
+    if (!this.reload(System.nanoTime())) {
+      Throwable failure = this.metrics.lastFailure();
+      throw failure instanceof IOException e ? e : new IOException(failure);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.closed = true;
+    this.watchService.close();
+    this.watcher.interrupt();
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private synchronized boolean reload(long firstEventNanos) {
+    long start = System.nanoTime();
+    ConfigSource<T> loaded;
+    try {
+      loaded = this.loader.load(this.path);
+    } catch (IOException | RuntimeException e) {
+      this.metrics.recordFailure(e);
+      return false;
+    }
+    long parsed = System.nanoTime();
+    Generation<T> previous = this.current;
+    long base = previous == null ? 0L : previous.base() + previous.source().version() + 1L;
+    // メモリ上の書き込みを購読者に中継する
+    Subscription relay =
+        loaded.subscribe("", event -> this.notifier.changedAll(event.keys()), Runnable::run);
+    this.current = new Generation<>(loaded, base, relay);
+    this.metrics.recordSuccess(parsed - start, System.nanoTime() - firstEventNanos);
+    if (previous != null) {
+      previous.relay().close();
+      if (this.notifier.hasSubscribers()) {
+        this.notifier.publish(changedKeys(previous.source(), loaded));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 新旧いずれかにあり、値が異なるキー。
+   */
+  private static Set<String> changedKeys(ConfigSource<?> before, ConfigSource<?> after) {
+    Set<String> changed = new LinkedHashSet<>();
+    for (String key : before.keys()) {
+      if (!Objects.equals(before.getRaw(key), after.getRaw(key))) {
+        changed.add(key);
+      }
+    }
+    for (String key : after.keys()) {
+      if (!before.keys().contains(key)) {
+        changed.add(key);
+      }
+    }
+    return changed;
+  }
+
+  private void watchLoop() {
+    long firstEventNanos = 0L;
+    long lastEventNanos = 0L;
+    while (!this.closed) {
+      WatchKey key;
+      try {
+        if (firstEventNanos == 0L) {
+          key = this.watchService.take();
+        } else {
+          // 最後のイベントから debounce、最初のイベントから maxWait のいずれか早い方まで待つ
+          long deadline = Math.min(lastEventNanos + this.debounceNanos,
+              firstEventNanos + this.maxWaitNanos);
+          long remaining = deadline - System.nanoTime();
+          key = remaining > 0L ? this.watchService.poll(remaining, TimeUnit.NANOSECONDS) : null;
+        }
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        return;
+      }
+      if (key == null) {
+        // 読み込みの後の変更を取りこぼさないよう、リンク先の登録を先に更新する
+        try {
+          this.registerTargets();
+        } catch (IOException | RuntimeException e) {
+          // 監視対象を解決できない場合は既存の登録のまま監視を続ける
+        }
+        this.reload(firstEventNanos);
+        firstEventNanos = 0L;
+        continue;
+      }
+      Set<Path> names = this.watched.getOrDefault(key, Set.of());
+      boolean relevant = false;
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW || names.contains(event.context())) {
+          relevant = true;
+        }
+      }
+      if (!key.reset()) {
+        this.watched.remove(key);
+      }
+      if (relevant) {
+        lastEventNanos = System.nanoTime();
+        if (firstEventNanos == 0L) {
+          firstEventNanos = lastEventNanos;
+        }
+      }
+    }
+  }
+
+  /**
+   * ファイルのディレクトリと、シンボリックリンクをたどった先のディレクトリを監視対象に登録する。 リンクの経路上にある同じ
+   * ディレクトリ内のエントリ（a.json -> ..data/a.json の ..data）もリロードの契機とする。
+   */
+  private void registerTargets() throws IOException {
+    Map<Path, Set<Path>> targets = new LinkedHashMap<>();
+    addTarget(targets, this.path);
+    Path current = this.path;
+    for (int i = 0; i < MAX_LINKS && Files.isSymbolicLink(current); i++) {
+      Path dir = current.getParent();
+      Path resolved = dir.resolve(Files.readSymbolicLink(current)).normalize();
+      if (resolved.startsWith(dir) && resolved.getNameCount() > dir.getNameCount() + 1) {
+        targets.get(dir).add(resolved.getName(dir.getNameCount()));
+      }
+      addTarget(targets, resolved);
+      current = resolved;
+    }
+    if (Files.exists(this.path)) {
+      addTarget(targets, this.path.toRealPath());
+    }
+    for (Map.Entry<Path, Set<Path>> target : targets.entrySet()) {
+      if (Files.isDirectory(target.getKey())) {
+        WatchKey key = target.getKey().register(this.watchService,
+            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.watched.put(key, target.getValue());
+      }
+    }
+  }
+
+  private static void addTarget(Map<Path, Set<Path>> targets, Path file) {
+    targets.computeIfAbsent(file.getParent(), dir -> new HashSet<>()).add(file.getFileName());
+  }
+
+  private static ConfigSource<ObjectNode> loadJson(Path path) throws IOException {
+    JsonNode root = mapper.readTree(path.toFile());
+    if (!(root instanceof ObjectNode object)) {
+      throw new IOException("JSON root must be an object: " + path);
+    }
+    return new JsonConfigSource(object);
+  }
+
+  private static ConfigSource<Properties> loadProperties(Path path) throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(path)) {
+      properties.load(in);
+    }
+    return new PropertiesConfigSource(properties);
+  }
+}
@@ -0,0 +1,65 @@
+package com.ren130302.config.source.file;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * FileConfigSource のリロード統計。 値はリロードごとに更新され、読み出しはロックを取らない。
+ */
+public final class ReloadMetrics {
+
+  private volatile long reloadCount;
+  private volatile long failureCount;
+  private volatile long lastParseNanos;
+  private volatile long lastLatencyNanos;
+  private volatile Instant lastReloadTime;
+  private volatile Throwable lastFailure;
+
+  ReloadMetrics() {}
+
+  /** 成功したリロードの回数（初回読み込みを含む） */
+  public long reloadCount() {
+    return this.reloadCount;
+  }
+
+  /** 解析に失敗し、旧設定を維持したリロードの回数 */
+  public long failureCount() {
+    return this.failureCount;
+  }
+
+  /** 直近の解析に要した時間 */
+  public Duration lastParseTime() {
+    return Duration.ofNanos(this.lastParseNanos);
+  }
+
+  /** 直近のリロードで、最初のファイル変更イベントから新しい設定の公開までに要した時間 */
+  public Duration lastReloadLatency() {
+    return Duration.ofNanos(this.lastLatencyNanos);
+  }
+
+  public Instant lastReloadTime() {
+    return this.lastReloadTime;
+  }
+
+  public Throwable lastFailure() {
+    return this.lastFailure;
+  }
+
+  synchronized void recordSuccess(long parseNanos, long latencyNanos) {
+    this.lastParseNanos = parseNanos;
+    this.lastLatencyNanos = latencyNanos;
+    this.lastReloadTime = Instant.now();
+    this.reloadCount++;
+  }
+
+  synchronized void recordFailure(Throwable failure) {
+    this.lastFailure = failure;
+    this.failureCount++;
+  }
+
+  @Override
+  public String toString() {
+    return "ReloadMetrics[reloads=" + this.reloadCount + ",failures=" + this.failureCount
+        + ",lastParse=" + this.lastParseTime() + ",lastLatency=" + this.lastReloadLatency() + "]";
+  }
+}
@@ -0,0 +1,375 @@
+package com.ren130302.config.source.json;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * JSON ツリーを先行順に並べた平坦な表。 エントリーごとにフルパス・葉の値・部分木の終端だけを並列の配列に持ち、パスから
+ * エントリーへの索引は int 配列のオープンアドレス法ハッシュ表で引く。 オブジェクト／配列の Map / List は保持せず、
+ * 参照されたときに表の範囲を指す変更不可のビューを作る。 配列のエントリーは値の代わりに要素のエントリー番号を持ち、添字で
+ * 直接引く。
+ * <p>
+ * エントリー 0 は根のオブジェクト（パスは空文字列）で、索引には含めない。 同じパスのエントリーが複数ある場合（重複した
+ * フィールド名）は後のエントリーを使う。
+ */
+final class FlatJsonIndex {
+
+  static final byte LEAF = 0;
+  static final byte OBJECT = 1;
+  static final byte ARRAY = 2;
+  private static final byte KIND_MASK = 3;
+  /** ConfigSource#keys() に含めるエントリー */
+  private static final byte FLAG_KEYED = 4;
+  /** 同じパスの後のエントリーに隠されたエントリー */
+  private static final byte FLAG_SHADOWED = 8;
+
+  private final String[] paths;
+  /** 葉は値、配列は要素のエントリー番号の int[]、オブジェクトは null */
+  private final Object[] values;
+  /** 部分木の直後のエントリー番号 */
+  private final int[] ends;
+  private final byte[] kinds;
+  /** エントリー番号 + 1。 0 は空きスロット */
+  private final int[] slots;
+  private final int mask;
+  /** keys() に含めるエントリー番号（先行順） */
+  private final int[] keyed;
+  private final Set<String> keys = new KeySet();
+
+  private FlatJsonIndex(String[] paths, Object[] values, int[] ends, byte[] kinds, int size) {
+    this.paths = Arrays.copyOf(paths, size);
+    this.values = Arrays.copyOf(values, size);
+    this.ends = Arrays.copyOf(ends, size);
+    this.kinds = Arrays.copyOf(kinds, size);
+    this.slots = new int[Integer.highestOneBit(Math.max(size, 2) * 2 - 1) << 1];
+    this.mask = this.slots.length - 1;
+    int keyCount = 0;
+    for (int i = 1; i < size; i++) {
+      int slot = slot(this.paths[i].hashCode(), this.mask);
+      int current;
+      while ((current = this.slots[slot]) != 0
+          && !this.paths[current - 1].equals(this.paths[i])) {
+        slot = (slot + 1) & this.mask;
+      }
+      if (current != 0) {
+        this.kinds[current - 1] |= FLAG_SHADOWED;
+        if ((this.kinds[current - 1] & FLAG_KEYED) != 0) {
+          keyCount--;
+        }
+      }
+      this.slots[slot] = i + 1;
+      if ((this.kinds[i] & FLAG_KEYED) != 0) {
+        keyCount++;
+      }
+    }
+    this.keyed = new int[keyCount];
+    for (int i = 1, k = 0; i < size; i++) {
+      if ((this.kinds[i] & (FLAG_KEYED | FLAG_SHADOWED)) == FLAG_KEYED) {
+        this.keyed[k++] = i;
+      }
+    }
+  }
+
+  /**
+   * path の値。 葉はその値、オブジェクト／配列はビュー。 なければ null。
+   */
+  Object get(String path) {
+    int entry = this.find(path);
+    return entry >= 0 ? this.value(entry) : null;
+  }
+
+  boolean containsKey(String path) {
+    return this.find(path) >= 0;
+  }
+
+  /** 根のオブジェクトのビュー */
+  Map<String, Object> root() {
+    return new MapView(0);
+  }
+
+  /** 葉および配列内の非オブジェクト要素のパス。 変更不可 */
+  Set<String> keys() {
+    return this.keys;
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private int find(String path) {
+    int slot = slot(path.hashCode(), this.mask);
+    int current;
+    while ((current = this.slots[slot]) != 0) {
+      String candidate = this.paths[current - 1];
+      if (candidate == path || candidate.equals(path)) {
+        return current - 1;
+      }
+      slot = (slot + 1) & this.mask;
+    }
+    return -1;
+  }
+
+  private Object value(int entry) {
+    return switch (this.kinds[entry] & KIND_MASK) {
+      case OBJECT -> new MapView(entry);
+      case ARRAY -> new ListView((int[]) this.values[entry]);
+      default -> this.values[entry];
+    };
+  }
+
+  /** キーのハッシュからスロット位置を求める。 OpenHashIndex と同じく連番キーのクラスタを避けるため乗算で拡散する */
+  private static int slot(int hash, int mask) {
+    int h = hash * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * オブジェクトのエントリーを指すビュー。 子は部分木の範囲を ends で飛ばしながらたどる。
+   */
+  private final class MapView extends AbstractMap<String, Object> {
+
+    private final int entry;
+    /** 子のパスからフィールド名を取り出す位置 */
+    private final int nameStart;
+
+    MapView(int entry) {
+      this.entry = entry;
+      this.nameStart = entry == 0 ? 0 : FlatJsonIndex.this.paths[entry].length() + 1;
+    }
+
+    @Override
+    public Object get(Object key) {
+      int child = this.child(key);
+      return child >= 0 ? FlatJsonIndex.this.value(child) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return this.child(key) >= 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+          return new ChildIterator<>(MapView.this.entry) {
+            @Override
+            Map.Entry<String, Object> element(int child) {
+              return new SimpleImmutableEntry<>(
+                  FlatJsonIndex.this.paths[child].substring(MapView.this.nameStart),
+                  FlatJsonIndex.this.value(child));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          int size = 0;
+          for (Iterator<?> it = this.iterator(); it.hasNext(); it.next()) {
+            size++;
+          }
+          return size;
+        }
+      };
+    }
+
+    private int child(Object key) {
+      if (!(key instanceof String name)) {
+        return -1;
+      }
+      int length = this.nameStart + name.length();
+      int[] ends = FlatJsonIndex.this.ends;
+      for (int i = this.entry + 1; i < ends[this.entry]; i = ends[i]) {
+        String path = FlatJsonIndex.this.paths[i];
+        if ((FlatJsonIndex.this.kinds[i] & FLAG_SHADOWED) == 0 && path.length() == length
+            && path.startsWith(name, this.nameStart)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * 配列のエントリーを指すビュー。
+   */
+  private final class ListView extends AbstractList<Object> implements RandomAccess {
+
+    private final int[] elements;
+
+    ListView(int[] elements) {
+      this.elements = elements;
+    }
+
+    @Override
+    public Object get(int index) {
+      return FlatJsonIndex.this.value(this.elements[index]);
+    }
+
+    @Override
+    public int size() {
+      return this.elements.length;
+    }
+  }
+
+  /**
+   * entry の直接の子のうち、隠されていないものをたどる。
+   */
+  private abstract class ChildIterator<E> implements Iterator<E> {
+
+    private final int end;
+    private int next;
+
+    ChildIterator(int entry) {
+      this.end = FlatJsonIndex.this.ends[entry];
+      this.next = this.skipShadowed(entry + 1);
+    }
+
+    abstract E element(int child);
+
+    @Override
+    public boolean hasNext() {
+      return this.next < this.end;
+    }
+
+    @Override
+    public E next() {
+      if (this.next >= this.end) {
+        throw new NoSuchElementException();
+      }
+      int current = this.next;
+      this.next = this.skipShadowed(FlatJsonIndex.this.ends[current]);
+      return this.element(current);
+    }
+
+    private int skipShadowed(int child) {
+      while (child < this.end && (FlatJsonIndex.this.kinds[child] & FLAG_SHADOWED) != 0) {
+        child = FlatJsonIndex.this.ends[child];
+      }
+      return child;
+    }
+  }
+
+  /**
+   * keyed を先行順にたどる変更不可の集合。 contains は索引で引く。
+   */
+  private final class KeySet extends AbstractSet<String> {
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof String path)) {
+        return false;
+      }
+      int entry = FlatJsonIndex.this.find(path);
+      return entry >= 0 && (FlatJsonIndex.this.kinds[entry] & FLAG_KEYED) != 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<>() {
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+          return this.next < FlatJsonIndex.this.keyed.length;
+        }
+
+        @Override
+        public String next() {
+          if (!this.hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return FlatJsonIndex.this.paths[FlatJsonIndex.this.keyed[this.next++]];
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return FlatJsonIndex.this.keyed.length;
+    }
+  }
+
+  /**
+   * 先行順にエントリーを追加して FlatJsonIndex を組み立てる。 start / end でオブジェクト／配列を開閉し、その間に子を追加する。
+   * 最初に根のオブジェクトを start("", OBJECT, false) で開く。
+   */
+  static final class Builder {
+
+    private String[] paths;
+    private Object[] values;
+    private int[] ends;
+    private byte[] kinds;
+    private int size;
+    private int[] open = new int[16];
+    private int depth;
+
+    Builder(int expectedSize) {
+      int capacity = Math.max(expectedSize, 16);
+      this.paths = new String[capacity];
+      this.values = new Object[capacity];
+      this.ends = new int[capacity];
+      this.kinds = new byte[capacity];
+    }
+
+    /** 葉の値を追加する。 keyed が false の場合は keys() に含めない */
+    void leaf(String path, Object value, boolean keyed) {
+      int entry = this.append(path, LEAF, keyed);
+      this.values[entry] = value;
+      this.ends[entry] = entry + 1;
+    }
+
+    /** オブジェクト／配列を開く。 keyed は配列内の配列のように要素自身をキーとする場合に指定する */
+    void start(String path, byte kind, boolean keyed) {
+      int entry = this.append(path, kind, keyed);
+      if (this.depth == this.open.length) {
+        this.open = Arrays.copyOf(this.open, this.depth * 2);
+      }
+      this.open[this.depth++] = entry;
+    }
+
+    /** 直近に開いたオブジェクト／配列を閉じる */
+    void end() {
+      int entry = this.open[--this.depth];
+      this.ends[entry] = this.size;
+      if ((this.kinds[entry] & KIND_MASK) == ARRAY) {
+        int count = 0;
+        for (int i = entry + 1; i < this.size; i = this.ends[i]) {
+          count++;
+        }
+        int[] elements = new int[count];
+        for (int i = entry + 1, k = 0; i < this.size; i = this.ends[i]) {
+          elements[k++] = i;
+        }
+        this.values[entry] = elements;
+      }
+    }
+
+    FlatJsonIndex build() {
+      if (this.depth != 0 || this.size == 0) {
+        throw new IllegalStateException("Unbalanced start/end");
+      }
+      return new FlatJsonIndex(this.paths, this.values, this.ends, this.kinds, this.size);
+    }
+
+    private int append(String path, byte kind, boolean keyed) {
+      if (this.size == this.paths.length) {
+        int capacity = this.size * 2;
+        this.paths = Arrays.copyOf(this.paths, capacity);
+        this.values = Arrays.copyOf(this.values, capacity);
+        this.ends = Arrays.copyOf(this.ends, capacity);
+        this.kinds = Arrays.copyOf(this.kinds, capacity);
+      }
+      int entry = this.size++;
+      this.paths[entry] = path;
+      this.kinds[entry] = keyed ? (byte) (kind | FLAG_KEYED) : kind;
+      return entry;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package com.ren130302.config.source.json;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.AbstractConfigSource;
+import com.ren130302.config.source.KeyPath;
+import com.ren130302.config.source.KeyPathResolvers;
+
+/**
+ * JSON ツリーをドット区切りのフルパスで平坦化した読み取り専用の ConfigSource。 葉の値は構築時に変換済みで、パスから葉への
+ * 平坦な表（FlatJsonIndex）のみを保持する。 オブジェクト／配列は表の範囲を指す変更不可のビューとして参照時に作るため、葉の
+ * 読み出しは 1 回のハッシュ探索のみで新たなオブジェクトを生成しない。
+ */
+public final class IndexedJsonConfigSource extends AbstractConfigSource<Map<String, Object>> {
+
+  private final FlatJsonIndex index;
+
+  private IndexedJsonConfigSource(FlatJsonIndex index) {
+    super(index.root(), KeyPathResolvers.DOT);
+    this.index = index;
+  }
+
+  /**
+   * ObjectNode を平坦化して作成する。 ノードはコピーされるため、以降の ObjectNode の変更は反映されない。
+   */
+  public static IndexedJsonConfigSource of(ObjectNode root) {
+    Builder builder = new Builder(root.size() * 4);
+    builder.flatten("", root, true);
+    return builder.build();
+  }
+
+  @Override
+  public Object getRaw(String key) {
+    return this.index.get(this.compile(key).key());
+  }
+
+  @Override
+  public Object getRaw(KeyPath path) {
+    return this.index.get(path.key());
+  }
+
+  @Override
+  public boolean getBoolean(KeyPath path, boolean defaultValue) {
+    return toBoolean(this.index.get(path.key()), defaultValue);
+  }
+
+  @Override
+  public int getInt(KeyPath path, int defaultValue) {
+    return toInt(this.index.get(path.key()), defaultValue);
+  }
+
+  @Override
+  public long getLong(KeyPath path, long defaultValue) {
+    return toLong(this.index.get(path.key()), defaultValue);
+  }
+
+  @Override
+  public double getDouble(KeyPath path, double defaultValue) {
+    return toDouble(this.index.get(path.key()), defaultValue);
+  }
+
+  @Override
+  public Object getRaw(String key, Object defaultValue) {
+    Object value = this.getRaw(key);
+    return value != null ? value : defaultValue;
+  }
+
+  @Override
+  public void setRaw(String key, Object value) {
+    throw new UnsupportedOperationException("IndexedJsonConfigSource is read-only");
+  }
+
+  @Override
+  public Set<String> keys() {
+    return this.index.keys();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <E> List<E> getList(String key, Class<E> elementType) {
+    Object raw = this.getRaw(this.compile(key));
+    if (raw instanceof List<?> list && allInstances(list, elementType)) {
+      return (List<E>) list;
+    }
+    return super.getList(key, elementType);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <K, V> Map<K, V> getMap(String key, Class<K> keyType, Class<V> valueType) {
+    Object raw = this.getRaw(this.compile(key));
+    if (raw instanceof Map<?, ?> map && keyType.isAssignableFrom(String.class)
+        && allInstances(map.values(), valueType)) {
+      return (Map<K, V>) map;
+    }
+    return super.getMap(key, keyType, valueType);
+  }
+
+  /**
+   * 読み取り専用のため自身を返す。
+   */
+  @Override
+  public IndexedJsonConfigSource snapshot() {
+    return this;
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private static boolean allInstances(Iterable<?> values, Class<?> type) {
+    for (Object value : values) {
+      if (value == null || !type.isInstance(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 平坦化した表を先行順に組み立てる。 キー集合は JsonConfigSource#keys() と同じ規則（葉および配列内の非オブジェクト要素）で登録する。
+   */
+  static final class Builder {
+
+    private final FlatJsonIndex.Builder index;
+
+    Builder(int expectedSize) {
+      this.index = new FlatJsonIndex.Builder(expectedSize);
+      this.index.start("", FlatJsonIndex.OBJECT, false);
+    }
+
+    /** 葉の値を登録する。 keyed が false の場合は keys() に含めない */
+    void leaf(String path, Object value, boolean keyed) {
+      this.index.leaf(path, value, keyed);
+    }
+
+    /** オブジェクトを開く */
+    void startObject(String path) {
+      this.index.start(path, FlatJsonIndex.OBJECT, false);
+    }
+
+    /** 配列を開く。 配列内の配列は要素自身をキーとするため keyed を指定する */
+    void startArray(String path, boolean keyed) {
+      this.index.start(path, FlatJsonIndex.ARRAY, keyed);
+    }
+
+    /** 直近に開いたオブジェクト／配列を閉じる */
+    void end() {
+      this.index.end();
+    }
+
+    IndexedJsonConfigSource build() {
+      this.index.end();
+      return new IndexedJsonConfigSource(this.index.build());
+    }
+
+    void flatten(String path, JsonNode node, boolean keyed) {
+      if (node.isObject()) {
+        if (!path.isEmpty()) {
+          this.startObject(path);
+        }
+        node.fields().forEachRemaining(e -> {
+          String childPath = path.isEmpty() ? e.getKey() : path + "." + e.getKey();
+          this.flatten(childPath, e.getValue(), keyed);
+        });
+        if (!path.isEmpty()) {
+          this.end();
+        }
+        return;
+      }
+      if (node.isArray()) {
+        this.startArray(path, false);
+        this.flattenElements(path, node, keyed);
+        this.end();
+        return;
+      }
+      this.leaf(path, JsonValues.leaf(node), keyed);
+    }
+
+    private void flattenElements(String path, JsonNode array, boolean keyed) {
+      for (int i = 0; i < array.size(); i++) {
+        JsonNode elem = array.get(i);
+        String elemPath = path + "." + i;
+        if (elem.isArray()) {
+          // 配列内の配列は要素自身がキーとなり、その子はキーとして展開しない
+          this.startArray(elemPath, keyed);
+          this.flattenElements(elemPath, elem, false);
+          this.end();
+        } else {
+          this.flatten(elemPath, elem, keyed);
+        }
+      }
+    }
+  }
+}
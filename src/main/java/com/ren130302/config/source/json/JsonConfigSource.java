@@ -1,30 +1,147 @@
 package com.ren130302.config.source.json;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.convert.ConverterRegistry;
 import com.ren130302.config.source.AbstractConfigSource;
+import com.ren130302.config.source.KeyIndex;
+import com.ren130302.config.source.KeyPath;
 import com.ren130302.config.source.KeyPathResolvers;
 
+/**
+ * ObjectNode のツリーを保持する ConfigSource。 書き込みはルートから書き込み先までの経路のオブジェクト／配列を浅くコピーした
+ * 新しいツリーを作り、完成したルートを 1 回の volatile 書き込みで公開する（コピーオンライト）。 公開済みのノードは以降変更
+ * されないため、読み出しはロックを取らずに公開済みのいずれかの版を一貫して参照し、snapshot() は現在のルートを共有する読み取り
+ * 専用のソースを O(1) で返す。 getRaw などが返すビューも、作成時点の版を参照し続ける。
+ * <p>
+ * 書き込みのコストは経路上の各ノードの子の数に比例する。 update は 1 つのトランザクション内でコピー済みのノードを再利用する。
+ * 渡した ObjectNode はコピーせずに最初の版として共有するため、呼び出し側で変更しないこと。
+ */
 public class JsonConfigSource extends AbstractConfigSource<ObjectNode> {
 
+  private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
   private final ObjectMapper mapper = new ObjectMapper();
+  private final KeyIndex keyIndex = new KeyIndex(() -> this.collectKeys("", this.root));
+  /** 公開済みの現在のルート */
+  private volatile ObjectNode root;
+  private final boolean readOnly;
+  /** 書き込み同士を直列化する。 読み出しは取らない */
+  private final Object writeLock = new Object();
 
   public JsonConfigSource(ObjectNode root) {
+    this(root, false);
+  }
+
+  private JsonConfigSource(ObjectNode root, boolean readOnly) {
     super(root, KeyPathResolvers.DOT);
+    this.root = root;
+    this.readOnly = readOnly;
+  }
+
+  /**
+   * 現在の版のルート。 以降の書き込みは別のルートとして公開されるため、返すノードは変更しないこと。
+   */
+  @Override
+  public ObjectNode source() {
+    return this.root;
   }
 
   @Override
   public Object getRaw(String key) {
-    JsonNode node = this.getNodeByPath(this.keyPathResolver.normalizeKey(key));
-    return this.convertJsonNode(node);
+    return this.getRaw(this.compile(key));
+  }
+
+  @Override
+  public Object getRaw(KeyPath path) {
+    return JsonValues.value(this.getNodeByPath(path));
+  }
+
+  /**
+   * paths を順に探索し、直前のパスと共通する接頭辞までのノードを再利用する。 関連するキーを並べて渡すと探索を共有できる。
+   */
+  @Override
+  public Object[] getAll(KeyPath... paths) {
+    return this.readConsistent(() -> this.readAll(paths));
+  }
+
+  @Override
+  public boolean getBoolean(KeyPath path, boolean defaultValue) {
+    JsonNode node = this.getNodeByPath(path);
+    if (node == null || node.isNull()) {
+      return defaultValue;
+    }
+    return node.isBoolean() ? node.booleanValue() : Boolean.parseBoolean(node.asText());
+  }
+
+  @Override
+  public int getInt(KeyPath path, int defaultValue) {
+    JsonNode node = this.getNodeByPath(path);
+    if (node == null || node.isNull()) {
+      return defaultValue;
+    }
+    return node.isIntegralNumber() && node.canConvertToInt() ? node.intValue()
+        : Integer.parseInt(node.asText());
+  }
+
+  @Override
+  public long getLong(KeyPath path, long defaultValue) {
+    JsonNode node = this.getNodeByPath(path);
+    if (node == null || node.isNull()) {
+      return defaultValue;
+    }
+    return node.isIntegralNumber() && node.canConvertToLong() ? node.longValue()
+        : Long.parseLong(node.asText());
+  }
+
+  @Override
+  public double getDouble(KeyPath path, double defaultValue) {
+    JsonNode node = this.getNodeByPath(path);
+    if (node == null || node.isNull()) {
+      return defaultValue;
+    }
+    return node.isNumber() ? node.doubleValue() : Double.parseDouble(node.asText());
+  }
+
+  /**
+   * 配列を ArrayNode を参照するビューとして返す。 要素はアクセス時に elementType に変換し、配列はコピーしない。
+   */
+  @Override
+  public <E> List<E> getList(String key, Class<E> elementType) {
+    JsonNode node = this.getNodeByPath(this.compile(key));
+    if (node instanceof ArrayNode array && hasNoNulls(array)) {
+      return new JsonListView<>(array, converter(elementType));
+    }
+    return super.getList(key, elementType);
+  }
+
+  /**
+   * オブジェクトを ObjectNode を参照するビューとして返す。 値はアクセス時に valueType に変換し、オブジェクトはコピーしない。
+   * キーの型が String 以外の場合はコピーを作る。
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <K, V> Map<K, V> getMap(String key, Class<K> keyType, Class<V> valueType) {
+    JsonNode node = this.getNodeByPath(this.compile(key));
+    if (node instanceof ObjectNode object && keyType.isAssignableFrom(String.class)) {
+      return (Map<K, V>) new JsonMapView<>(object, converter(valueType));
+    }
+    return super.getMap(key, keyType, valueType);
   }
 
   @Override
@@ -35,112 +152,478 @@ public class JsonConfigSource extends AbstractConfigSource<ObjectNode> {
 
   @Override
   public void setRaw(String key, Object value) {
-    String normalized = this.keyPathResolver.normalizeKey(key);
-    String[] parts = normalized.split("\\.");
-    ObjectNode current = this.source;
-
-    for (int i = 0; i < parts.length - 1; i++) {
-      JsonNode child = current.get(parts[i]);
-      if (!(child instanceof ObjectNode)) {
-        ObjectNode newNode = this.mapper.createObjectNode();
-        current.set(parts[i], newNode);
-        current = newNode;
-      } else {
-        current = (ObjectNode) child;
-      }
+    this.setRaw(this.compile(key), value);
+  }
+
+  @Override
+  public void setRaw(KeyPath path, Object value) {
+    this.checkWritable();
+    synchronized (this.writeLock) {
+      Edit edit = new Edit();
+      JsonNode[] nodes = new JsonNode[path.size()];
+      nodes[0] = edit.root;
+      edit.write(path, value, edit.parentNode(path, nodes, 0));
+      edit.commit();
     }
+    this.markChanged(path);
+  }
 
-    String last = parts[parts.length - 1];
-    if (value == null) {
-      current.remove(last);
-    } else {
-      current.set(last, this.mapper.valueToTree(value));
+  /**
+   * 変更を 1 回の走査で適用する。 キーをセグメント順に並べて兄弟のキーを隣接させ、直前のキーと共通する祖先のノードを再利用する。
+   * ルートからの探索は接頭辞ごとに 1 回で済む。 祖先と子孫のキーを同時に含む場合や、配列の要素を削除する（後続の要素の
+   * インデックスがずれる）場合は、適用順が結果を左右するため並べ替えない。
+   */
+  @Override
+  protected void applyUpdate(Map<KeyPath, Object> changes) {
+    this.checkWritable();
+    synchronized (this.writeLock) {
+      this.applyAll(changes);
     }
+    changes.keySet().forEach(this::markChanged);
+  }
+
+  private void applyAll(Map<KeyPath, Object> changes) {
+    List<Map.Entry<KeyPath, Object>> entries = new ArrayList<>(changes.entrySet());
+    entries.sort(Map.Entry.comparingByKey(JsonConfigSource::compareSegments));
+    for (int i = 0; i < entries.size(); i++) {
+      if ((i > 0 && isAncestor(entries.get(i - 1).getKey(), entries.get(i).getKey()))
+          || isIndexRemoval(entries.get(i))) {
+        entries = new ArrayList<>(changes.entrySet());
+        break;
+      }
+    }
+    int depth = 0;
+    for (KeyPath path : changes.keySet()) {
+      depth = Math.max(depth, path.size());
+    }
+    // nodes[i] は直前のパスの先頭 i セグメントが指すオブジェクトまたは配列（コピー済み）
+    Edit edit = new Edit();
+    JsonNode[] nodes = new JsonNode[depth];
+    nodes[0] = edit.root;
+    KeyPath previous = null;
+    for (Map.Entry<KeyPath, Object> entry : entries) {
+      KeyPath path = entry.getKey();
+      int level = previous == null ? 0
+          : Math.min(commonPrefix(previous, path), Math.min(previous.size(), path.size()) - 1);
+      edit.write(path, entry.getValue(), edit.parentNode(path, nodes, level));
+      previous = path;
+    }
+    edit.commit();
   }
 
   @Override
   public Set<String> keys() {
-    return this.collectKeys("", this.source);
+    return this.keyIndex.get();
+  }
+
+  /**
+   * prefix のノード以下のみを走査する。
+   */
+  @Override
+  public Set<String> keys(String prefix) {
+    KeyPath path = this.compile(prefix);
+    JsonNode node = this.getNodeByPath(path);
+    Set<String> result = new LinkedHashSet<>();
+    if (node != null && node.isContainerNode()) {
+      this.collectChildren(path.key(), node, result);
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  @Override
+  public int size(String prefix) {
+    JsonNode node = this.getNodeByPath(this.compile(prefix));
+    return node != null && node.isArray() ? node.size() : 0;
+  }
+
+  /**
+   * 配列ノードの index 番目の要素から、解析済みの subKey のセグメントを辿る。 キー文字列の組み立てやインデックスの解析は行わない。
+   */
+  @Override
+  public Object getAt(String prefix, int index, String subKey) {
+    JsonNode node = this.getNodeByPath(this.compile(prefix));
+    if (node == null || !node.isArray()) {
+      return null;
+    }
+    JsonNode current = node.get(index);
+    if (current != null && !subKey.isEmpty()) {
+      KeyPath path = this.compile(subKey);
+      for (int i = 0; i < path.size() && current != null; i++) {
+        current = child(current, path, i);
+      }
+    }
+    return JsonValues.value(current);
+  }
+
+  @Override
+  public boolean containsKey(KeyPath path) {
+    // keys() と同じ規則: 葉、または配列内の配列要素のみをキーとみなす
+    JsonNode parent = null;
+    JsonNode current = this.root;
+    for (int i = 0; i < path.size(); i++) {
+      if (current == null || (parent != null && parent.isArray() && current.isArray())) {
+        return false;
+      }
+      parent = current;
+      if (current.isArray()) {
+        current = path.isIndex(i) ? current.get(path.index(i)) : null;
+      } else {
+        current = current.get(path.segment(i));
+      }
+    }
+    if (current == null) {
+      return false;
+    }
+    return !current.isContainerNode() || (parent.isArray() && current.isArray());
+  }
+
+  /**
+   * 現在の版のルートを共有する読み取り専用のスナップショット。 公開済みのノードは変更されないため、コピーせずに O(1) で作成する。
+   * 平坦化した索引が必要な場合は IndexedJsonConfigSource#of(source()) を使う。
+   */
+  @Override
+  public JsonConfigSource snapshot() {
+    return this.readOnly ? this : new JsonConfigSource(this.root, true);
   }
 
   // ----------------- ヘルパーメソッド -----------------
 
-  private Set<String> collectKeys(String prefix, ObjectNode node) {
-    Set<String> result = new LinkedHashSet<>();
-    node.fields().forEachRemaining(entry -> {
-      String key = prefix.isEmpty() ? entry.getKey() : prefix + "." + entry.getKey();
-      JsonNode child = entry.getValue();
-      if (child.isObject()) {
-        result.addAll(this.collectKeys(key, (ObjectNode) child));
-      } else if (child.isArray()) {
-        ArrayNode arr = (ArrayNode) child;
-        for (int i = 0; i < arr.size(); i++) {
-          JsonNode elem = arr.get(i);
-          if (elem.isObject()) {
-            result.addAll(this.collectKeys(key + "." + i, (ObjectNode) elem));
-          } else {
-            result.add(key + "." + i);
-          }
+  private Object[] readAll(KeyPath... paths) {
+    Object[] values = new Object[paths.length];
+    int depth = 0;
+    for (KeyPath path : paths) {
+      depth = Math.max(depth, path.size());
+    }
+    // nodes[i] は直前のパスの先頭 i セグメントが指すノード
+    JsonNode[] nodes = new JsonNode[depth + 1];
+    nodes[0] = this.root;
+    KeyPath previous = null;
+    for (int index = 0; index < paths.length; index++) {
+      KeyPath path = paths[index];
+      int level = previous == null ? 0 : commonPrefix(previous, path);
+      JsonNode current = nodes[level];
+      for (int i = level; i < path.size(); i++) {
+        current = child(current, path, i);
+        nodes[i + 1] = current;
+      }
+      values[index] = JsonValues.value(current);
+      previous = path;
+    }
+    return values;
+  }
+
+  private void checkWritable() {
+    if (this.readOnly) {
+      throw new UnsupportedOperationException("Snapshot is read-only");
+    }
+  }
+
+  /**
+   * 1 回の書き込み（または 1 つの update）で作る新しい版。 経路上のノードは初回の変更時にコピーし、この版の中で作成・コピー
+   * したノードのみをその場で変更する。 キー索引の更新は commit でルートを公開した後に行い、公開前の版から索引を作り直さない。
+   */
+  private final class Edit {
+
+    /** この版で作成またはコピーしたノード */
+    private final Set<JsonNode> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+    /** 差分で追えるキーの変更。 true は追加、false は削除で、同じキーは最後の変更のみを残す */
+    private final Map<String, Boolean> keyChanges = new LinkedHashMap<>();
+    private boolean invalidate;
+    final ObjectNode root;
+
+    Edit() {
+      this.root = this.own(JsonConfigSource.this.root);
+    }
+
+    void commit() {
+      JsonConfigSource.this.root = this.root;
+      KeyIndex keyIndex = JsonConfigSource.this.keyIndex;
+      if (this.invalidate) {
+        keyIndex.invalidate();
+        return;
+      }
+      this.keyChanges.forEach((key, added) -> {
+        if (added) {
+          keyIndex.added(key);
+        } else {
+          keyIndex.removed(key);
+        }
+      });
+    }
+
+    /**
+     * parent の子として path に value を書き込む。 markChanged は呼び出し側で行う。
+     */
+    private void write(KeyPath path, Object value, JsonNode parent) {
+      int last = path.size() - 1;
+      JsonNode old;
+      boolean structural;
+      if (value == null) {
+        old = remove(parent, path, last);
+        structural = old != null && (old.isContainerNode() || parent.isArray());
+        if (!structural && old != null) {
+          this.keyChanges.put(path.key(), false);
         }
       } else {
-        result.add(key);
+        JsonNode node = JsonConfigSource.this.toNode(value);
+        old = put(parent, path, last, node);
+        structural = node.isContainerNode() || (old != null && old.isContainerNode());
+        if (!structural) {
+          this.keyChanges.put(path.key(), true);
+        }
       }
-    });
-    return result;
-  }
+      if (structural) {
+        this.invalidate = true;
+      }
+    }
 
-  private JsonNode getNodeByPath(String path) {
-    String[] parts = path.split("\\.");
-    JsonNode current = this.source;
-    for (String part : parts) {
-      if (current == null) {
-        return null;
+    /**
+     * path の親ノード。 nodes[level] から辿り、途中のノードがなければオブジェクトを作成し、途中の葉はオブジェクトで置き換える。
+     * 配列の下のセグメントは既存の要素または末尾の次の位置（追加）を指すこと。 配列はオブジェクトで置き換えない。
+     * 辿ったノードはこの版のコピーに置き換えて nodes に記録する。
+     */
+    private JsonNode parentNode(KeyPath path, JsonNode[] nodes, int level) {
+      JsonNode current = nodes[level];
+      for (int i = level; i < path.size() - 1; i++) {
+        JsonNode child = child(current, path, i);
+        if (child instanceof ArrayNode array) {
+          checkIndex(array, path, i + 1);
+        }
+        boolean descend = child instanceof ObjectNode || child instanceof ArrayNode;
+        if (descend && !this.owned.contains(child)) {
+          // 公開済みのノードは変更せず、コピーに置き換える
+          child = this.own(child);
+          put(current, path, i, child);
+        } else if (!descend) {
+          if (child != null) {
+            // 既存の葉をオブジェクトで置き換えるため差分では追えない
+            this.invalidate = true;
+          }
+          child = NODES.objectNode();
+          this.owned.add(child);
+          put(current, path, i, child);
+        }
+        current = child;
+        nodes[i + 1] = current;
       }
-      if (current.isArray()) {
-        int idx = Integer.parseInt(part);
-        current = current.get(idx);
+      return current;
+    }
+
+    /**
+     * node のこの版での複製。 この版で作成またはコピー済みであればそのまま返す。
+     */
+    @SuppressWarnings("unchecked")
+    private <N extends JsonNode> N own(N node) {
+      if (this.owned.contains(node)) {
+        return node;
+      }
+      JsonNode copy;
+      if (node instanceof ObjectNode object) {
+        copy = NODES.objectNode().setAll(object);
       } else {
-        current = current.get(part);
+        copy = NODES.arrayNode(node.size()).addAll((ArrayNode) node);
       }
+      this.owned.add(copy);
+      return (N) copy;
     }
-    return current;
   }
 
-  private Object convertJsonNode(JsonNode node) {
-    if (node == null || node.isNull()) {
+  /**
+   * container の path の i 番目のセグメントに node を置き、元のノードを返す。 配列では末尾の次の位置への書き込みは追加になる。
+   */
+  private static JsonNode put(JsonNode container, KeyPath path, int i, JsonNode node) {
+    if (container instanceof ArrayNode array) {
+      checkIndex(array, path, i);
+      int index = path.index(i);
+      if (index < array.size()) {
+        return array.set(index, node);
+      }
+      array.add(node);
       return null;
     }
-    if (node.isValueNode()) {
-      if (node.isTextual()) {
-        return node.asText();
+    return ((ObjectNode) container).replace(path.segment(i), node);
+  }
+
+  /**
+   * path の i 番目のセグメントが array の既存の要素または末尾の次の位置を指すことを確認する。
+   */
+  private static void checkIndex(ArrayNode array, KeyPath path, int i) {
+    if (!path.isIndex(i)) {
+      throw new IllegalArgumentException(
+          "Segment '" + path.segment(i) + "' of '" + path.key() + "' is not an array index");
+    }
+    if (path.index(i) > array.size()) {
+      throw new IndexOutOfBoundsException(
+          "Index " + path.index(i) + " out of bounds for length " + array.size() + ": " + path.key());
+    }
+  }
+
+  /**
+   * container から path の i 番目のセグメントを削除する。 配列の要素を削除すると後続の要素は前に詰められる。
+   */
+  private static JsonNode remove(JsonNode container, KeyPath path, int i) {
+    if (container instanceof ArrayNode array) {
+      return path.isIndex(i) && path.index(i) < array.size() ? array.remove(path.index(i)) : null;
+    }
+    return ((ObjectNode) container).remove(path.segment(i));
+  }
+
+  /**
+   * value を JsonNode に変換する。 スカラー・Map・Collection・配列は JsonNodeFactory で直接構築し、それ以外の型のみ
+   * ObjectMapper で直列化する。
+   */
+  private JsonNode toNode(Object value) {
+    return switch (value) {
+      case null -> NODES.nullNode();
+      case JsonNode node -> node.deepCopy();
+      case String text -> NODES.textNode(text);
+      case Integer number -> NODES.numberNode(number);
+      case Long number -> NODES.numberNode(number);
+      case Double number -> NODES.numberNode(number);
+      case Boolean bool -> NODES.booleanNode(bool);
+      case Float number -> NODES.numberNode(number);
+      case Short number -> NODES.numberNode(number);
+      case Byte number -> NODES.numberNode(number);
+      case BigDecimal number -> NODES.numberNode(number);
+      case BigInteger number -> NODES.numberNode(number);
+      case Character c -> NODES.textNode(c.toString());
+      case Map<?, ?> map when allStringKeys(map) -> {
+        ObjectNode object = NODES.objectNode();
+        map.forEach((k, v) -> object.set((String) k, this.toNode(v)));
+        yield object;
+      }
+      case Collection<?> collection -> {
+        ArrayNode array = NODES.arrayNode(collection.size());
+        collection.forEach(element -> array.add(this.toNode(element)));
+        yield array;
       }
-      if (node.isInt()) {
-        return node.asInt();
+      case Object[] elements -> {
+        ArrayNode array = NODES.arrayNode(elements.length);
+        for (Object element : elements) {
+          array.add(this.toNode(element));
+        }
+        yield array;
       }
-      if (node.isLong()) {
-        return node.asLong();
+      default -> this.mapper.valueToTree(value);
+    };
+  }
+
+  private static boolean allStringKeys(Map<?, ?> map) {
+    for (Object key : map.keySet()) {
+      if (!(key instanceof String)) {
+        return false;
       }
-      if (node.isDouble()) {
-        return node.asDouble();
+    }
+    return true;
+  }
+
+  /**
+   * セグメントごとの辞書順。 ただし両方が配列インデックスのセグメントは数値順にし、配列への追加を添字の順に適用する。
+   * 接頭辞のパスは子孫より前になるため、同じ祖先を持つキーが隣接する。
+   */
+  private static int compareSegments(KeyPath a, KeyPath b) {
+    int size = Math.min(a.size(), b.size());
+    for (int i = 0; i < size; i++) {
+      int c = a.isIndex(i) && b.isIndex(i) ? Integer.compare(a.index(i), b.index(i))
+          : a.segment(i).compareTo(b.segment(i));
+      if (c != 0) {
+        return c;
       }
-      if (node.isFloat()) {
-        return node.floatValue();
+    }
+    return Integer.compare(a.size(), b.size());
+  }
+
+  private static boolean isIndexRemoval(Map.Entry<KeyPath, Object> change) {
+    KeyPath path = change.getKey();
+    return change.getValue() == null && path.isIndex(path.size() - 1);
+  }
+
+  private static boolean isAncestor(KeyPath ancestor, KeyPath path) {
+    return ancestor.size() < path.size() && commonPrefix(ancestor, path) == ancestor.size();
+  }
+
+  private Set<String> collectKeys(String prefix, ObjectNode node) {
+    Set<String> result = new LinkedHashSet<>();
+    this.collectChildren(prefix, node, result);
+    return result;
+  }
+
+  /**
+   * コンテナノード node の子孫のキーを keys() の規則で result に追加する。 prefix は node のキー（ルートは空文字）。
+   */
+  private void collectChildren(String prefix, JsonNode node, Set<String> result) {
+    if (node.isArray()) {
+      ArrayNode arr = (ArrayNode) node;
+      for (int i = 0; i < arr.size(); i++) {
+        JsonNode elem = arr.get(i);
+        if (elem.isObject()) {
+          this.collectChildren(prefix + "." + i, elem, result);
+        } else {
+          result.add(prefix + "." + i);
+        }
       }
-      if (node.isBoolean()) {
-        return node.asBoolean();
+      return;
+    }
+    node.fields().forEachRemaining(entry -> {
+      String key = prefix.isEmpty() ? entry.getKey() : prefix + "." + entry.getKey();
+      JsonNode child = entry.getValue();
+      if (child.isContainerNode()) {
+        this.collectChildren(key, child, result);
+      } else {
+        result.add(key);
       }
-      return node.asText();
+    });
+  }
+
+  private JsonNode getNodeByPath(KeyPath path) {
+    JsonNode current = this.root;
+    for (int i = 0; i < path.size() && current != null; i++) {
+      current = child(current, path, i);
+    }
+    return current;
+  }
+
+  /**
+   * path の i 番目のセグメントが指す node の子。 配列の下ではインデックスのセグメントのみを辿る。
+   */
+  private static JsonNode child(JsonNode node, KeyPath path, int i) {
+    if (node == null) {
+      return null;
     }
     if (node.isArray()) {
-      List<Object> list = new ArrayList<>();
-      node.forEach(elem -> list.add(this.convertJsonNode(elem)));
-      return list;
+      return path.isIndex(i) ? node.get(path.index(i)) : null;
+    }
+    return node.get(path.segment(i));
+  }
+
+  private static int commonPrefix(KeyPath a, KeyPath b) {
+    int size = Math.min(a.size(), b.size());
+    int i = 0;
+    while (i < size && a.segment(i).equals(b.segment(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * array の要素に JSON の null がなければ true。 null の要素は getList で除外するため、ビューでは扱えない。
+   */
+  private static boolean hasNoNulls(ArrayNode array) {
+    for (JsonNode element : array) {
+      if (element.isNull()) {
+        return false;
+      }
     }
-    if (node.isObject()) {
-      Map<String, Object> map = new LinkedHashMap<>();
-      node.fields().forEachRemaining(e -> map.put(e.getKey(), this.convertJsonNode(e.getValue())));
-      return map;
+    return true;
+  }
+
+  private static <V> Function<JsonNode, V> converter(Class<V> type) {
+    if (type == Object.class) {
+      @SuppressWarnings("unchecked")
+      Function<JsonNode, V> raw = node -> (V) JsonValues.value(node);
+      return raw;
     }
-    return null;
+    ConverterRegistry converters = ConverterRegistry.defaults();
+    return node -> converters.convert(JsonValues.value(node), type);
   }
 }
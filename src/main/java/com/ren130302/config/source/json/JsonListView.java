@@ -0,0 +1,37 @@
+package com.ren130302.config.source.json;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.function.Function;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+/**
+ * ArrayNode を直接参照する読み取り専用の List。 要素は取り出すたびに変換し、配列全体のコピーは作らない。 JsonConfigSource の
+ * 公開済みのノードは変更されないため、ビューは作成時点の版を参照し続け、以降の書き込みを反映しない。
+ */
+final class JsonListView<E> extends AbstractList<E> implements RandomAccess {
+
+  private final ArrayNode node;
+  private final Function<JsonNode, E> element;
+
+  JsonListView(ArrayNode node, Function<JsonNode, E> element) {
+    this.node = node;
+    this.element = element;
+  }
+
+  @Override
+  public E get(int index) {
+    JsonNode child = this.node.get(index);
+    if (child == null) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length "
+          + this.node.size());
+    }
+    return this.element.apply(child);
+  }
+
+  @Override
+  public int size() {
+    return this.node.size();
+  }
+}
@@ -0,0 +1,82 @@
+package com.ren130302.config.source.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * ObjectNode を直接参照する読み取り専用の Map。 get / containsKey はノードのフィールドを 1 回探索し、値は取り出すたびに変換する。
+ * JsonConfigSource の公開済みのノードは変更されないため、ビューは作成時点の版を参照し続け、以降の書き込みを反映しない。
+ */
+final class JsonMapView<V> extends AbstractMap<String, V> {
+
+  private final ObjectNode node;
+  private final Function<JsonNode, V> value;
+  private Set<Entry<String, V>> entries;
+
+  JsonMapView(ObjectNode node, Function<JsonNode, V> value) {
+    this.node = node;
+    this.value = value;
+  }
+
+  @Override
+  public V get(Object key) {
+    if (!(key instanceof String name)) {
+      return null;
+    }
+    JsonNode child = this.node.get(name);
+    return child != null ? this.value.apply(child) : null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String name && this.node.has(name);
+  }
+
+  @Override
+  public int size() {
+    return this.node.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.node.isEmpty();
+  }
+
+  @Override
+  public Set<Entry<String, V>> entrySet() {
+    if (this.entries == null) {
+      this.entries = new AbstractSet<>() {
+        @Override
+        public Iterator<Entry<String, V>> iterator() {
+          Iterator<Map.Entry<String, JsonNode>> fields = JsonMapView.this.node.fields();
+          // fields() の remove でノードを変更させないよう、読み取りのみの Iterator で包む
+          return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+              return fields.hasNext();
+            }
+
+            @Override
+            public Entry<String, V> next() {
+              Map.Entry<String, JsonNode> field = fields.next();
+              return new SimpleImmutableEntry<>(field.getKey(),
+                  JsonMapView.this.value.apply(field.getValue()));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return JsonMapView.this.node.size();
+        }
+      };
+    }
+    return this.entries;
+  }
+}
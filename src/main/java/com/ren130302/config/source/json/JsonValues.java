@@ -0,0 +1,55 @@
+package com.ren130302.config.source.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * JSON の値ノードを Java の値に変換する共通処理。
+ */
+final class JsonValues {
+
+  private JsonValues() {} // インスタンス化禁止
+
+  /**
+   * node を Java の値に変換する。 オブジェクトは JsonMapView、配列は JsonListView として参照し、子孫はアクセス時に変換する。
+   * ビューはコピーを作らずに node を参照するため、node は変更されない（公開済みの版の）ノードであること。
+   */
+  static Object value(JsonNode node) {
+    if (node instanceof ObjectNode object) {
+      return new JsonMapView<>(object, JsonValues::value);
+    }
+    if (node instanceof ArrayNode array) {
+      return new JsonListView<>(array, JsonValues::value);
+    }
+    return leaf(node);
+  }
+
+  /**
+   * 値ノード（文字列・数値・真偽値・null）を変換する。
+   */
+  static Object leaf(JsonNode node) {
+    if (node == null || node.isNull()) {
+      return null;
+    }
+    if (node.isTextual()) {
+      return node.asText();
+    }
+    if (node.isInt()) {
+      return node.asInt();
+    }
+    if (node.isLong()) {
+      return node.asLong();
+    }
+    if (node.isDouble()) {
+      return node.asDouble();
+    }
+    if (node.isFloat()) {
+      return node.floatValue();
+    }
+    if (node.isBoolean()) {
+      return node.asBoolean();
+    }
+    return node.asText();
+  }
+}
@@ -0,0 +1,120 @@
+package com.ren130302.config.source.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * JsonParser のトークンを読みながら IndexedJsonConfigSource を構築するローダー。 ObjectNode のツリーも入れ子の Map / List
+ * も作らず、トークンごとにパスと葉の値を平坦な表へ追加するだけのため、読み込み中に保持するのは構築中の表と現在の入れ子の
+ * 経路のみで、読み込み時間は入力の大きさに比例する。
+ * <p>
+ * 結果は {@code IndexedJsonConfigSource.of(mapper.readTree(...))} と同じキー・値を持つ。
+ */
+public final class StreamingJsonLoader {
+
+  /** 設定のフィールド名は種類が多く再利用されないため、String#intern のコストを避ける */
+  private static final JsonFactory factory =
+      JsonFactory.builder().disable(JsonFactory.Feature.INTERN_FIELD_NAMES).build();
+  private static final int INITIAL_SIZE = 256;
+
+  private StreamingJsonLoader() {} // インスタンス化禁止
+
+  public static IndexedJsonConfigSource load(Path path) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      return load(in);
+    }
+  }
+
+  public static IndexedJsonConfigSource load(InputStream in) throws IOException {
+    try (JsonParser parser = factory.createParser(in)) {
+      return read(parser);
+    }
+  }
+
+  public static IndexedJsonConfigSource parse(String json) throws IOException {
+    try (JsonParser parser = factory.createParser(json)) {
+      return read(parser);
+    }
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private static IndexedJsonConfigSource read(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new IOException("JSON root must be an object");
+    }
+    IndexedJsonConfigSource.Builder builder = new IndexedJsonConfigSource.Builder(INITIAL_SIZE);
+    readFields(builder, parser, "", true);
+    return builder.build();
+  }
+
+  /**
+   * 現在のトークンから始まる値を読み、builder に登録する。 規則は IndexedJsonConfigSource.Builder#flatten と同じ。
+   */
+  private static void readValue(IndexedJsonConfigSource.Builder builder, JsonParser parser,
+      String path, boolean keyed) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.START_OBJECT) {
+      builder.startObject(path);
+      readFields(builder, parser, path, keyed);
+      builder.end();
+      return;
+    }
+    if (token == JsonToken.START_ARRAY) {
+      builder.startArray(path, false);
+      readElements(builder, parser, path, keyed);
+      builder.end();
+      return;
+    }
+    builder.leaf(path, scalar(parser, token), keyed);
+  }
+
+  private static void readFields(IndexedJsonConfigSource.Builder builder, JsonParser parser,
+      String path, boolean keyed) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      parser.nextToken();
+      readValue(builder, parser, path.isEmpty() ? name : path + "." + name, keyed);
+    }
+  }
+
+  private static void readElements(IndexedJsonConfigSource.Builder builder, JsonParser parser,
+      String path, boolean keyed) throws IOException {
+    for (int i = 0; parser.nextToken() != JsonToken.END_ARRAY; i++) {
+      String elemPath = path + "." + i;
+      if (parser.currentToken() == JsonToken.START_ARRAY) {
+        // 配列内の配列は要素自身がキーとなり、その子はキーとして展開しない
+        builder.startArray(elemPath, keyed);
+        readElements(builder, parser, elemPath, false);
+        builder.end();
+      } else {
+        readValue(builder, parser, elemPath, keyed);
+      }
+    }
+  }
+
+  /**
+   * JsonValues#leaf と同じ型に変換する。 ObjectMapper の既定どおり小数は double、範囲外の整数は文字列とする。
+   */
+  private static Object scalar(JsonParser parser, JsonToken token) throws IOException {
+    return switch (token) {
+      case VALUE_STRING -> parser.getText();
+      case VALUE_NUMBER_INT -> switch (parser.getNumberType()) {
+        case INT -> parser.getIntValue();
+        case LONG -> parser.getLongValue();
+        default -> parser.getText();
+      };
+      case VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+      case VALUE_TRUE -> Boolean.TRUE;
+      case VALUE_FALSE -> Boolean.FALSE;
+      case VALUE_NULL -> null;
+      default -> throw new IOException(
+          "Unexpected JSON token " + token + " at " + parser.currentLocation());
+    };
+  }
+}
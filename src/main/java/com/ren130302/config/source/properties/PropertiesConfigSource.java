@@ -1,16 +1,30 @@
 package com.ren130302.config.source.properties;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedHashSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import com.ren130302.config.convert.ConverterRegistry;
 import com.ren130302.config.source.AbstractConfigSource;
+import com.ren130302.config.source.KeyIndex;
+import com.ren130302.config.source.KeyPath;
 
 public class PropertiesConfigSource extends AbstractConfigSource<Properties> {
 
+  /** 1 つのキーについて要素の型ごとに保持する解析済みコレクションの上限 */
+  private static final int MAX_COLLECTION_TYPES = 4;
+
+  private final KeyIndex keyIndex = KeyIndex.sorted(() -> this.source.stringPropertyNames());
+  private final Map<String, ParsedValue> parsedValues = new ConcurrentHashMap<>();
+  /** キーごとの解析済みコレクション。 要素の型ごとに 1 件、新しいものから順に MAX_COLLECTION_TYPES 件まで */
+  private final Map<String, ParsedCollection[]> parsedCollections = new ConcurrentHashMap<>();
+  private final Map<String, ArrayIndex> arrays = new ConcurrentHashMap<>();
+
   public PropertiesConfigSource(Properties properties) {
     super(properties, com.ren130302.config.source.KeyPathResolvers.DOT);
   }
@@ -27,78 +41,283 @@ public class PropertiesConfigSource extends AbstractConfigSource<Properties> {
 
   @Override
   public void setRaw(String key, Object value) {
+    this.parsedValues.remove(key);
+    this.parsedCollections.remove(key);
     if (value == null) {
       this.source.remove(key);
+      this.keyIndex.removed(key);
     } else {
       this.source.setProperty(key, value.toString());
+      this.keyIndex.added(key);
     }
+    this.markChanged(this.compile(key));
   }
 
   @Override
   public Set<String> keys() {
-    return this.source.stringPropertyNames().stream().collect(Collectors.toSet());
+    return this.keyIndex.get();
   }
 
+  /**
+   * 辞書順のキー索引から prefix. で始まる範囲を返す。
+   */
+  @Override
+  public Set<String> keys(String prefix) {
+    return this.keyIndex.subtree(this.compile(prefix).key());
+  }
+
+  @Override
+  public boolean getBoolean(KeyPath path, boolean defaultValue) {
+    ParsedValue parsed = this.parsed(path.key(), ParsedValue.BOOLEAN);
+    return parsed != null ? parsed.bits() != 0L : defaultValue;
+  }
+
+  @Override
+  public int getInt(KeyPath path, int defaultValue) {
+    ParsedValue parsed = this.parsed(path.key(), ParsedValue.INT);
+    return parsed != null ? (int) parsed.bits() : defaultValue;
+  }
+
+  @Override
+  public long getLong(KeyPath path, long defaultValue) {
+    ParsedValue parsed = this.parsed(path.key(), ParsedValue.LONG);
+    return parsed != null ? parsed.bits() : defaultValue;
+  }
+
+  @Override
+  public double getDouble(KeyPath path, double defaultValue) {
+    ParsedValue parsed = this.parsed(path.key(), ParsedValue.DOUBLE);
+    return parsed != null ? Double.longBitsToDouble(parsed.bits()) : defaultValue;
+  }
+
+  @Override
+  public boolean containsKey(KeyPath path) {
+    return this.source.getProperty(path.key()) != null;
+  }
+
+  /**
+   * カンマ区切りの値を要素の型に変換した変更不可の List。 (key, elementType) ごとに解析結果をキャッシュし、元の文字列が同一
+   * インスタンスである限り分割・変換をやり直さない。
+   */
   @Override
   @SuppressWarnings("unchecked")
   public <E> List<E> getList(String key, Class<E> elementType) {
-    Object raw = this.getRaw(this.keyPathResolver.normalizeKey(key));
+    String normalized = this.compile(key).key();
+    Object raw = this.getRaw(normalized);
     if (raw == null) {
       return List.of();
     }
-
-    List<String> items;
-    if (raw instanceof String str) {
-      items = Arrays.stream(str.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
-    } else if (raw instanceof Collection<?> collection) {
-      items = collection.stream().map(Object::toString).toList();
-    } else {
-      throw new ClassCastException(
-          "Expected String or Collection but found " + raw.getClass().getSimpleName());
+    if (raw instanceof String text) {
+      return (List<E>) this.parsedCollection(normalized, text, elementType).list();
     }
+    if (raw instanceof Collection<?> collection) {
+      return (List<E>) parseList(collection.stream().map(Object::toString).toList(), elementType);
+    }
+    throw new ClassCastException(
+        "Expected String or Collection but found " + raw.getClass().getSimpleName());
+  }
 
-    if (elementType == String.class) {
-      return (List<E>) items;
+  /**
+   * getList と同じ要素の変更不可の Set。 Set.copyOf によるハッシュ表のため、contains は割り当てなしで探索する。
+   * 要素の順序は保持しない。 Set は初回の getSet で作成し、解析済みの List と共にキャッシュする。
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <E> Set<E> getSet(String key, Class<E> elementType) {
+    String normalized = this.compile(key).key();
+    Object raw = this.getRaw(normalized);
+    if (raw instanceof String text) {
+      return (Set<E>) this.parsedCollection(normalized, text, elementType).set();
     }
-    return items.stream().map(s -> this.convertString(s, elementType)).toList();
+    return Set.copyOf(this.getList(normalized, elementType));
   }
 
+  /**
+   * prefix.0, prefix.1, ... のキーで表される配列の要素数。 そのようなキーがなく prefix の値があれば、カンマ区切りの要素数。
+   */
+  @Override
+  public int size(String prefix) {
+    KeyPath path = this.compile(prefix);
+    ArrayIndex array = this.arrayIndex(path);
+    if (array.elements().isEmpty() && this.source.getProperty(path.key()) != null) {
+      return this.getList(path.key(), String.class).size();
+    }
+    return array.elements().size();
+  }
 
+  /**
+   * prefix 以下の配列の索引から、index 番目の要素の subKey に対応するキーを引く。 索引は prefix の version が変わるまで
+   * 再利用するため、要素ごとのキー文字列の組み立てやインデックスの解析は行わない。
+   */
   @Override
-  public <E> Set<E> getSet(String key, Class<E> elementType) {
-    List<E> list = this.getList(key, elementType);
-    return new LinkedHashSet<>(list);
+  public Object getAt(String prefix, int index, String subKey) {
+    KeyPath path = this.compile(prefix);
+    List<Map<String, String>> elements = this.arrayIndex(path).elements();
+    if (index < 0) {
+      return null;
+    }
+    if (elements.isEmpty()) {
+      if (!subKey.isEmpty()) {
+        return null;
+      }
+      List<String> items = this.getList(path.key(), String.class);
+      return index < items.size() ? items.get(index) : null;
+    }
+    if (index >= elements.size()) {
+      return null;
+    }
+    String key = elements.get(index).get(subKey.isEmpty() ? "" : this.compile(subKey).key());
+    return key != null ? this.source.getProperty(key) : null;
   }
 
   /**
-   * String を指定型に変換
+   * キーごとに解析済みのプリミティブ値を返す。 元の文字列が同一インスタンスである限りキャッシュを使う。
    */
-  @SuppressWarnings("unchecked")
-  private <E> E convertString(String str, Class<E> type) {
-    if (type == String.class) {
-      return (E) str;
+  private ParsedValue parsed(String key, byte kind) {
+    String text = this.source.getProperty(key);
+    if (text == null) {
+      return null;
     }
-    if (type == Integer.class) {
-      return (E) Integer.valueOf(str);
+    ParsedValue parsed = this.parsedValues.get(key);
+    if (parsed != null && parsed.text() == text && parsed.kind() == kind) {
+      return parsed;
     }
-    if (type == Long.class) {
-      return (E) Long.valueOf(str);
+    parsed = ParsedValue.parse(text, kind);
+    this.parsedValues.put(key, parsed);
+    return parsed;
+  }
+
+  /**
+   * (key, elementType) ごとの解析済みコレクション。 元の文字列が同一インスタンスである限りキャッシュを使う。
+   */
+  private ParsedCollection parsedCollection(String key, String text, Class<?> elementType) {
+    ParsedCollection[] cached = this.parsedCollections.get(key);
+    if (cached != null) {
+      for (ParsedCollection parsed : cached) {
+        if (parsed.text() == text && parsed.elementType() == elementType) {
+          return parsed;
+        }
+      }
     }
-    if (type == Boolean.class) {
-      return (E) Boolean.valueOf(str);
+    List<String> items =
+        Arrays.stream(text.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    ParsedCollection parsed = new ParsedCollection(text, elementType, parseList(items, elementType));
+    int length = cached != null ? Math.min(cached.length + 1, MAX_COLLECTION_TYPES) : 1;
+    ParsedCollection[] next = new ParsedCollection[length];
+    next[0] = parsed;
+    int size = 1;
+    for (int i = 0; cached != null && i < cached.length && size < length; i++) {
+      // 同じ型の古い結果（元の文字列が変わったもの）は除く
+      if (cached[i].elementType() != elementType) {
+        next[size++] = cached[i];
+      }
     }
-    if (type == Double.class) {
-      return (E) Double.valueOf(str);
+    this.parsedCollections.put(key, size == length ? next : Arrays.copyOf(next, size));
+    return parsed;
+  }
+
+  /**
+   * path 以下の配列の索引。 path の version が索引の構築時と同じであれば再利用する。
+   */
+  private ArrayIndex arrayIndex(KeyPath path) {
+    long version = this.version(path.key());
+    ArrayIndex array = this.arrays.get(path.key());
+    if (array != null && array.version() == version) {
+      return array;
     }
-    if (type == Float.class) {
-      return (E) Float.valueOf(str);
+    int depth = path.size();
+    List<Map<String, String>> elements = new ArrayList<>();
+    for (String key : this.keyIndex.subtree(path.key())) {
+      KeyPath child = this.compile(key);
+      if (!child.isIndex(depth)) {
+        continue;
+      }
+      int index = child.index(depth);
+      while (elements.size() <= index) {
+        elements.add(new HashMap<>());
+      }
+      // prefix.N 自身は ""、prefix.N.sub は "sub" で引けるようにする
+      String element = path.key() + "." + child.segment(depth);
+      String subKey = key.length() == element.length() ? "" : key.substring(element.length() + 1);
+      elements.get(index).put(subKey, key);
     }
-    if (type == Short.class) {
-      return (E) Short.valueOf(str);
+    array = new ArrayIndex(version, elements);
+    this.arrays.put(path.key(), array);
+    return array;
+  }
+
+  private static List<?> parseList(List<String> items, Class<?> elementType) {
+    if (elementType == String.class) {
+      return items;
     }
-    if (type == Byte.class) {
-      return (E) Byte.valueOf(str);
+    ConverterRegistry converters = ConverterRegistry.defaults();
+    return items.stream().map(s -> converters.convert(s, elementType)).toList();
+  }
+
+  /**
+   * 配列の索引。 elements.get(i) は i 番目の要素の相対キーから完全なキーへの対応。
+   */
+  private record ArrayIndex(long version, List<Map<String, String>> elements) {
+  }
+
+  /**
+   * 解析済みのコレクション。 set は list と同じ要素を持ち、初回の参照時に作成する。
+   */
+  private static final class ParsedCollection {
+
+    private final String text;
+    private final Class<?> elementType;
+    private final List<?> list;
+    private volatile Set<?> set;
+
+    ParsedCollection(String text, Class<?> elementType, List<?> list) {
+      this.text = text;
+      this.elementType = elementType;
+      this.list = list;
+    }
+
+    String text() {
+      return this.text;
+    }
+
+    Class<?> elementType() {
+      return this.elementType;
+    }
+
+    List<?> list() {
+      return this.list;
+    }
+
+    Set<?> set() {
+      Set<?> current = this.set;
+      if (current == null) {
+        // 並行して作成しても内容は同じため、同期しない
+        current = Set.copyOf(this.list);
+        this.set = current;
+      }
+      return current;
+    }
+  }
+
+  /**
+   * 解析済みの値。 int / long / boolean はそのまま、double は IEEE 754 のビット列として bits に保持する。
+   */
+  private record ParsedValue(String text, byte kind, long bits) {
+
+    static final byte BOOLEAN = 0;
+    static final byte INT = 1;
+    static final byte LONG = 2;
+    static final byte DOUBLE = 3;
+
+    static ParsedValue parse(String text, byte kind) {
+      long bits = switch (kind) {
+        case BOOLEAN -> Boolean.parseBoolean(text) ? 1L : 0L;
+        case INT -> Integer.parseInt(text);
+        case LONG -> Long.parseLong(text);
+        case DOUBLE -> Double.doubleToRawLongBits(Double.parseDouble(text));
+        default -> throw new IllegalArgumentException("Unknown kind: " + kind);
+      };
+      return new ParsedValue(text, kind, bits);
     }
-    throw new UnsupportedOperationException("Unsupported element type: " + type.getSimpleName());
   }
 }
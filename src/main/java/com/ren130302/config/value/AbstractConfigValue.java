@@ -1,23 +1,58 @@
 package com.ren130302.config.value;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import com.ren130302.config.convert.ConverterRegistry;
 import com.ren130302.config.source.ConfigSource;
 
+/**
+ * 値を遅延解決してキャッシュする ConfigValue の基底。
+ * <p>
+ * 解決済みでソースのバージョンが変わっていなければ volatile 読み出しのみで返す。 解決が必要な場合はロックを取得して二重チェック
+ * し、同じバージョンに対する変換は 1 回だけ実行する。 解決に失敗した場合は例外をキャッシュし、retryInterval が経過するか key
+ * が変更されるまで再試行せずに同じ例外を送出する。
+ */
 abstract class AbstractConfigValue<T> implements ConfigValue<T> {
 
   protected final ConfigSource<?> source;
   protected final String key;
-  protected final AtomicReference<T> cachedValue = new AtomicReference<>();
   protected final Class<T> type;
+  private final long retryIntervalNanos;
+  private final Object lock = new Object();
+  private volatile Resolved<T> state;
+
+  /**
+   * 解決結果。 value または failure のいずれかを持ち、解決時のソースのバージョンと key の変更スタンプを記録する。
+   */
+  private record Resolved<T>(T value, RuntimeException failure, long version, long stamp,
+      long failedAt) {
+
+    Resolved<T> withVersion(long newVersion) {
+      return new Resolved<>(this.value, this.failure, newVersion, this.stamp, this.failedAt);
+    }
+
+    T valueOrThrow() {
+      if (this.failure != null) {
+        throw this.failure;
+      }
+      return this.value;
+    }
+  }
 
   protected AbstractConfigValue(ConfigSource<?> source, String key, Class<T> type) {
+    this(source, key, type, DEFAULT_RETRY_INTERVAL);
+  }
+
+  protected AbstractConfigValue(ConfigSource<?> source, String key, Class<T> type,
+      Duration retryInterval) {
     this.source = Objects.requireNonNull(source, "source must not be null");
     this.key = Objects.requireNonNull(key, "key must not be null");
     this.type = Objects.requireNonNull(type, "type must not be null");
+    this.retryIntervalNanos =
+        Objects.requireNonNull(retryInterval, "retryInterval must not be null").toNanos();
   }
 
   @Override
@@ -32,12 +67,55 @@ abstract class AbstractConfigValue<T> implements ConfigValue<T> {
 
   @Override
   public final T get() {
-    return this.cachedValue.updateAndGet(current -> {
-      if (current == null) {
-        return this.transformRawValue();
+    Resolved<T> current = this.state;
+    if (current != null && current.version() == this.source.version()
+        && (current.failure() == null || !this.retryDue(current))) {
+      return current.valueOrThrow();
+    }
+    return this.resolve();
+  }
+
+  /**
+   * ロックを取得して解決する。 待機中に他スレッドが解決していればその結果を使う。
+   */
+  private T resolve() {
+    synchronized (this.lock) {
+      long version = this.source.version();
+      Resolved<T> current = this.state;
+      if (current != null) {
+        boolean fresh = current.version() == version
+            || current.stamp() == this.source.version(this.key);
+        if (fresh && (current.failure() == null || !this.retryDue(current))) {
+          if (current.version() != version) {
+            this.state = current.withVersion(version);
+          }
+          return current.valueOrThrow();
+        }
       }
-      return current;
-    });
+      long stamp = this.source.version(this.key);
+      try {
+        T value = this.transformRawValue();
+        this.state = new Resolved<>(value, null, version, stamp, 0L);
+        return value;
+      } catch (RuntimeException e) {
+        this.state = new Resolved<>(null, e, version, stamp, System.nanoTime());
+        throw e;
+      }
+    }
+  }
+
+  private boolean retryDue(Resolved<T> resolved) {
+    return System.nanoTime() - resolved.failedAt() >= this.retryIntervalNanos;
+  }
+
+  /**
+   * 解決済みの値を直接設定する（Mutable 実装用）。 key が変更されるまで有効。
+   */
+  protected final void setResolved(T value) {
+    synchronized (this.lock) {
+      this.state = new Resolved<>(value, null, this.source.version(),
+          this.source.version(this.key), 0L);
+    }
   }
 
   /**
@@ -82,39 +160,8 @@ abstract class AbstractConfigValue<T> implements ConfigValue<T> {
       }
     }
 
-    // プリミティブ／ラッパー型
-    if (this.type.isInstance(raw)) {
-      return (T) raw;
-    }
-    if (raw instanceof String str) {
-      if (this.type == Integer.class) {
-        return (T) Integer.valueOf(str);
-      }
-      if (this.type == Long.class) {
-        return (T) Long.valueOf(str);
-      }
-      if (this.type == Boolean.class) {
-        return (T) Boolean.valueOf(str);
-      }
-      if (this.type == Double.class) {
-        return (T) Double.valueOf(str);
-      }
-      if (this.type == Float.class) {
-        return (T) Float.valueOf(str);
-      }
-      if (this.type == Short.class) {
-        return (T) Short.valueOf(str);
-      }
-      if (this.type == Byte.class) {
-        return (T) Byte.valueOf(str);
-      }
-      if (this.type == String.class) {
-        return (T) str;
-      }
-    }
-
-    throw new ClassCastException(
-        "Cannot convert " + raw.getClass().getSimpleName() + " to " + this.type.getSimpleName());
+    // プリミティブ／ラッパー型、その他の登録済みの型
+    return ConverterRegistry.defaults().convert(raw, this.type);
   }
 
   protected final Object getRaw() {
@@ -123,12 +170,13 @@ abstract class AbstractConfigValue<T> implements ConfigValue<T> {
 
   @Override
   public final void clear() {
-    this.cachedValue.set(null);
+    this.state = null;
   }
 
   @Override
   public String toString() {
-    T value = this.cachedValue.get();
+    Resolved<T> current = this.state;
+    T value = current != null ? current.value() : null;
     return "ConfigValue[key=" + this.key + ",value=" + (value != null ? value : "<not loaded>")
         + "]";
   }
@@ -0,0 +1,88 @@
+package com.ren130302.config.value;
+
+import java.util.Objects;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.KeyPath;
+
+/**
+ * プリミティブ値をボクシングせずに保持する ConfigValue の基底。 値は初回参照時に ConfigSource のプリミティブ取得メソッドで
+ * 読み込み、サブクラスの非 volatile フィールドに格納した後 observedVersion を更新して公開する。 ソースのバージョンが
+ * 進んだ場合は key の変更スタンプを確認し、変わっていたときのみ読み直す。
+ */
+abstract class AbstractPrimitiveConfigValue<T> implements ConfigValue<T> {
+
+  private static final long NOT_LOADED = -1L;
+
+  protected final ConfigSource<?> source;
+  protected final String key;
+  protected final KeyPath path;
+  protected final boolean required;
+  private final Class<T> type;
+  /** 最後に確認したソースのバージョン。 NOT_LOADED は未読み込み */
+  private volatile long observedVersion = NOT_LOADED;
+  private long loadedStamp;
+
+  protected AbstractPrimitiveConfigValue(ConfigSource<?> source, String key, Class<T> type,
+      boolean required) {
+    this.source = Objects.requireNonNull(source, "source must not be null");
+    this.key = Objects.requireNonNull(key, "key must not be null");
+    this.type = type;
+    this.required = required;
+    this.path = source.keyPathResolver().compile(key);
+  }
+
+  @Override
+  public String key() {
+    return this.key;
+  }
+
+  @Override
+  public Class<T> type() {
+    return this.type;
+  }
+
+  /**
+   * 未読み込み、または key が変更されていれば読み込む。 ソースが変更されていなければバージョンの比較のみで戻る。
+   */
+  protected final void ensureLoaded() {
+    long version = this.source.version();
+    if (version == this.observedVersion) {
+      return;
+    }
+    synchronized (this) {
+      long stamp = this.source.version(this.key);
+      if (this.observedVersion == NOT_LOADED || stamp != this.loadedStamp) {
+        if (this.required && !this.source.containsKey(this.path)) {
+          throw new IllegalStateException("Required value is missing: " + this.key);
+        }
+        this.load();
+        this.loadedStamp = stamp;
+      }
+      this.observedVersion = version;
+    }
+  }
+
+  /**
+   * ConfigSource から値を読み込みフィールドに格納する
+   */
+  protected abstract void load();
+
+  /**
+   * 最後に load で読み込んだ値。 読み込み直さない
+   */
+  protected abstract T loaded();
+
+  @Override
+  public final void clear() {
+    this.observedVersion = NOT_LOADED;
+  }
+
+  /**
+   * 最後に読み込んだ値を表示する。 読み込み直さないため、必須の値が削除されていても例外を送出しない。
+   */
+  @Override
+  public String toString() {
+    Object value = this.observedVersion != NOT_LOADED ? this.loaded() : "<not loaded>";
+    return "ConfigValue[key=" + this.key + ",value=" + value + "]";
+  }
+}
@@ -1,12 +1,14 @@
 package com.ren130302.config.value;
 
+import java.time.Duration;
 import com.ren130302.config.source.ConfigSource;
 
 abstract class AbstractRequiredConfigValue<T> extends AbstractConfigValue<T>
     implements RequiredConfigValue<T> {
 
-  protected AbstractRequiredConfigValue(ConfigSource<?> source, String key, Class<T> type) {
-    super(source, key, type);
+  protected AbstractRequiredConfigValue(ConfigSource<?> source, String key, Class<T> type,
+      Duration retryInterval) {
+    super(source, key, type, retryInterval);
   }
 
   @SuppressWarnings("unchecked")
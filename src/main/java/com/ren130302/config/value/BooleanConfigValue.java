@@ -0,0 +1,26 @@
+package com.ren130302.config.value;
+
+import com.ren130302.config.source.ConfigSource;
+
+/**
+ * boolean 値をボクシングせずに保持する ConfigValue。 繰り返し参照する場合は get() ではなく getAsBoolean() を使う。
+ */
+public interface BooleanConfigValue extends ConfigValue<Boolean> {
+
+  boolean getAsBoolean();
+
+  /**
+   * 必須の値。 キーが存在しない場合は参照時に IllegalStateException を送出する。
+   */
+  public static BooleanConfigValue of(ConfigSource<?> source, String key) {
+    return new ImmutableBooleanConfigValue(source, key, true, false);
+  }
+
+  /**
+   * キーが存在しない場合は defaultValue を返す値。
+   */
+  public static BooleanConfigValue of(ConfigSource<?> source, String key, boolean defaultValue) {
+    return new ImmutableBooleanConfigValue(source, key, false, defaultValue);
+  }
+
+}
@@ -0,0 +1,22 @@
+package com.ren130302.config.value;
+
+import com.ren130302.config.source.ConfigSource;
+
+/**
+ * セクションをバインドした値。 スタンプに version(prefix) を使うため、セクション外の変更では再バインドしない。
+ */
+final class BoundConfigValue<T> extends AbstractConfigValue<T> implements Immutable {
+
+  private final TypeBinder<T> binder;
+
+  BoundConfigValue(ConfigSource<?> source, String prefix, Class<T> type, TypeBinder<T> binder) {
+    super(source, prefix, type);
+    this.binder = binder;
+  }
+
+  @Override
+  protected T transformRawValue() {
+    return this.source.readConsistent(() -> this.binder.bind(this.source, this.key));
+  }
+
+}
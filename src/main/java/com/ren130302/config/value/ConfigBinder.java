@@ -0,0 +1,36 @@
+package com.ren130302.config.value;
+
+import com.ren130302.config.source.ConfigSource;
+
+/**
+ * 設定のセクションを record / POJO にバインドする。
+ * <p>
+ * セクション prefix 配下の prefix.name の値をプロパティ name に対応させる。 入れ子の record / POJO は prefix.name 配下を
+ * 再帰的にバインドし、List / Set は値そのもの（配列・カンマ区切り）か prefix.name.0, prefix.name.1, ... から、Map&lt;String,
+ * V&gt; は prefix.name 配下の子キーから組み立てる。 値が存在しないプロパティには {@link ConfigDefault} の値を使う。
+ * <p>
+ * バインダーはクラスごとに 1 回だけ MethodHandle で生成してキャッシュするため、呼び出しごとのリフレクションは発生しない。
+ * セクションは readConsistent の中で読み出すため、update の適用途中の状態をバインドすることはない。
+ */
+public final class ConfigBinder {
+
+  private ConfigBinder() {}
+
+  /**
+   * prefix 配下を type にバインドする。 prefix が空文字列の場合はルートからバインドする。
+   */
+  public static <T> T bind(ConfigSource<?> source, String prefix, Class<T> type) {
+    TypeBinder<T> binder = TypeBinder.of(type);
+    return source.readConsistent(() -> binder.bind(source, prefix));
+  }
+
+  /**
+   * prefix 配下をバインドした値を返す ConfigValue。 セクション（prefix の部分木）が変更されるまで同じインスタンスを返し、
+   * 変更された場合のみバインドし直す。
+   */
+  public static <T> ConfigValue<T> value(ConfigSource<?> source, String prefix, Class<T> type) {
+    TypeBinder<T> binder = TypeBinder.of(type);
+    return new BoundConfigValue<>(source, prefix, type, binder);
+  }
+
+}
@@ -0,0 +1,17 @@
+package com.ren130302.config.value;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * ConfigBinder で値が存在しない場合に使う既定値。 文字列として記述し、プロパティの型に変換する。 List / Set はカンマ区切り。
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT})
+public @interface ConfigDefault {
+
+  String value();
+
+}
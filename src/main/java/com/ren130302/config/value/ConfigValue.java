@@ -1,7 +1,12 @@
 package com.ren130302.config.value;
 
+import java.time.Duration;
+
 public interface ConfigValue<T> {
 
+  /** 解決に失敗した値を再試行するまでの既定の間隔 */
+  Duration DEFAULT_RETRY_INTERVAL = Duration.ofSeconds(1);
+
   String key();
 
   T get();
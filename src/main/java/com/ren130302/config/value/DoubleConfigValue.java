@@ -0,0 +1,26 @@
+package com.ren130302.config.value;
+
+import com.ren130302.config.source.ConfigSource;
+
+/**
+ * double 値をボクシングせずに保持する ConfigValue。 繰り返し参照する場合は get() ではなく getAsDouble() を使う。
+ */
+public interface DoubleConfigValue extends ConfigValue<Double> {
+
+  double getAsDouble();
+
+  /**
+   * 必須の値。 キーが存在しない場合は参照時に IllegalStateException を送出する。
+   */
+  public static DoubleConfigValue of(ConfigSource<?> source, String key) {
+    return new ImmutableDoubleConfigValue(source, key, true, 0d);
+  }
+
+  /**
+   * キーが存在しない場合は defaultValue を返す値。
+   */
+  public static DoubleConfigValue of(ConfigSource<?> source, String key, double defaultValue) {
+    return new ImmutableDoubleConfigValue(source, key, false, defaultValue);
+  }
+
+}
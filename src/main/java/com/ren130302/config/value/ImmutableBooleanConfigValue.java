@@ -0,0 +1,38 @@
+package com.ren130302.config.value;
+
+import com.ren130302.config.source.ConfigSource;
+
+final class ImmutableBooleanConfigValue extends AbstractPrimitiveConfigValue<Boolean>
+    implements BooleanConfigValue, Immutable {
+
+  private final boolean defaultValue;
+  private boolean value;
+
+  ImmutableBooleanConfigValue(ConfigSource<?> source, String key, boolean required,
+      boolean defaultValue) {
+    super(source, key, Boolean.class, required);
+    this.defaultValue = defaultValue;
+  }
+
+  @Override
+  public boolean getAsBoolean() {
+    this.ensureLoaded();
+    return this.value;
+  }
+
+  @Override
+  public Boolean get() {
+    return this.getAsBoolean();
+  }
+
+  @Override
+  protected void load() {
+    this.value = this.source.getBoolean(this.path, this.defaultValue);
+  }
+
+  @Override
+  protected Boolean loaded() {
+    return this.value;
+  }
+
+}
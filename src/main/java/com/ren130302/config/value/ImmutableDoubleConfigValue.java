@@ -0,0 +1,38 @@
+package com.ren130302.config.value;
+
+import com.ren130302.config.source.ConfigSource;
+
+final class ImmutableDoubleConfigValue extends AbstractPrimitiveConfigValue<Double>
+    implements DoubleConfigValue, Immutable {
+
+  private final double defaultValue;
+  private double value;
+
+  ImmutableDoubleConfigValue(ConfigSource<?> source, String key, boolean required,
+      double defaultValue) {
+    super(source, key, Double.class, required);
+    this.defaultValue = defaultValue;
+  }
+
+  @Override
+  public double getAsDouble() {
+    this.ensureLoaded();
+    return this.value;
+  }
+
+  @Override
+  public Double get() {
+    return this.getAsDouble();
+  }
+
+  @Override
+  protected void load() {
+    this.value = this.source.getDouble(this.path, this.defaultValue);
+  }
+
+  @Override
+  protected Double loaded() {
+    return this.value;
+  }
+
+}
@@ -0,0 +1,38 @@
+package com.ren130302.config.value;
+
+import com.ren130302.config.source.ConfigSource;
+
+final class ImmutableIntConfigValue extends AbstractPrimitiveConfigValue<Integer>
+    implements IntConfigValue, Immutable {
+
+  private final int defaultValue;
+  private int value;
+
+  ImmutableIntConfigValue(ConfigSource<?> source, String key, boolean required,
+      int defaultValue) {
+    super(source, key, Integer.class, required);
+    this.defaultValue = defaultValue;
+  }
+
+  @Override
+  public int getAsInt() {
+    this.ensureLoaded();
+    return this.value;
+  }
+
+  @Override
+  public Integer get() {
+    return this.getAsInt();
+  }
+
+  @Override
+  protected void load() {
+    this.value = this.source.getInt(this.path, this.defaultValue);
+  }
+
+  @Override
+  protected Integer loaded() {
+    return this.value;
+  }
+
+}
@@ -0,0 +1,38 @@
+package com.ren130302.config.value;
+
+import com.ren130302.config.source.ConfigSource;
+
+final class ImmutableLongConfigValue extends AbstractPrimitiveConfigValue<Long>
+    implements LongConfigValue, Immutable {
+
+  private final long defaultValue;
+  private long value;
+
+  ImmutableLongConfigValue(ConfigSource<?> source, String key, boolean required,
+      long defaultValue) {
+    super(source, key, Long.class, required);
+    this.defaultValue = defaultValue;
+  }
+
+  @Override
+  public long getAsLong() {
+    this.ensureLoaded();
+    return this.value;
+  }
+
+  @Override
+  public Long get() {
+    return this.getAsLong();
+  }
+
+  @Override
+  protected void load() {
+    this.value = this.source.getLong(this.path, this.defaultValue);
+  }
+
+  @Override
+  protected Long loaded() {
+    return this.value;
+  }
+
+}
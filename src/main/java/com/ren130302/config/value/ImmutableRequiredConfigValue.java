@@ -1,12 +1,14 @@
 package com.ren130302.config.value;
 
+import java.time.Duration;
 import com.ren130302.config.source.ConfigSource;
 
 final class ImmutableRequiredConfigValue<T> extends AbstractRequiredConfigValue<T>
     implements Immutable {
 
-  ImmutableRequiredConfigValue(ConfigSource<?> source, String key, Class<T> type) {
-    super(source, key, type);
+  ImmutableRequiredConfigValue(ConfigSource<?> source, String key, Class<T> type,
+      Duration retryInterval) {
+    super(source, key, type, retryInterval);
   }
 
 }
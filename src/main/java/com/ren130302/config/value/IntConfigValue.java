@@ -0,0 +1,26 @@
+package com.ren130302.config.value;
+
+import com.ren130302.config.source.ConfigSource;
+
+/**
+ * int 値をボクシングせずに保持する ConfigValue。 繰り返し参照する場合は get() ではなく getAsInt() を使う。
+ */
+public interface IntConfigValue extends ConfigValue<Integer> {
+
+  int getAsInt();
+
+  /**
+   * 必須の値。 キーが存在しない場合は参照時に IllegalStateException を送出する。
+   */
+  public static IntConfigValue of(ConfigSource<?> source, String key) {
+    return new ImmutableIntConfigValue(source, key, true, 0);
+  }
+
+  /**
+   * キーが存在しない場合は defaultValue を返す値。
+   */
+  public static IntConfigValue of(ConfigSource<?> source, String key, int defaultValue) {
+    return new ImmutableIntConfigValue(source, key, false, defaultValue);
+  }
+
+}
@@ -0,0 +1,26 @@
+package com.ren130302.config.value;
+
+import com.ren130302.config.source.ConfigSource;
+
+/**
+ * long 値をボクシングせずに保持する ConfigValue。 繰り返し参照する場合は get() ではなく getAsLong() を使う。
+ */
+public interface LongConfigValue extends ConfigValue<Long> {
+
+  long getAsLong();
+
+  /**
+   * 必須の値。 キーが存在しない場合は参照時に IllegalStateException を送出する。
+   */
+  public static LongConfigValue of(ConfigSource<?> source, String key) {
+    return new ImmutableLongConfigValue(source, key, true, 0L);
+  }
+
+  /**
+   * キーが存在しない場合は defaultValue を返す値。
+   */
+  public static LongConfigValue of(ConfigSource<?> source, String key, long defaultValue) {
+    return new ImmutableLongConfigValue(source, key, false, defaultValue);
+  }
+
+}
@@ -12,6 +12,6 @@ final class MutableOptionalConfigValue<T> extends AbstractOptionalConfigValue<T>
 
   @Override
   public void set(T newValue) {
-    this.cachedValue.set(Optional.ofNullable(newValue));
+    this.setResolved(Optional.ofNullable(newValue));
   }
 }
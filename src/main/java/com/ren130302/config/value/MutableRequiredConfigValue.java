@@ -1,16 +1,18 @@
 package com.ren130302.config.value;
 
+import java.time.Duration;
 import com.ren130302.config.source.ConfigSource;
 
 final class MutableRequiredConfigValue<T> extends AbstractRequiredConfigValue<T>
     implements Mutable<T> {
 
-  MutableRequiredConfigValue(ConfigSource<?> source, String key, Class<T> type) {
-    super(source, key, type);
+  MutableRequiredConfigValue(ConfigSource<?> source, String key, Class<T> type,
+      Duration retryInterval) {
+    super(source, key, type, retryInterval);
   }
 
   @Override
   public void set(T newValue) {
-    this.cachedValue.set(newValue);
+    this.setResolved(newValue);
   }
 }
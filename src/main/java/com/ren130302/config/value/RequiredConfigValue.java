@@ -1,17 +1,31 @@
 package com.ren130302.config.value;
 
+import java.time.Duration;
 import com.ren130302.config.source.ConfigSource;
 
 public interface RequiredConfigValue<T> extends ConfigValue<T> {
 
   public static <T> RequiredConfigValue<T> immutable(ConfigSource<?> source, String key,
       Class<T> type) {
-    return new ImmutableRequiredConfigValue<>(source, key, type);
+    return immutable(source, key, type, DEFAULT_RETRY_INTERVAL);
+  }
+
+  /**
+   * retryInterval: 値が欠落しているなど解決に失敗した場合に、再試行せず同じ例外を送出し続ける期間。
+   */
+  public static <T> RequiredConfigValue<T> immutable(ConfigSource<?> source, String key,
+      Class<T> type, Duration retryInterval) {
+    return new ImmutableRequiredConfigValue<>(source, key, type, retryInterval);
   }
 
   public static <T> RequiredConfigValue<T> mutable(ConfigSource<?> source, String key,
       Class<T> type) {
-    return new MutableRequiredConfigValue<>(source, key, type);
+    return mutable(source, key, type, DEFAULT_RETRY_INTERVAL);
+  }
+
+  public static <T> RequiredConfigValue<T> mutable(ConfigSource<?> source, String key,
+      Class<T> type, Duration retryInterval) {
+    return new MutableRequiredConfigValue<>(source, key, type, retryInterval);
   }
 
 }
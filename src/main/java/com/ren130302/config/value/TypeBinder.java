@@ -0,0 +1,397 @@
+package com.ren130302.config.value;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.ren130302.config.convert.ConverterRegistry;
+import com.ren130302.config.source.ConfigSource;
+
+/**
+ * 1 つのクラスに対するバインダー。 クラスごとに 1 回だけ生成して ClassValue にキャッシュし、バインド時はリフレクションを使わず
+ * MethodHandle のみを呼び出す。
+ * <p>
+ * record は正準コンストラクタに全コンポーネントを渡して生成する。 それ以外のクラスは引数なしコンストラクタで生成し、setter
+ * （なければフィールド）に値を設定する。 値が存在しないプロパティは setter を呼ばないため、フィールドの初期値が既定値になる。
+ */
+final class TypeBinder<T> {
+
+  private static final ClassValue<TypeBinder<?>> BINDERS = new ClassValue<>() {
+    @Override
+    protected TypeBinder<?> computeValue(Class<?> type) {
+      return create(type);
+    }
+  };
+
+  private final Class<T> type;
+  /** record: (Object[])Object、それ以外: ()Object */
+  private final MethodHandle factory;
+  private final Property[] properties;
+  private final boolean record;
+
+  /**
+   * バインド対象の 1 プロパティ。 setter は record では null。 fallback は値が存在しない場合に使う値。
+   */
+  private record Property(String name, Reader reader, Object fallback, MethodHandle setter) {
+  }
+
+  /**
+   * key の値をプロパティの型で読み出す。 値が存在しなければ null。
+   */
+  @FunctionalInterface
+  private interface Reader {
+    Object read(ConfigSource<?> source, String key);
+  }
+
+  private TypeBinder(Class<T> type, MethodHandle factory, Property[] properties, boolean record) {
+    this.type = type;
+    this.factory = factory;
+    this.properties = properties;
+    this.record = record;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> TypeBinder<T> of(Class<T> type) {
+    return (TypeBinder<T>) BINDERS.get(type);
+  }
+
+  /**
+   * prefix 配下の値から T を生成する。 prefix が空文字列の場合はルートからバインドする。
+   */
+  T bind(ConfigSource<?> source, String prefix) {
+    try {
+      if (this.record) {
+        Object[] args = new Object[this.properties.length];
+        for (int i = 0; i < args.length; i++) {
+          args[i] = this.read(this.properties[i], source, prefix);
+        }
+        return this.type.cast((Object) this.factory.invokeExact(args));
+      }
+      Object bean = (Object) this.factory.invokeExact();
+      for (Property property : this.properties) {
+        Object value = this.read(property, source, prefix);
+        if (value != null) {
+          property.setter().invokeExact(bean, value);
+        }
+      }
+      return this.type.cast(bean);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(
+          "Failed to bind " + this.type.getName() + " at " + prefix, e);
+    }
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private Object read(Property property, ConfigSource<?> source, String prefix) {
+    Object value = property.reader().read(source, child(prefix, property.name()));
+    return value != null ? value : property.fallback();
+  }
+
+  private static <T> TypeBinder<T> create(Class<T> type) {
+    if (type.isInterface() || type.isPrimitive() || type.isArray()
+        || Modifier.isAbstract(type.getModifiers())) {
+      throw new IllegalArgumentException("Cannot bind to " + type.getName());
+    }
+    MethodHandles.Lookup lookup;
+    try {
+      lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Cannot access " + type.getName(), e);
+    }
+    try {
+      return type.isRecord() ? createRecord(type, lookup) : createBean(type, lookup);
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new IllegalArgumentException("Cannot bind to " + type.getName(), e);
+    }
+  }
+
+  private static <T> TypeBinder<T> createRecord(Class<T> type, MethodHandles.Lookup lookup)
+      throws NoSuchMethodException, IllegalAccessException {
+    RecordComponent[] components = type.getRecordComponents();
+    Class<?>[] parameterTypes = new Class<?>[components.length];
+    Property[] properties = new Property[components.length];
+    for (int i = 0; i < components.length; i++) {
+      RecordComponent component = components[i];
+      parameterTypes[i] = component.getType();
+      Object fallback = fallback(component.getAnnotation(ConfigDefault.class),
+          component.getType(), component.getGenericType());
+      if (fallback == null && component.getType().isPrimitive()) {
+        fallback = zero(component.getType());
+      }
+      properties[i] = new Property(component.getName(),
+          reader(component.getType(), component.getGenericType()), fallback, null);
+    }
+    MethodHandle constructor =
+        lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes));
+    MethodHandle factory = constructor.asType(constructor.type().generic())
+        .asSpreader(Object[].class, components.length);
+    return new TypeBinder<>(type, factory, properties, true);
+  }
+
+  private static <T> TypeBinder<T> createBean(Class<T> type, MethodHandles.Lookup lookup)
+      throws NoSuchMethodException, IllegalAccessException {
+    MethodHandle factory = lookup.findConstructor(type, MethodType.methodType(void.class))
+        .asType(MethodType.methodType(Object.class));
+    MethodType setterType = MethodType.methodType(void.class, Object.class, Object.class);
+    List<Property> properties = new ArrayList<>();
+    for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+            || field.isSynthetic()) {
+          continue;
+        }
+        MethodHandle setter = setter(lookup, c, field);
+        if (setter == null) {
+          continue;
+        }
+        properties.add(new Property(field.getName(),
+            reader(field.getType(), field.getGenericType()),
+            fallback(field.getAnnotation(ConfigDefault.class), field.getType(),
+                field.getGenericType()),
+            setter.asType(setterType)));
+      }
+    }
+    return new TypeBinder<>(type, factory, properties.toArray(Property[]::new), false);
+  }
+
+  /**
+   * setXxx(型) があればそれを、なければ final でないフィールドへの書き込みを使う。 どちらもなければ null。
+   */
+  private static MethodHandle setter(MethodHandles.Lookup lookup, Class<?> owner, Field field)
+      throws IllegalAccessException {
+    String name = "set" + Character.toUpperCase(field.getName().charAt(0))
+        + field.getName().substring(1);
+    try {
+      return lookup.findVirtual(owner, name, MethodType.methodType(void.class, field.getType()));
+    } catch (NoSuchMethodException e) {
+      if (Modifier.isFinal(field.getModifiers())) {
+        return null;
+      }
+      return MethodHandles.privateLookupIn(owner, MethodHandles.lookup()).unreflectSetter(field);
+    }
+  }
+
+  private static Reader reader(Class<?> rawType, Type genericType) {
+    if (List.class == rawType || Collection.class == rawType) {
+      Reader element = reader(typeArgument(genericType, 0));
+      Class<?> scalar = scalarType(typeArgument(genericType, 0));
+      return (source, key) -> readList(source, key, element, scalar);
+    }
+    if (Set.class == rawType) {
+      Reader element = reader(typeArgument(genericType, 0));
+      Class<?> scalar = scalarType(typeArgument(genericType, 0));
+      return (source, key) -> {
+        List<Object> list = readList(source, key, element, scalar);
+        return list != null ? Collections.unmodifiableSet(new LinkedHashSet<>(list)) : null;
+      };
+    }
+    if (Map.class == rawType) {
+      Type keyType = typeArgument(genericType, 0);
+      if (keyType != String.class && keyType != Object.class) {
+        throw new IllegalArgumentException("Map keys must be String: " + genericType);
+      }
+      Reader value = reader(typeArgument(genericType, 1));
+      return (source, key) -> readMap(source, key, value);
+    }
+    Class<?> boxed = box(rawType);
+    if (isScalar(boxed)) {
+      return (source, key) -> {
+        Object raw = source.get(key);
+        return raw != null ? convert(raw, boxed) : null;
+      };
+    }
+    // 入れ子のクラスはバインド時に解決する（自身を参照するクラスで生成が再帰しないように）。 key の配下に値がなければ
+    // null として既定値を使い、自身を参照するクラスでもバインドが終わるようにする
+    return (source, key) -> source.keys(key).isEmpty() && source.get(key) == null ? null
+        : of(boxed).bind(source, key);
+  }
+
+  private static Reader reader(Type type) {
+    if (type instanceof ParameterizedType parameterized) {
+      return reader((Class<?>) parameterized.getRawType(), parameterized);
+    }
+    if (type instanceof Class<?> c) {
+      return reader(c, c);
+    }
+    throw new IllegalArgumentException("Unsupported element type: " + type);
+  }
+
+  private static Type typeArgument(Type genericType, int index) {
+    if (genericType instanceof ParameterizedType parameterized) {
+      return parameterized.getActualTypeArguments()[index];
+    }
+    return Object.class;
+  }
+
+  /**
+   * 要素の型がスカラーならその（ボクシング後の）型、そうでなければ null。
+   */
+  private static Class<?> scalarType(Type type) {
+    return type instanceof Class<?> c && isScalar(box(c)) ? box(c) : null;
+  }
+
+  /**
+   * 値そのものがコレクション（JSON の配列）またはカンマ区切りの文字列であればその要素を、なければ key.0, key.1, ... の添字から
+   * 要素数を求めて各要素を key.i から読み出す。 要素がひとつもなければ null。
+   */
+  private static List<Object> readList(ConfigSource<?> source, String key, Reader element,
+      Class<?> scalar) {
+    Object raw = source.get(key);
+    if (raw instanceof String str) {
+      if (scalar == null) {
+        throw new ClassCastException("Cannot convert String to list of objects: " + key);
+      }
+      return split(str, scalar);
+    }
+    if (raw instanceof Collection<?> collection && scalar != null) {
+      List<Object> list = new ArrayList<>(collection.size());
+      for (Object item : collection) {
+        if (item != null) {
+          list.add(convert(item, scalar));
+        }
+      }
+      return Collections.unmodifiableList(list);
+    }
+    int size;
+    if (raw instanceof Collection<?> collection) {
+      size = collection.size();
+    } else {
+      size = 0;
+      int start = key.length() + 1;
+      for (String child : source.keys(key)) {
+        int end = child.indexOf('.', start);
+        String segment = end < 0 ? child.substring(start) : child.substring(start, end);
+        if (isIndex(segment)) {
+          size = Math.max(size, Integer.parseInt(segment) + 1);
+        }
+      }
+      if (size == 0) {
+        return null;
+      }
+    }
+    List<Object> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Object value = element.read(source, key + "." + i);
+      if (value != null) {
+        list.add(value);
+      }
+    }
+    return Collections.unmodifiableList(list);
+  }
+
+  private static List<Object> split(String str, Class<?> scalar) {
+    List<Object> list = new ArrayList<>();
+    for (String item : str.split(",")) {
+      String trimmed = item.trim();
+      if (!trimmed.isEmpty()) {
+        list.add(convert(trimmed, scalar));
+      }
+    }
+    return Collections.unmodifiableList(list);
+  }
+
+  private static Map<String, Object> readMap(ConfigSource<?> source, String key, Reader value) {
+    Set<String> keys = source.keys(key);
+    if (keys.isEmpty()) {
+      return null;
+    }
+    Map<String, Object> map = new LinkedHashMap<>();
+    int start = key.length() + 1;
+    for (String child : keys) {
+      int end = child.indexOf('.', start);
+      String name = end < 0 ? child.substring(start) : child.substring(start, end);
+      if (!map.containsKey(name)) {
+        map.put(name, value.read(source, key + "." + name));
+      }
+    }
+    map.values().removeIf(v -> v == null);
+    return Collections.unmodifiableMap(map);
+  }
+
+  private static Object fallback(ConfigDefault annotation, Class<?> rawType, Type genericType) {
+    boolean list = List.class == rawType || Collection.class == rawType;
+    if (annotation == null) {
+      if (list) {
+        return List.of();
+      }
+      if (Set.class == rawType) {
+        return Set.of();
+      }
+      if (Map.class == rawType) {
+        return Map.of();
+      }
+      return null;
+    }
+    if (isScalar(box(rawType)) && !list && Set.class != rawType && Map.class != rawType) {
+      return convert(annotation.value(), box(rawType));
+    }
+    Class<?> scalar = scalarType(typeArgument(genericType, 0));
+    if ((list || Set.class == rawType) && scalar != null) {
+      List<Object> values = split(annotation.value(), scalar);
+      return list ? values : Collections.unmodifiableSet(new LinkedHashSet<>(values));
+    }
+    throw new IllegalArgumentException("@ConfigDefault is not supported for " + genericType);
+  }
+
+  private static boolean isIndex(String segment) {
+    if (segment.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < segment.length(); i++) {
+      if (!Character.isDigit(segment.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String child(String prefix, String name) {
+    return prefix.isEmpty() ? name : prefix + "." + name;
+  }
+
+  /**
+   * 標準ライブラリの型と、文字列からの変換が ConverterRegistry に登録されている型は値として読み出す。
+   */
+  private static boolean isScalar(Class<?> type) {
+    return type.getName().startsWith("java.")
+        || ConverterRegistry.defaults().canConvert(String.class, type);
+  }
+
+  private static Object convert(Object raw, Class<?> type) {
+    return ConverterRegistry.defaults().convert(raw, type);
+  }
+
+  private static Class<?> box(Class<?> type) {
+    return ConverterRegistry.box(type);
+  }
+
+  private static Object zero(Class<?> primitive) {
+    return switch (primitive.getName()) {
+      case "int" -> 0;
+      case "long" -> 0L;
+      case "double" -> 0d;
+      case "float" -> 0f;
+      case "boolean" -> false;
+      case "short" -> (short) 0;
+      case "byte" -> (byte) 0;
+      case "char" -> '\0';
+      default -> throw new IllegalArgumentException("Unsupported type: " + primitive);
+    };
+  }
+}
@@ -7,7 +7,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.ren130302.config.source.MapConfigSource;
 import com.ren130302.config.source.json.JsonConfigSource;
 import com.ren130302.config.source.properties.PropertiesConfigSource;
@@ -23,10 +22,10 @@ public final class MultiFormatConfig {
       String mapFile) throws IOException {
 
     // JSON
-    ObjectNode jsonRoot = mapper.createObjectNode();
-    JsonConfigSource jsonConfig = new JsonConfigSource(jsonRoot);
+    JsonConfigSource jsonConfig = new JsonConfigSource(mapper.createObjectNode());
     data.forEach(jsonConfig::set);
-    mapper.writerWithDefaultPrettyPrinter().writeValue(new java.io.File(jsonFile), jsonRoot);
+    mapper.writerWithDefaultPrettyPrinter().writeValue(new java.io.File(jsonFile),
+        jsonConfig.source());
 
     // Properties
     Properties props = new Properties();
@@ -37,11 +36,10 @@ public final class MultiFormatConfig {
     }
 
     // Map
-    Map<String, Object> mapRoot = new java.util.HashMap<>();
-    MapConfigSource mapConfig = new MapConfigSource(mapRoot);
+    MapConfigSource mapConfig = new MapConfigSource(new java.util.HashMap<>());
     data.forEach(mapConfig::set);
     try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(mapFile))) {
-      oos.writeObject(mapRoot);
+      oos.writeObject(new java.util.HashMap<>(mapConfig.source()));
     }
   }
 
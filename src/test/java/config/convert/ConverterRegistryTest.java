@@ -0,0 +1,97 @@
+package config.convert;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import com.ren130302.config.convert.ConverterRegistry;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.source.properties.PropertiesConfigSource;
+
+public class ConverterRegistryTest {
+
+  public record Money(BigDecimal amount, String currency) {
+  }
+
+  @Test
+  void testDefaults() {
+    Properties props = new Properties();
+    props.setProperty("timeout", "30s");
+    props.setProperty("retry", "PT0.5S");
+    props.setProperty("endpoint", "https://example.com/api");
+    props.setProperty("listen", "[::1]:8080");
+    props.setProperty("unit", "SECONDS");
+    props.setProperty("ratio", "0.25");
+    props.setProperty("ports", "80, 443");
+    PropertiesConfigSource config = new PropertiesConfigSource(props);
+
+    assertEquals(Duration.ofSeconds(30), config.get("timeout", Duration.class));
+    assertEquals(Duration.ofMillis(500), config.get("retry", Duration.class));
+    assertEquals(URI.create("https://example.com/api"), config.get("endpoint", URI.class));
+    assertEquals(InetSocketAddress.createUnresolved("::1", 8080),
+        config.get("listen", InetSocketAddress.class));
+    assertEquals(TimeUnit.SECONDS, config.get("unit", TimeUnit.class));
+    assertEquals(new BigDecimal("0.25"), config.get("ratio", BigDecimal.class));
+    assertEquals(List.of(80L, 443L), config.getList("ports", Long.class));
+    assertThrows(UnsupportedOperationException.class, () -> config.get("ratio", Money.class));
+  }
+
+  @Test
+  void testRegisteredAndNumericConversions() {
+    ConverterRegistry registry = ConverterRegistry.create();
+    assertFalse(registry.canConvert(String.class, Money.class));
+    registry.register(String.class, Money.class, s -> {
+      String[] parts = s.split(" ");
+      return new Money(new BigDecimal(parts[0]), parts[1]);
+    });
+    assertTrue(registry.canConvert(String.class, Money.class));
+    assertEquals(new Money(new BigDecimal("9.99"), "USD"),
+        registry.convert("9.99 USD", Money.class));
+
+    assertEquals(42L, registry.convert(42, long.class));
+    assertEquals(1.5d, registry.convert(1.5f, Double.class));
+    assertThrows(ArithmeticException.class, () -> registry.convert(Long.MAX_VALUE, Integer.class));
+    assertThrows(NumberFormatException.class, () -> registry.convert(1.5d, Integer.class));
+    assertEquals("42", registry.convert(42, String.class));
+    assertEquals(false, registry.convert(1, Boolean.class));
+    assertEquals(false, registry.convert(0, boolean.class));
+
+    MapConfigSource config = new MapConfigSource(new HashMap<>());
+    config.set("flag", 1);
+    assertEquals(Boolean.valueOf(config.getBoolean("flag")), config.get("flag", Boolean.class));
+  }
+
+  @Test
+  void testConversionIsMemoizedPerKey() {
+    MapConfigSource config = new MapConfigSource(new HashMap<>());
+    config.set("pattern", "[a-z]+");
+
+    Pattern first = config.get("pattern", Pattern.class);
+    assertSame(first, config.get("pattern", Pattern.class));
+
+    config.set("pattern", "[0-9]+");
+    Pattern second = config.get("pattern", Pattern.class);
+    assertNotSame(first, second);
+    assertTrue(second.matcher("123").matches());
+
+    // 同じキーを異なる型で交互に読んでも、それぞれの変換結果を再利用する
+    config.set("name", "abc");
+    Pattern pattern = config.get("name", Pattern.class);
+    URI uri = config.get("name", URI.class);
+    assertSame(pattern, config.get("name", Pattern.class));
+    assertSame(uri, config.get("name", URI.class));
+    assertSame(pattern, config.get("name", Pattern.class));
+  }
+}
@@ -0,0 +1,110 @@
+package config.schema;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.schema.ConfigSchema;
+import com.ren130302.config.schema.ConfigValidator;
+import com.ren130302.config.schema.ConfigViolation;
+import com.ren130302.config.schema.Constraint;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.source.json.JsonConfigSource;
+
+public class ConfigSchemaTest {
+
+  private static final ConfigSchema SCHEMA = ConfigSchema.builder()
+      .required("server.port", Integer.class, Constraint.range(1, 65535))
+      .required("server.host", String.class, Constraint.pattern("[a-z0-9.-]+"))
+      .optional("server.mode", String.class, Constraint.oneOf("http", "https"))
+      .optional("database.connections.*.url", URI.class,
+          Constraint.pattern("jdbc:[a-z]+://.*"))
+      .build();
+
+  @Test
+  void testValidConfig() throws Exception {
+    ObjectNode root = (ObjectNode) new ObjectMapper().readTree(new File("config.json"));
+    JsonConfigSource config = new JsonConfigSource(root);
+    config.set("server.host", "localhost");
+    config.set("server.port", 8080);
+
+    assertEquals(List.of(), SCHEMA.validate(config));
+    SCHEMA.check(config);
+  }
+
+  @Test
+  void testReportsAllViolations() {
+    MapConfigSource config = new MapConfigSource(new HashMap<>());
+    config.set("server.port", 70000);
+    config.set("server.mode", "ftp");
+    config.set("database.connections.0.url", "http://example.com");
+    config.set("database.connections.1.url", "jdbc:mysql://localhost/db");
+
+    List<ConfigViolation> violations = SCHEMA.validate(config);
+
+    assertEquals(4, violations.size(), violations.toString());
+    assertEquals(List.of("database.connections.0.url", "server.host", "server.mode",
+        "server.port"), violations.stream().map(ConfigViolation::key).sorted().toList());
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> SCHEMA.check(config));
+    assertTrue(e.getMessage().contains("server.host: Required value is missing"), e.getMessage());
+    assertThrows(IllegalArgumentException.class,
+        () -> ConfigSchema.builder().required("database.*.url", String.class));
+  }
+
+  @Test
+  void testRevalidatesChangedKeys() {
+    MapConfigSource config = new MapConfigSource(new HashMap<>());
+    config.set("server.host", "localhost");
+    config.set("server.port", 8080);
+    ConfigValidator validator = SCHEMA.validator(config);
+    List<List<ConfigViolation>> reported = new ArrayList<>();
+    validator.watch(reported::add);
+    assertTrue(validator.isValid());
+
+    config.set("server.port", "eighty");
+    assertEquals(1, reported.size());
+    assertEquals("server.port", reported.get(0).get(0).key());
+
+    config.putAll(Map.of("server.port", 80, "database.connections.0.url", "ftp://x"));
+    assertEquals(List.of("database.connections.0.url"),
+        validator.violations().stream().map(ConfigViolation::key).toList());
+
+    config.remove("database.connections.0.url");
+    config.remove("server.host");
+    assertEquals(List.of("server.host"),
+        validator.violations().stream().map(ConfigViolation::key).toList());
+    assertEquals(validator.violations(), validator.validate());
+  }
+
+  @Test
+  void testWatchRevalidatesReplacedSubtree() {
+    ConfigSchema schema = ConfigSchema.builder()
+        .required("port", Integer.class, Constraint.range(1, 65535))
+        .required("host", String.class)
+        .build();
+    JsonConfigSource config = new JsonConfigSource(new ObjectMapper().createObjectNode());
+    config.set("server", Map.of("port", 8080, "host", "localhost"));
+    ConfigValidator validator = schema.validator(config.subtree("server"));
+    List<List<ConfigViolation>> reported = new ArrayList<>();
+    validator.watch(reported::add);
+    assertTrue(validator.isValid());
+
+    // セクション全体の置き換えはビューには空文字列のキーとして通知される
+    config.set("server", Map.of("port", 70000));
+    assertEquals(1, reported.size());
+    assertEquals(List.of("host", "port"),
+        reported.get(0).stream().map(ConfigViolation::key).sorted().toList());
+
+    config.set("server", Map.of("port", 80, "host", "example.com"));
+    assertEquals(2, reported.size());
+    assertTrue(validator.isValid());
+  }
+}
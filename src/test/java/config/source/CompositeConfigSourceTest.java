@@ -0,0 +1,156 @@
+package config.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.CompositeConfigSource;
+import com.ren130302.config.source.ConfigListener;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.DelegatingConfigSource;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.source.Subscription;
+import com.ren130302.config.source.json.JsonConfigSource;
+import com.ren130302.config.source.properties.PropertiesConfigSource;
+
+public class CompositeConfigSourceTest {
+
+  private MapConfigSource overrides;
+  private PropertiesConfigSource properties;
+  private JsonConfigSource json;
+  private MapConfigSource defaults;
+  private CompositeConfigSource config;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    Properties props = new Properties();
+    try (FileInputStream in = new FileInputStream("config.properties")) {
+      props.load(in);
+    }
+    this.overrides = new MapConfigSource(new HashMap<>());
+    this.properties = new PropertiesConfigSource(props);
+    ObjectNode root = (ObjectNode) new ObjectMapper().readTree(new File("config.json"));
+    this.json = new JsonConfigSource(root);
+    this.defaults = new MapConfigSource(new HashMap<>(Map.of("server.timeout", 30)));
+    this.config =
+        CompositeConfigSource.of(this.overrides, this.properties, this.json, this.defaults);
+  }
+
+  @Test
+  public void testReadsFromOwningLayer() {
+    assertSame(this.properties, this.config.ownerOf("server.port"));
+    assertSame(this.defaults, this.config.ownerOf("server.timeout"));
+    assertNull(this.config.ownerOf("server.missing"));
+
+    assertEquals(8080, this.config.getInt("server.port"));
+    assertEquals(30, this.config.getInt("server.timeout"));
+    assertEquals(List.of("alice", "bob", "carol"), this.config.getList("app.users", String.class));
+    assertTrue(this.config.containsKey("server.timeout"));
+    assertFalse(this.config.containsKey("server.missing"));
+    assertTrue(this.config.keys().containsAll(this.json.keys()));
+    assertTrue(this.config.keys().contains("server.timeout"));
+  }
+
+  @Test
+  public void testWritesGoToTopLayer() {
+    this.config.set("server.port", 9090);
+    assertSame(this.overrides, this.config.ownerOf("server.port"));
+    assertEquals(9090, this.config.getInt("server.port"));
+
+    this.config.remove("server.port");
+    assertSame(this.properties, this.config.ownerOf("server.port"));
+    assertEquals(8080, this.config.getInt("server.port"));
+  }
+
+  @Test
+  public void testTracksLayerChanges() {
+    long version = this.config.version("server.host");
+    this.json.set("server.region", "ap-northeast-1");
+    assertEquals("ap-northeast-1", this.config.get("server.region"));
+    assertTrue(this.config.keys().contains("server.region"));
+    assertEquals(version, this.config.version("server.host"));
+
+    this.properties.remove("server.port");
+    assertSame(this.json, this.config.ownerOf("server.port"));
+    assertEquals(8080, this.config.getInt("server.port"));
+  }
+
+  @Test
+  public void testMaintainsKeysFromLayerEvents() {
+    long version = this.config.version();
+    this.overrides.set("server.port", 9090);
+    assertEquals(version + 1, this.config.version());
+    assertTrue(this.config.keys().contains("server.port"));
+
+    // 下位のレイヤーにも値があるキーは、上位のレイヤーから削除しても和集合に残る
+    this.overrides.remove("server.port");
+    assertTrue(this.config.keys().contains("server.port"));
+
+    this.json.set("server.cache", Map.of("enabled", true));
+    assertTrue(this.config.keys().contains("server.cache.enabled"));
+    assertEquals(Set.of("server.cache.enabled"), this.config.keys("server.cache"));
+    this.json.remove("server.cache");
+    assertFalse(this.config.keys().contains("server.cache.enabled"));
+    assertEquals(this.config.keys(), Set.copyOf(this.collectLayerKeys()));
+  }
+
+  @Test
+  public void testSkipsLayersWithoutEvents() {
+    MapConfigSource backing = new MapConfigSource(new HashMap<>(Map.of("cache.size", 16)));
+    // 変更イベントを通知しないレイヤー
+    ConfigSource<?> silent = new DelegatingConfigSource<Map<String, Object>>() {
+      @Override
+      protected ConfigSource<Map<String, Object>> delegate() {
+        return backing;
+      }
+
+      @Override
+      public Subscription subscribe(String prefix, ConfigListener listener, Executor executor) {
+        throw new UnsupportedOperationException();
+      }
+    };
+    CompositeConfigSource composite = CompositeConfigSource.of(this.overrides, silent);
+    assertEquals(16, composite.getInt("cache.size"));
+
+    long version = composite.version();
+    backing.set("cache.ttl", 60);
+    assertNotEquals(version, composite.version());
+    assertTrue(composite.keys().contains("cache.ttl"));
+    assertEquals(60, composite.getInt("cache.ttl"));
+
+    AtomicInteger events = new AtomicInteger();
+    composite.subscribe("", event -> events.incrementAndGet(), Runnable::run);
+    this.overrides.set("cache.size", 32);
+    assertEquals(1, events.get());
+    assertEquals(32, composite.getInt("cache.size"));
+
+    composite.close();
+    this.overrides.set("cache.size", 64);
+    assertEquals(1, events.get());
+  }
+
+  private Set<String> collectLayerKeys() {
+    Set<String> keys = new HashSet<>();
+    for (ConfigSource<?> layer : List.of(this.overrides, this.properties, this.json,
+        this.defaults)) {
+      keys.addAll(layer.keys());
+    }
+    return keys;
+  }
+}
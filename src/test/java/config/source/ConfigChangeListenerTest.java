@@ -0,0 +1,130 @@
+package config.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import com.ren130302.config.source.CompositeConfigSource;
+import com.ren130302.config.source.ConfigChangeEvent;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.source.Subscription;
+import com.ren130302.config.source.properties.PropertiesConfigSource;
+
+public class ConfigChangeListenerTest {
+
+  @Test
+  void testPrefixSubscriptionAndBatching() {
+    PropertiesConfigSource config = new PropertiesConfigSource(new Properties());
+    List<ConfigChangeEvent> server = new ArrayList<>();
+    List<ConfigChangeEvent> port = new ArrayList<>();
+    config.subscribe("server", server::add, Runnable::run);
+    Subscription portSubscription = config.subscribe("server.port", port::add, Runnable::run);
+
+    config.set("server.port", 8080);
+    config.set("app.name", "demo");
+    Map<String, Object> batch = new LinkedHashMap<>();
+    batch.put("server.host", "localhost");
+    batch.put("server.port", 9090);
+    batch.put("app.users", "alice");
+    config.putAll(batch);
+
+    assertEquals(2, server.size());
+    assertEquals(Set.of("server.port"), server.get(0).keys());
+    assertEquals(Set.of("server.host", "server.port"), server.get(1).keys());
+    assertEquals(config.version(), server.get(1).version());
+    assertEquals(2, port.size());
+
+    portSubscription.close();
+    config.set("server.port", 7070);
+    assertEquals(2, port.size());
+    assertEquals(3, server.size());
+  }
+
+  @Test
+  void testAncestorWriteNotifiesDescendants() {
+    MapConfigSource config = new MapConfigSource(new HashMap<>());
+    List<ConfigChangeEvent> events = new ArrayList<>();
+    config.subscribe("server.tls.enabled", events::add, Runnable::run);
+
+    config.set("server.tls", Map.of("enabled", true));
+    config.set("server.host", "localhost");
+
+    assertEquals(1, events.size());
+    assertEquals(Set.of("server.tls"), events.get(0).keys());
+  }
+
+  @Test
+  void testCloseKeepsSharedPrefixes() {
+    MapConfigSource config = new MapConfigSource(new HashMap<>());
+    for (int i = 0; i < 1000; i++) {
+      config.subscribe("churn.key" + i + ".value", e -> {}, Runnable::run).close();
+    }
+    List<ConfigChangeEvent> server = new ArrayList<>();
+    List<ConfigChangeEvent> tls = new ArrayList<>();
+    config.subscribe("server", server::add, Runnable::run);
+    config.subscribe("server.tls.enabled", e -> {}, Runnable::run).close();
+    Subscription tlsSubscription = config.subscribe("server.tls", tls::add, Runnable::run);
+    config.subscribe("server.tls.keyStore", e -> {}, Runnable::run).close();
+
+    config.set("server.tls.enabled", true);
+    assertEquals(1, server.size());
+    assertEquals(1, tls.size());
+
+    // 空になったノードを取り除いた後に、同じ経路へ再び購読できる
+    tlsSubscription.close();
+    config.subscribe("server.tls.enabled", tls::add, Runnable::run);
+    config.set("server.tls.enabled", false);
+    assertEquals(2, server.size());
+    assertEquals(2, tls.size());
+    assertEquals(Set.of("server.tls.enabled"), tls.get(1).keys());
+  }
+
+  @Test
+  void testSubtreeAndCompositeRelay() {
+    MapConfigSource base = new MapConfigSource(new HashMap<>());
+    MapConfigSource overrides = new MapConfigSource(new HashMap<>());
+    CompositeConfigSource composite = CompositeConfigSource.of(overrides, base);
+    ConfigSource<?> server = composite.subtree("server");
+    List<ConfigChangeEvent> events = new ArrayList<>();
+    server.subscribe("", events::add, Runnable::run);
+
+    base.set("server.port", 8080);
+    composite.set("server.host", "localhost");
+    base.set("app.name", "demo");
+
+    assertEquals(2, events.size());
+    assertEquals(Set.of("port"), events.get(0).keys());
+    assertEquals(Set.of("host"), events.get(1).keys());
+    assertEquals(server, events.get(1).source());
+  }
+
+  @Test
+  void testAsyncDeliveryInOrder() throws Exception {
+    MapConfigSource config = new MapConfigSource(new HashMap<>());
+    BlockingQueue<ConfigChangeEvent> events = new LinkedBlockingQueue<>();
+    config.subscribe("counter", events::add);
+
+    for (int i = 0; i < 1000; i++) {
+      config.set("counter", i);
+    }
+
+    long previous = -1L;
+    for (int i = 0; i < 1000; i++) {
+      ConfigChangeEvent event = events.poll(5, TimeUnit.SECONDS);
+      assertNotNull(event);
+      assertTrue(event.version() >= previous);
+      previous = event.version();
+    }
+  }
+}
@@ -2,18 +2,33 @@ package config.source;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.source.binary.BinaryConfigCompiler;
+import com.ren130302.config.source.binary.BinaryConfigSource;
+import com.ren130302.config.source.json.IndexedJsonConfigSource;
 import com.ren130302.config.source.json.JsonConfigSource;
+import com.ren130302.config.source.json.StreamingJsonLoader;
 import com.ren130302.config.source.properties.PropertiesConfigSource;
 
 @SuppressWarnings("unchecked")
@@ -99,6 +114,226 @@ public class ConfigFileReadTest {
     this.assertConfigValues(config, false);
   }
 
+  @Test
+  public void testIndexedJsonRead() throws Exception {
+    File file = new File(JSON_FILE);
+    assertTrue(file.exists(), JSON_FILE + " ファイルが存在しません。");
+
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode root = (ObjectNode) mapper.readTree(file);
+    JsonConfigSource json = new JsonConfigSource(root);
+    ConfigSource<?> config = IndexedJsonConfigSource.of(json.source());
+
+    this.assertConfigValues(config, false);
+    assertEquals(json.keys(), config.keys());
+  }
+
+  @Test
+  public void testStreamingJsonRead() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode root = (ObjectNode) mapper.readTree(new File(JSON_FILE));
+    ConfigSource<?> expected = IndexedJsonConfigSource.of(root);
+    ConfigSource<?> config = StreamingJsonLoader.load(Path.of(JSON_FILE));
+
+    this.assertConfigValues(config, false);
+    assertEquals(expected.keys(), config.keys());
+    assertEquals(expected.source(), config.source());
+    for (String key : expected.keys()) {
+      assertEquals(expected.getRaw(key), config.getRaw(key), key);
+    }
+    // 平坦な表から作るビューは元の JSON と同じ構造を持つ
+    assertEquals(new JsonConfigSource(root).keys(), config.keys());
+    assertEquals(mapper.convertValue(root, Map.class), config.source());
+
+    ConfigSource<?> nested = StreamingJsonLoader
+        .parse("{\"a\":{\"m\":[[1,2],[3]],\"x\":1,\"x\":2},\"b\":[{\"c\":true}]}");
+    assertEquals(Set.of("a.m.0", "a.m.1", "a.x", "b.0.c"), nested.keys());
+    assertEquals(List.of(List.of(1, 2), List.of(3)), nested.getRaw("a.m"));
+    assertEquals(List.of(3), nested.getRaw("a.m.1"));
+    assertEquals(Map.of("m", List.of(List.of(1, 2), List.of(3)), "x", 2), nested.getRaw("a"));
+    assertEquals(Map.of("c", true), nested.getRaw("b.0"));
+    assertNull(nested.getRaw("a.m.2"));
+    assertThrows(IOException.class, () -> StreamingJsonLoader.parse("[1, 2]"));
+  }
+
+  @Test
+  public void testBinaryRead() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    JsonConfigSource json =
+        new JsonConfigSource((ObjectNode) mapper.readTree(new File(JSON_FILE)));
+    ConfigSource<?> config = BinaryConfigSource.wrap(BinaryConfigCompiler.compile(json));
+
+    this.assertConfigValues(config, false);
+    assertEquals(json.keys(), config.keys());
+    assertEquals(json.<Object>get("server.tls"), config.get("server.tls"));
+    assertEquals(8080, config.getInt("server.port"));
+    assertTrue(config.containsKey("server.port"));
+    assertFalse(config.containsKey("server"));
+
+    Properties props = new Properties();
+    try (FileInputStream in = new FileInputStream(PROPS_FILE)) {
+      props.load(in);
+    }
+    Path file = Files.createTempFile("config", ".bin");
+    try {
+      BinaryConfigCompiler.compile(new PropertiesConfigSource(props), file);
+      ConfigSource<?> mapped = BinaryConfigSource.open(file);
+      this.assertConfigValues(mapped, true);
+      assertEquals(props.stringPropertyNames(), mapped.keys());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testBinaryContainerLookup() {
+    MapConfigSource map = new MapConfigSource(new HashMap<>());
+    map.putAll(Map.of("name.a", 1, "name.b", 2, "name2.c", 3, "名前.姓", "山田", "名前.名", "太郎",
+        "naïve.x", true, "z", "last"));
+    ConfigSource<?> config = BinaryConfigSource.wrap(BinaryConfigCompiler.compile(map));
+
+    // 二分探索はバイト列のまま比較し、ASCII 以外のキーのみデコードする
+    assertEquals(Map.of("a", 1, "b", 2), config.get("name"));
+    assertEquals(Map.of("c", 3), config.get("name2"));
+    assertEquals(Map.of("姓", "山田", "名", "太郎"), config.get("名前"));
+    assertEquals(Map.of("x", true), config.get("naïve"));
+    assertEquals("last", config.get("z"));
+    assertNull(config.get("nam"));
+    assertNull(config.get("名"));
+    assertNull(config.get("zz"));
+    assertEquals(map.keys(), config.keys());
+  }
+
+  @Test
+  public void testGetAll() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    JsonConfigSource json =
+        new JsonConfigSource((ObjectNode) mapper.readTree(new File(JSON_FILE)));
+    List<String> keys = List.of("server.tls.keyStore", "database.connections.1.url", "server.port",
+        "server.tls", "missing.key", "app.users.2", "server.tls.enabled", "app.users.name",
+        "database.connections.0.user", "server.tls.enabled.deeper");
+
+    for (ConfigSource<?> config : List.of(json, json.snapshot(), json.snapshot().snapshot())) {
+      Object[] values = config.getAll(keys);
+      assertEquals(keys.size(), values.length);
+      for (int i = 0; i < keys.size(); i++) {
+        assertEquals(config.<Object>get(keys.get(i)), values[i], keys.get(i));
+      }
+    }
+    assertEquals("root", json.getAll(List.of("database.connections.0.user"))[0]);
+    assertEquals(0, json.getAll(List.of()).length);
+  }
+
+  @Test
+  public void testJsonContainsKey() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode root = (ObjectNode) mapper.readTree(new File(JSON_FILE));
+    ConfigSource<?> config = new JsonConfigSource(root);
+
+    config.keys().forEach(key -> assertTrue(config.containsKey(key), key));
+    assertFalse(config.containsKey("server"));
+    assertFalse(config.containsKey("app.users"));
+    assertFalse(config.containsKey("server.missing"));
+
+    config.set("server.timeout", 30);
+    assertTrue(config.keys().contains("server.timeout"));
+    config.remove("server.timeout");
+    assertFalse(config.keys().contains("server.timeout"));
+    config.set("server.tls", Map.of("enabled", false));
+    assertFalse(config.keys().contains("server.tls.keyStore"));
+    assertTrue(config.containsKey("server.tls.enabled"));
+  }
+
+  @Test
+  public void testKeysDuringWrites() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("server.port", "8080");
+    for (ConfigSource<?> config : List.<ConfigSource<?>>of(
+        new JsonConfigSource(new ObjectMapper().createObjectNode()),
+        new PropertiesConfigSource(properties))) {
+      config.set("server.port", 8080);
+      Set<String> keys = config.keys();
+      AtomicBoolean running = new AtomicBoolean(true);
+      Thread writer = Thread.ofPlatform().start(() -> {
+        for (int i = 0; running.get(); i++) {
+          config.set("server.extra" + (i % 64), i);
+          config.remove("server.extra" + ((i + 32) % 64));
+        }
+      });
+      try {
+        for (int i = 0; i < 2_000; i++) {
+          int count = 0;
+          for (String key : keys) {
+            count += key.isEmpty() ? 0 : 1;
+          }
+          assertTrue(count >= 1);
+          assertTrue(keys.contains("server.port"));
+        }
+      } finally {
+        running.set(false);
+        writer.join();
+      }
+    }
+  }
+
+  @Test
+  public void testJsonContainerViews() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode root = (ObjectNode) mapper.readTree(
+        "{\"server\":{\"port\":8080,\"tls\":{\"enabled\":true}},\"ports\":[\"80\",\"443\"]}");
+    ConfigSource<?> config = new JsonConfigSource(root);
+
+    Map<String, Object> server = config.getMap("server", String.class, Object.class);
+    assertEquals(Map.of("port", 8080, "tls", Map.of("enabled", true)), server);
+    assertTrue(server.containsKey("tls"));
+    assertThrows(UnsupportedOperationException.class, () -> server.put("host", "localhost"));
+    List<Integer> ports = config.getList("ports", Integer.class);
+    assertEquals(List.of(80, 443), ports);
+    assertThrows(UnsupportedOperationException.class, () -> ports.add(8443));
+    assertEquals(Map.of("port", "8080"), config.getMap("server", String.class, String.class)
+        .entrySet().stream().filter(e -> e.getKey().equals("port"))
+        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+
+    // ビューは作成時点の版のノードを参照するため、以降の書き込みの影響を受けない
+    config.set("server.port", 9090);
+    assertEquals(8080, server.get("port"));
+    assertEquals(9090, config.getMap("server", String.class, Object.class).get("port"));
+  }
+
+  @Test
+  public void testJsonViewsDuringWrites() throws Exception {
+    JsonConfigSource config = new JsonConfigSource(new ObjectMapper().createObjectNode());
+    config.set("server.port", 8080);
+    config.set("server.ports", List.of(80, 443));
+    AtomicBoolean running = new AtomicBoolean(true);
+    Thread writer = Thread.ofPlatform().start(() -> {
+      for (int i = 0; running.get(); i++) {
+        config.set("server.extra" + (i % 64), i);
+        config.remove("server.extra" + ((i + 32) % 64));
+        config.set("server.ports." + (i % 2), i);
+      }
+    });
+    try {
+      for (int i = 0; i < 2_000; i++) {
+        // ビューは作成時点の版を参照するため、書き込み中も走査の件数と size() が一致する
+        Map<String, Object> server = config.getMap("server", String.class, Object.class);
+        int size = server.size();
+        int count = 0;
+        for (Map.Entry<String, Object> e : server.entrySet()) {
+          count += e.getKey().isEmpty() ? 0 : 1;
+        }
+        assertEquals(size, count);
+        assertEquals(size, server.size());
+        List<Integer> ports = config.getList("server.ports", Integer.class);
+        assertEquals(2, ports.size());
+        assertEquals(List.copyOf(ports), ports);
+      }
+    } finally {
+      running.set(false);
+      writer.join();
+    }
+  }
+
   @Test
   public void testPropertiesRead() throws Exception {
     File file = new File(PROPS_FILE);
@@ -112,4 +347,33 @@ public class ConfigFileReadTest {
 
     this.assertConfigValues(config, true);
   }
+
+  @Test
+  public void testPropertiesCollectionsAreCached() throws Exception {
+    Properties props = new Properties();
+    try (FileInputStream in = new FileInputStream(PROPS_FILE)) {
+      props.load(in);
+    }
+    PropertiesConfigSource config = new PropertiesConfigSource(props);
+
+    List<String> users = config.getList("app.users", String.class);
+    assertEquals(List.of("alice", "bob", "carol"), users);
+    assertSame(users, config.getList("app.users", String.class));
+    Set<String> allowed = config.getSet("app.users", String.class);
+    assertSame(allowed, config.getSet("app.users", String.class));
+    assertTrue(allowed.contains("bob"));
+    assertThrows(UnsupportedOperationException.class, () -> allowed.add("dave"));
+
+    config.set("app.users", "alice,dave");
+    assertEquals(Set.of("alice", "dave"), config.getSet("app.users", String.class));
+    assertEquals(List.of("alice", "dave"), config.getList("app.users", String.class));
+
+    // 要素の型ごとにキャッシュするため、異なる型で交互に読んでも解析し直さない
+    config.set("server.ports", "80, 443");
+    List<String> names = config.getList("server.ports", String.class);
+    List<Integer> ports = config.getList("server.ports", Integer.class);
+    assertEquals(List.of(80, 443), ports);
+    assertSame(names, config.getList("server.ports", String.class));
+    assertSame(ports, config.getList("server.ports", Integer.class));
+  }
 }
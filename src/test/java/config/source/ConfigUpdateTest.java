@@ -0,0 +1,167 @@
+package config.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.ConfigChangeEvent;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.KeyPath;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.source.PersistentConfigSource;
+import com.ren130302.config.source.json.JsonConfigSource;
+import com.ren130302.config.source.properties.PropertiesConfigSource;
+
+public class ConfigUpdateTest {
+
+  @Test
+  void testUpdateIsOneTransaction() {
+    JsonConfigSource config = new JsonConfigSource(new ObjectMapper().createObjectNode());
+    config.set("database.pool.size", 4);
+    List<ConfigChangeEvent> events = new ArrayList<>();
+    config.subscribe("database", events::add, Runnable::run);
+    long before = config.version();
+
+    config.update(editor -> editor.set("database.url", "jdbc:h2:mem")
+        .set("database.user", "admin").set("database.pool.size", 8).remove("database.pool.size")
+        .set("database.pool.max", 16));
+
+    assertEquals("jdbc:h2:mem", config.getString("database.url"));
+    assertEquals("admin", config.getString("database.user"));
+    assertNull(config.getRaw("database.pool.size"));
+    assertEquals(16, config.getInt("database.pool.max"));
+    assertEquals(before + 1, config.version());
+    assertEquals(1, events.size());
+    assertEquals(Set.of("database.url", "database.user", "database.pool.size", "database.pool.max"),
+        events.get(0).keys());
+  }
+
+  @Test
+  void testFailedUpdateLeavesSourceUnchanged() {
+    // Properties は toString、JSON は JsonNode への変換で失敗する値
+    Object invalid = new Object() {
+      @Override
+      public String toString() {
+        throw new IllegalStateException("invalid value");
+      }
+    };
+    for (ConfigSource<?> config : List.<ConfigSource<?>>of(new PropertiesConfigSource(new Properties()),
+        new JsonConfigSource(new ObjectMapper().createObjectNode()))) {
+      config.set("database.url", "url-0");
+      List<ConfigChangeEvent> events = new ArrayList<>();
+      config.subscribe("", events::add, Runnable::run);
+      long before = config.version();
+
+      assertThrows(RuntimeException.class, () -> config.update(editor -> editor
+          .set("database.url", "url-1").set("database.user", "admin").set("database.pool", invalid)));
+
+      assertEquals("url-0", config.getString("database.url"));
+      assertNull(config.getRaw("database.user"));
+      assertNull(config.getRaw("database.pool"));
+      assertEquals(before, config.version());
+      assertEquals(before, config.version("database.url"));
+      assertTrue(events.isEmpty());
+    }
+  }
+
+  @Test
+  void testJsonBulkUpdate() {
+    JsonConfigSource config = new JsonConfigSource(new ObjectMapper().createObjectNode());
+    Map<String, Object> overrides = new LinkedHashMap<>();
+    for (int i = 0; i < 100; i++) {
+      overrides.put("group" + (i % 7) + ".item" + i + ".enabled", i % 2 == 0);
+      overrides.put("group" + (i % 7) + ".item" + i + ".weight", i * 1.5);
+    }
+    overrides.put("server.ports", List.of(80, 443));
+    overrides.put("server.tls", Map.of("enabled", true, "protocols", List.of("TLSv1.3")));
+    overrides.put("server.id", UUID.fromString("00000000-0000-0000-0000-000000000001"));
+    config.putAll(overrides);
+
+    assertEquals(true, config.getBoolean("group0.item0.enabled"));
+    assertEquals(148.5, config.getDouble("group1.item99.weight"));
+    assertEquals(List.of(80, 443), config.getList("server.ports", Integer.class));
+    assertEquals(List.of("TLSv1.3"), config.getRaw("server.tls.protocols"));
+    assertEquals("00000000-0000-0000-0000-000000000001", config.getString("server.id"));
+    assertEquals(200, config.keys().stream().filter(key -> key.startsWith("group")).count());
+
+    // 祖先と子孫を同時に変更する場合は記述順に適用する
+    config.update(editor -> editor.set("server.tls.enabled", false).set("server.tls",
+        Map.of("protocols", List.of("TLSv1.2"))));
+    assertNull(config.getRaw("server.tls.enabled"));
+    config.update(editor -> editor.set("server.tls", Map.of()).set("server.tls.enabled", false));
+    assertEquals(Map.of("enabled", false), config.getRaw("server.tls"));
+  }
+
+  @Test
+  void testJsonBulkAppendInIndexOrder() throws Exception {
+    JsonConfigSource config =
+        new JsonConfigSource((ObjectNode) new ObjectMapper().readTree("{\"list\":[]}"));
+    Map<String, Object> overrides = new HashMap<>();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      overrides.put("list." + i, i);
+      expected.add(i);
+    }
+    // 添字は文字列順（"10" < "9"）ではなく数値順に適用する
+    config.putAll(overrides);
+    assertEquals(expected, config.getList("list", Integer.class));
+
+    config.set("arr", List.of(0, 1, 2, 3, 4, 5, 6, 7, 8));
+    config.update(editor -> editor.set("arr.10", 10).set("arr.9", 9));
+    assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10), config.getList("arr", Integer.class));
+  }
+
+  @Test
+  void testSubtreeUpdate() {
+    PersistentConfigSource config = new PersistentConfigSource();
+    List<ConfigChangeEvent> events = new ArrayList<>();
+    config.subscribe("", events::add, Runnable::run);
+
+    ConfigSource<?> database = config.subtree("database");
+    database.update(editor -> editor.putAll(Map.of("url", "jdbc:h2:mem", "user", "admin")));
+
+    assertEquals("admin", config.getString("database.user"));
+    assertEquals(1, events.size());
+    assertEquals(Set.of("database.url", "database.user"), events.get(0).keys());
+  }
+
+  @Test
+  void testConsistentReadsDuringUpdates() throws Exception {
+    for (ConfigSource<?> config : List.<ConfigSource<?>>of(
+        new JsonConfigSource(new ObjectMapper().createObjectNode()),
+        new MapConfigSource(new HashMap<>()))) {
+      config.update(editor -> editor.set("database.url", "url-0").set("database.user", "user-0"));
+      AtomicBoolean running = new AtomicBoolean(true);
+      Thread writer = Thread.ofPlatform().start(() -> {
+        for (int i = 1; running.get(); i++) {
+          int n = i;
+          config.update(
+              editor -> editor.set("database.url", "url-" + n).set("database.user", "user-" + n));
+        }
+      });
+      try {
+        KeyPath url = config.keyPathResolver().compile("database.url");
+        KeyPath user = config.keyPathResolver().compile("database.user");
+        for (int i = 0; i < 20_000; i++) {
+          Object[] values = config.getAll(url, user);
+          assertEquals(values[0].toString().substring(4), values[1].toString().substring(5));
+        }
+      } finally {
+        running.set(false);
+        writer.join();
+      }
+    }
+  }
+}
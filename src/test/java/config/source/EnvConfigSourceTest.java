@@ -0,0 +1,84 @@
+package config.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import com.ren130302.config.source.EnvConfigSource;
+import com.ren130302.config.source.SystemPropertiesConfigSource;
+
+public class EnvConfigSourceTest {
+
+  private static final Map<String, String> ENV =
+      Map.of("SERVER_PORT", "8080", "SERVER_MAX_SIZE", "16", "DEBUG", "true");
+
+  @Test
+  void testEnvRead() {
+    EnvConfigSource config = new EnvConfigSource(ENV, false);
+
+    assertEquals(8080, config.getInt("server.port"));
+    assertEquals("8080", config.getString("SERVER_PORT"));
+    assertTrue(config.getBoolean("debug"));
+    assertTrue(config.containsKey("server.port"));
+    assertNull(config.getRaw("server-port"));
+    assertFalse(config.containsKey("server.maxSize"));
+    assertThrows(UnsupportedOperationException.class, () -> config.set("server.port", 1));
+  }
+
+  @Test
+  void testNormalizesVariableNames() {
+    EnvConfigSource config = new EnvConfigSource(
+        Map.of("app_name", "demo", "Log_Level", "debug", "SERVER_PORT", "8080", "server_port", "1"),
+        false);
+
+    assertEquals("demo", config.getString("app.name"));
+    assertEquals("debug", config.getString("log.level"));
+    assertEquals(8080, config.getInt("server.port"));
+    assertEquals(Set.of("app.name", "log.level", "server.port"), config.keys());
+    config.keys().forEach(key -> assertTrue(config.containsKey(key), key));
+  }
+
+  @Test
+  void testKeysUnderPrefix() {
+    EnvConfigSource config = new EnvConfigSource(
+        Map.of("SERVER_PORT", "8080", "server_max_size", "16", "SERVERLESS", "false",
+            "DEBUG", "true", "HOSTS_0", "a", "HOSTS_1", "b"),
+        false);
+
+    assertEquals(Set.of("server.port", "server.max.size"), config.keys("server"));
+    assertEquals(Set.of("server.port", "server.max.size"), config.keys("SERVER"));
+    assertEquals(Set.of("server.max.size"), config.keys("server.max"));
+    assertEquals(Set.of("port", "max.size"), config.subtree("server").keys());
+    assertEquals(8080, config.subtree("server").getInt("port"));
+    assertEquals(2, config.size("hosts"));
+    assertTrue(config.keys("missing").isEmpty());
+  }
+
+  @Test
+  void testRelaxedBinding() {
+    EnvConfigSource config = new EnvConfigSource(ENV, true);
+
+    assertEquals(8080, config.getInt("server-port"));
+    assertEquals(16, config.getInt("server.maxSize"));
+    assertEquals(16, config.getInt("server.max-size"));
+    assertTrue(config.containsKey("server.maxSize"));
+    assertNull(config.getRaw("server.min-size"));
+  }
+
+  @Test
+  void testSystemPropertiesSnapshot() {
+    Properties properties = new Properties();
+    properties.setProperty("app.name", "demo");
+    SystemPropertiesConfigSource config = new SystemPropertiesConfigSource(properties);
+    properties.setProperty("app.name", "changed");
+
+    assertEquals("demo", config.getString("app.name"));
+    assertEquals(System.getProperty("java.version"),
+        new SystemPropertiesConfigSource().getString("java.version"));
+  }
+}
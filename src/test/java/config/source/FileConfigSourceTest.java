@@ -0,0 +1,104 @@
+package config.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.file.FileConfigSource;
+import com.ren130302.config.source.json.JsonConfigSource;
+
+public class FileConfigSourceTest {
+
+  private static final long TIMEOUT_MILLIS = 10_000;
+
+  @TempDir
+  Path dir;
+
+  private void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for reload");
+      Thread.sleep(20);
+    }
+  }
+
+  @Test
+  public void testReloadOnChange() throws Exception {
+    Path file = this.dir.resolve("config.json");
+    Files.writeString(file, "{\"server\":{\"port\":8080}}");
+
+    try (FileConfigSource<ObjectNode> config = FileConfigSource.json(file)) {
+      assertEquals(8080, config.getInt("server.port"));
+      assertEquals(1, config.metrics().reloadCount());
+
+      Files.writeString(file, "{\"server\":{\"port\":9090}}");
+      this.awaitTrue(() -> config.getInt("server.port") == 9090);
+      assertTrue(config.metrics().reloadCount() >= 2);
+    }
+  }
+
+  @Test
+  public void testKeepsPreviousConfigOnFailure() throws Exception {
+    Path file = this.dir.resolve("config.json");
+    Files.writeString(file, "{\"server\":{\"port\":8080}}");
+
+    try (FileConfigSource<ObjectNode> config = FileConfigSource.json(file)) {
+      Files.writeString(file, "{ broken");
+      assertThrows(IOException.class, config::reload);
+      assertEquals(8080, config.getInt("server.port"));
+      assertTrue(config.metrics().failureCount() >= 1);
+    }
+  }
+
+  @Test
+  public void testReloadsWithinMaxWaitDuringContinuousWrites() throws Exception {
+    Path file = this.dir.resolve("config.json");
+    Files.writeString(file, "{\"counter\":0}");
+
+    try (FileConfigSource<ObjectNode> config = FileConfigSource.watch(file,
+        path -> new JsonConfigSource((ObjectNode) new ObjectMapper().readTree(path.toFile())),
+        Duration.ofMillis(300), Duration.ofMillis(600))) {
+      // debounce より短い間隔で書き込み続けても maxWait ごとにリロードされる
+      long deadline = System.currentTimeMillis() + 3_000;
+      for (int i = 1; System.currentTimeMillis() < deadline; i++) {
+        Files.writeString(file, "{\"counter\":" + i + "}");
+        Thread.sleep(50);
+      }
+      assertTrue(config.metrics().reloadCount() >= 2);
+      assertTrue(config.getInt("counter") > 0);
+    }
+  }
+
+  @Test
+  public void testReloadOnSymlinkSwap() throws Exception {
+    // Kubernetes の ConfigMap と同じ構成: config.json -> ..data/config.json, ..data -> ..v1
+    Path v1 = Files.createDirectory(this.dir.resolve("..v1"));
+    Files.writeString(v1.resolve("config.json"), "{\"server\":{\"port\":8080}}");
+    Files.createSymbolicLink(this.dir.resolve("..data"), Path.of("..v1"));
+    Path file = Files.createSymbolicLink(this.dir.resolve("config.json"),
+        Path.of("..data", "config.json"));
+
+    try (FileConfigSource<ObjectNode> config = FileConfigSource.json(file)) {
+      assertEquals(8080, config.getInt("server.port"));
+
+      Path v2 = Files.createDirectory(this.dir.resolve("..v2"));
+      Files.writeString(v2.resolve("config.json"), "{\"server\":{\"port\":9090}}");
+      Path tmp = Files.createSymbolicLink(this.dir.resolve("..data_tmp"), Path.of("..v2"));
+      Files.move(tmp, this.dir.resolve("..data"), StandardCopyOption.ATOMIC_MOVE);
+      this.awaitTrue(() -> config.getInt("server.port") == 9090);
+
+      // 差し替え後のリンク先の変更も検出する
+      Files.writeString(v2.resolve("config.json"), "{\"server\":{\"port\":7070}}");
+      this.awaitTrue(() -> config.getInt("server.port") == 7070);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package config.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.InterpolatingConfigSource;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.source.json.JsonConfigSource;
+import com.ren130302.config.source.properties.PropertiesConfigSource;
+
+public class InterpolatingConfigSourceTest {
+
+  @Test
+  void testReferencesAndDefaults() {
+    Properties props = new Properties();
+    props.setProperty("server.host", "localhost");
+    props.setProperty("server.port", "8080");
+    props.setProperty("server.url", "http://${server.host}:${server.port}/");
+    props.setProperty("server.timeout", "${server.port}");
+    props.setProperty("app.home", "${APP_HOME:/opt/app}/data");
+    props.setProperty("app.user", "${USER_NAME}");
+    props.setProperty("app.hosts", "${server.host},backup");
+    props.setProperty("app.escaped", "$${server.host}");
+    ConfigSource<?> config = InterpolatingConfigSource.of(new PropertiesConfigSource(props),
+        Map.of("USER_NAME", "alice")::get);
+
+    assertEquals("http://localhost:8080/", config.getString("server.url"));
+    assertEquals(8080, config.getInt("server.timeout"));
+    assertEquals("/opt/app/data", config.getString("app.home"));
+    assertEquals("alice", config.getString("app.user"));
+    assertEquals(List.of("localhost", "backup"), config.getList("app.hosts", String.class));
+    assertEquals("${server.host}", config.getString("app.escaped"));
+    assertEquals("localhost", config.getString("server.host"));
+
+    config.set("server.port", 9090);
+    assertEquals("http://localhost:9090/", config.getString("server.url"));
+    config.set("APP_HOME", "/srv");
+    assertEquals("/srv/data", config.getString("app.home"));
+  }
+
+  @Test
+  void testSingleReferenceKeepsType() {
+    MapConfigSource map = new MapConfigSource(new HashMap<>());
+    map.set("limits.max", 100);
+    map.set("limits.default", "${limits.max}");
+    ConfigSource<?> config = InterpolatingConfigSource.of(map, name -> null);
+
+    assertEquals(100, config.<Object>get("limits.default"));
+  }
+
+  @Test
+  void testChangeInvalidatesDependents() {
+    MapConfigSource map = new MapConfigSource(new HashMap<>());
+    map.set("a", "${b}-${c}");
+    map.set("b", "${d}");
+    map.set("c", "c1");
+    map.set("d", "d1");
+    ConfigSource<?> config = InterpolatingConfigSource.of(map, name -> null);
+
+    assertEquals("d1-c1", config.getString("a"));
+    map.set("d", "d2");
+    assertEquals("d2-c1", config.getString("a"));
+    assertEquals("d2", config.getString("b"));
+    map.set("unrelated", "x");
+    assertEquals("d2-c1", config.getString("a"));
+  }
+
+  @Test
+  void testCyclesAndMissingReferences() {
+    MapConfigSource map = new MapConfigSource(new HashMap<>());
+    map.set("a", "${b}");
+    map.set("b", "x-${c}");
+    map.set("c", "${a}");
+    map.set("missing", "${nowhere}");
+
+    // 循環参照は読み出しを待たずにラップした時点で検出する
+    IllegalStateException cycle = assertThrows(IllegalStateException.class,
+        () -> InterpolatingConfigSource.of(map, name -> null));
+    assertTrue(cycle.getMessage().contains("Circular placeholder reference"), cycle.getMessage());
+
+    map.set("c", "done");
+    ConfigSource<?> config = InterpolatingConfigSource.of(map, name -> null);
+    assertEquals("x-done", config.getString("a"));
+    assertThrows(IllegalStateException.class, () -> config.getString("missing"));
+
+    // 循環参照を作る書き込みは適用せずに拒否する
+    cycle = assertThrows(IllegalStateException.class, () -> config.set("c", "${b}"));
+    assertTrue(cycle.getMessage().contains("c -> b -> c"), cycle.getMessage());
+    assertThrows(IllegalStateException.class,
+        () -> config.update(editor -> editor.set("c", "${d}").set("d", "${a}")));
+    assertEquals("done", map.getString("c"));
+    assertNull(map.getRaw("d"));
+    assertEquals("x-done", config.getString("a"));
+  }
+
+  @Test
+  void testSourceChangesAreRechecked() {
+    MapConfigSource map = new MapConfigSource(new HashMap<>());
+    map.set("a", "${b}");
+    map.set("b", "b1");
+    List<Throwable> reported = new ArrayList<>();
+    Thread current = Thread.currentThread();
+    Thread.UncaughtExceptionHandler handler = current.getUncaughtExceptionHandler();
+    current.setUncaughtExceptionHandler((thread, e) -> reported.add(e));
+    try (InterpolatingConfigSource<?> config = InterpolatingConfigSource.of(map, name -> null)) {
+      assertEquals("b1", config.getString("a"));
+
+      // 元のソースへの直接の書き込みで作られた循環は、変更イベントの時点で報告する
+      map.set("b", "${a}");
+      assertEquals(1, reported.size());
+      assertTrue(reported.get(0).getMessage().contains("b -> a -> b"),
+          reported.get(0).getMessage());
+      assertThrows(IllegalStateException.class, () -> config.getString("a"));
+
+      map.set("b", "b2");
+      assertEquals("b2", config.getString("a"));
+      config.close();
+      map.set("b", "${a}");
+      assertEquals(1, reported.size());
+    } finally {
+      current.setUncaughtExceptionHandler(handler);
+    }
+  }
+
+  @Test
+  void testPlaceholdersInContainers() throws Exception {
+    ObjectNode root = (ObjectNode) new ObjectMapper().readTree(
+        "{\"server\":{\"host\":\"localhost\",\"urls\":[\"http://${server.host}\",\"static\"],"
+            + "\"tls\":{\"cert\":\"${CERT_DIR:/etc}/server.pem\",\"enabled\":true}}}");
+    JsonConfigSource json = new JsonConfigSource(root);
+    ConfigSource<?> config = InterpolatingConfigSource.of(json, name -> null);
+
+    assertEquals(List.of("http://localhost", "static"), config.getList("server.urls", String.class));
+    assertEquals(List.of("http://localhost", "static"), config.getRaw("server.urls"));
+    assertEquals("http://localhost", config.getAt("server.urls", 0, ""));
+    assertEquals(Map.of("cert", "/etc/server.pem", "enabled", true),
+        config.getMap("server.tls", String.class, Object.class));
+    assertEquals(Map.of("cert", "/etc/server.pem", "enabled", true),
+        config.<Map<String, Object>>get("server").get("tls"));
+
+    json.set("server.host", "example.com");
+    assertEquals(List.of("http://example.com", "static"),
+        config.getList("server.urls", String.class));
+    assertThrows(IllegalStateException.class, () -> config.set("server.host", "${server.urls}"));
+  }
+}
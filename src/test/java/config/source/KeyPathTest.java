@@ -0,0 +1,129 @@
+package config.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.File;
+import java.io.FileInputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.KeyPath;
+import com.ren130302.config.source.KeyPathResolvers;
+import com.ren130302.config.source.json.JsonConfigSource;
+import com.ren130302.config.source.properties.PropertiesConfigSource;
+
+public class KeyPathTest {
+
+  @Test
+  public void testCompileDot() {
+    KeyPath path = KeyPathResolvers.DOT.compile("database.connections.1.url");
+
+    assertEquals("database.connections.1.url", path.key());
+    assertEquals(4, path.size());
+    assertFalse(path.isIndex(0));
+    assertTrue(path.isIndex(2));
+    assertEquals(1, path.index(2));
+    assertEquals(-1, path.index(3));
+    assertEquals("url", path.lastSegment());
+  }
+
+  @Test
+  public void testCompileBrackets() {
+    KeyPath path = KeyPathResolvers.DOT.compile("database.connections[1].hosts[0][2]");
+
+    assertEquals("database.connections.1.hosts.0.2", path.key());
+    assertTrue(path.isIndex(2));
+    assertEquals(2, path.index(5));
+    assertEquals(KeyPathResolvers.DOT.compile("database.connections.1.hosts.0.2"), path);
+    assertThrows(IllegalArgumentException.class,
+        () -> KeyPathResolvers.DOT.compile("database.connections[x].url"));
+  }
+
+  @Test
+  public void testCompileIsCached() {
+    KeyPath first = KeyPathResolvers.DOT.compile("server.port");
+    KeyPath second = KeyPathResolvers.DOT.compile("server.port");
+
+    assertSame(first, second);
+    assertEquals(KeyPath.of(KeyPathResolvers.DOT, "server.port"), first);
+  }
+
+  @Test
+  public void testCompileEnv() {
+    KeyPath path = KeyPathResolvers.ENV.compile("server.port");
+
+    assertEquals("SERVER_PORT", path.key());
+    assertEquals(1, path.size());
+  }
+
+  @Test
+  public void testInvalidKey() {
+    assertThrows(IllegalArgumentException.class, () -> KeyPathResolvers.DOT.compile("."));
+  }
+
+  @Test
+  public void testJsonReadByKeyPath() throws Exception {
+    ObjectNode root = (ObjectNode) new ObjectMapper().readTree(new File("config.json"));
+    JsonConfigSource config = new JsonConfigSource(root);
+
+    KeyPath url = config.keyPathResolver().compile("database.connections.1.url");
+    assertEquals("jdbc:mysql://localhost/db2", config.get(url));
+    assertNull(config.get(config.keyPathResolver().compile("database.connections.x.url")));
+
+    KeyPath port = config.keyPathResolver().compile("server.port");
+    config.set(port, 9090);
+    assertEquals(9090, (int) config.get(port));
+  }
+
+  @Test
+  public void testIndexedAccess() throws Exception {
+    ObjectNode root = (ObjectNode) new ObjectMapper().readTree(new File("config.json"));
+    Properties props = new Properties();
+    try (FileInputStream in = new FileInputStream("config.properties")) {
+      props.load(in);
+    }
+    for (ConfigSource<?> config : List.<ConfigSource<?>>of(new JsonConfigSource(root),
+        new PropertiesConfigSource(props))) {
+      assertEquals(2, config.size("database.connections"));
+      assertEquals("root", config.getAt("database.connections", 0, "user"));
+      assertEquals("jdbc:mysql://localhost/db2", config.getAt("database.connections", 1, "url"));
+      assertEquals(URI.create("jdbc:mysql://localhost/db1"),
+          config.getAt("database.connections", 0, "url", URI.class));
+      assertNull(config.getAt("database.connections", 2, "url"));
+      assertEquals(0, config.size("server.missing"));
+      assertEquals(2, config.subtree("database").size("connections"));
+
+      config.set("database.connections[2].url", "jdbc:mysql://localhost/db3");
+      assertEquals(3, config.size("database.connections"));
+      assertEquals("jdbc:mysql://localhost/db3",
+          config.subtree("database").getAt("connections", 2, "url"));
+    }
+  }
+
+  @Test
+  public void testJsonArrayIndexOutOfRange() throws Exception {
+    ObjectNode root = (ObjectNode) new ObjectMapper().readTree("{\"ports\":[80,443]}");
+    JsonConfigSource config = new JsonConfigSource(root);
+    long version = config.version();
+
+    // 末尾の次より先のインデックスや、インデックスでないセグメントでは配列をオブジェクトで置き換えない
+    assertThrows(IndexOutOfBoundsException.class, () -> config.set("ports.5", 8080));
+    assertThrows(IndexOutOfBoundsException.class, () -> config.set("ports.5.host", "localhost"));
+    assertThrows(IllegalArgumentException.class, () -> config.set("ports.http", 8080));
+    assertThrows(IndexOutOfBoundsException.class,
+        () -> config.update(editor -> editor.set("ports.0", 8080).set("ports.3", 8443)));
+    assertEquals(List.of(80, 443), config.getList("ports", Integer.class));
+    assertEquals(version, config.version());
+
+    config.set("ports.2", 8443);
+    assertEquals(List.of(80, 443, 8443), config.getList("ports", Integer.class));
+  }
+}
@@ -0,0 +1,127 @@
+package config.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.source.PersistentConfigSource;
+import com.ren130302.config.source.PersistentMap;
+import com.ren130302.config.source.json.JsonConfigSource;
+
+public class PersistentConfigSourceTest {
+
+  @Test
+  void testPersistentMap() {
+    Map<String, Object> expected = new HashMap<>();
+    PersistentMap map = PersistentMap.empty();
+    for (int i = 0; i < 5000; i++) {
+      map = map.plus("key" + i, i);
+      expected.put("key" + i, i);
+    }
+    // "Aa" と "BB" は String#hashCode が一致する
+    map = map.plus("Aa", "a").plus("BB", "b");
+    expected.put("Aa", "a");
+    expected.put("BB", "b");
+    assertEquals(expected, map);
+    assertEquals("a", map.get("Aa"));
+    assertEquals("b", map.get("BB"));
+
+    PersistentMap removed = map.minus("Aa").minus("key42").minus("missing");
+    assertEquals(expected.size() - 2, removed.size());
+    assertNull(removed.get("Aa"));
+    assertEquals("b", removed.get("BB"));
+    assertEquals(42, map.get("key42"));
+    assertSame(map, map.plus("key1", map.get("key1")));
+  }
+
+  @Test
+  void testSnapshotIsolation() {
+    PersistentConfigSource config = new PersistentConfigSource(Map.of("server.port", 8080));
+    ConfigSource<?> snapshot = config.snapshot();
+    config.set("server.port", 9090);
+    config.putAll(Map.of("server.host", "example.com", "server.tls.enabled", true));
+
+    assertEquals(9090, config.getInt("server.port"));
+    assertEquals(8080, snapshot.getInt("server.port"));
+    assertFalse(snapshot.containsKey("server.host"));
+    assertEquals(3, config.keys().size());
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.set("server.port", 1));
+    assertSame(snapshot, snapshot.snapshot());
+  }
+
+  @Test
+  void testMapSnapshotSharesVersion() {
+    MapConfigSource config = new MapConfigSource(new HashMap<>(Map.of("a", 1, "b", "x")));
+    ConfigSource<?> snapshot = config.snapshot();
+    assertSame(config.source(), snapshot.source());
+    config.set("a", 2);
+
+    assertEquals(1, snapshot.getInt("a"));
+    assertEquals(2, config.getInt("a"));
+    assertEquals(Map.of("a", 1, "b", "x"), snapshot.source());
+    assertEquals(Set.of("a", "b"), snapshot.keys());
+  }
+
+  @Test
+  void testJsonSnapshotSharesVersion() {
+    ObjectNode root = (ObjectNode) new ObjectMapper().valueToTree(
+        Map.of("server", Map.of("port", 8080, "hosts", List.of("a", "b"))));
+    JsonConfigSource config = new JsonConfigSource(root);
+    JsonConfigSource snapshot = config.snapshot();
+    assertSame(config.source(), snapshot.source());
+
+    config.set("server.port", 9090);
+    config.set("server.hosts.2", "c");
+    config.remove("server.hosts.0");
+
+    assertEquals(9090, config.getInt("server.port"));
+    assertEquals(List.of("b", "c"), config.getList("server.hosts", String.class));
+    assertEquals(8080, snapshot.getInt("server.port"));
+    assertEquals(List.of("a", "b"), snapshot.getList("server.hosts", String.class));
+    // 渡したツリーは最初の版として共有され、書き込みで変更されない
+    assertEquals(8080, root.get("server").get("port").intValue());
+    assertSame(snapshot, snapshot.snapshot());
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.set("server.port", 1));
+  }
+
+  @Test
+  void testConcurrentReadersSeeConsistentVersions() throws Exception {
+    for (ConfigSource<?> config : List.of(new PersistentConfigSource(Map.of("a", 0, "b", 0)),
+        new MapConfigSource(new HashMap<>(Map.of("a", 0, "b", 0))),
+        new JsonConfigSource((ObjectNode) new ObjectMapper().valueToTree(Map.of("a", 0, "b", 0))))) {
+      AtomicBoolean running = new AtomicBoolean(true);
+      AtomicReference<String> failure = new AtomicReference<>();
+      Thread reader = Thread.ofPlatform().start(() -> {
+        while (running.get()) {
+          ConfigSource<?> snapshot = config.snapshot();
+          int a = snapshot.getInt("a");
+          int b = snapshot.getInt("b");
+          if (a != b) {
+            failure.set("a=" + a + ", b=" + b);
+          }
+        }
+      });
+      for (int i = 1; i <= 10_000; i++) {
+        config.putAll(Map.of("a", i, "b", i));
+      }
+      running.set(false);
+      reader.join();
+
+      assertNull(failure.get(), config.getClass().getSimpleName());
+      assertTrue(config.version() > 0);
+    }
+  }
+}
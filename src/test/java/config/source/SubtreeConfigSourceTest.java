@@ -0,0 +1,83 @@
+package config.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.source.json.JsonConfigSource;
+import com.ren130302.config.source.properties.PropertiesConfigSource;
+import com.ren130302.config.value.IntConfigValue;
+
+public class SubtreeConfigSourceTest {
+
+  @Test
+  void testJsonSubtree() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    JsonConfigSource json =
+        new JsonConfigSource((ObjectNode) mapper.readTree(new File("config.json")));
+
+    ConfigSource<ObjectNode> connection = json.subtree("database.connections.0");
+    assertEquals("jdbc:mysql://localhost/db1", connection.getString("url"));
+    assertEquals(Set.of("url", "user"), connection.keys());
+
+    ConfigSource<ObjectNode> server = json.subtree("server");
+    assertEquals(8080, server.getInt("port"));
+    assertEquals(Set.of("host", "port", "tls.enabled", "tls.keyStore", "tls.trustStore"),
+        server.keys());
+    assertEquals(Set.of("tls.enabled", "tls.keyStore", "tls.trustStore"), server.keys("tls"));
+    assertTrue(server.subtree("tls").getBoolean("enabled"));
+    assertEquals(Set.of("app.users.0", "app.users.1", "app.users.2"), json.keys("app.users"));
+
+    server.set("timeout", 30);
+    assertEquals(30, json.getInt("server.timeout"));
+    assertTrue(server.keys().contains("timeout"));
+  }
+
+  @Test
+  void testPropertiesSubtree() throws Exception {
+    Properties props = new Properties();
+    try (FileInputStream in = new FileInputStream("config.properties")) {
+      props.load(in);
+    }
+    PropertiesConfigSource config = new PropertiesConfigSource(props);
+    ConfigSource<Properties> tls = config.subtree("server.tls");
+
+    assertEquals(Set.of("enabled", "keyStore", "trustStore"), tls.keys());
+    IntConfigValue port = IntConfigValue.of(config.subtree("server"), "port");
+    assertEquals(8080, port.getAsInt());
+    config.set("server.port", 9090);
+    assertEquals(9090, port.getAsInt());
+
+    tls.remove("keyStore");
+    assertFalse(config.containsKey("server.tls.keyStore"));
+    assertEquals(Set.of("enabled", "trustStore"), tls.keys());
+  }
+
+  @Test
+  void testMapSubtree() {
+    MapConfigSource config = new MapConfigSource(new HashMap<>(
+        Map.of("db.url", "jdbc:h2:mem", "db.pool.size", 8, "dbx", 1, "db", "root")));
+    ConfigSource<Map<String, Object>> db = config.subtree("db");
+
+    assertEquals(Set.of("url", "pool.size"), db.keys());
+    assertEquals(8, db.getInt("pool.size"));
+    assertNull(db.getRaw("dbx"));
+    db.putAll(Map.of("user", "sa"));
+    assertEquals("sa", config.getString("db.user"));
+    assertEquals(List.of("pool.size", "url", "user"), List.copyOf(config.subtree("db").keys()));
+    assertEquals(Map.of("pool.size", 8, "url", "jdbc:h2:mem", "user", "sa"),
+        db.snapshot().source());
+  }
+}
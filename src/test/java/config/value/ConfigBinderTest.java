@@ -0,0 +1,152 @@
+package config.value;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ren130302.config.source.ConfigSource;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.source.json.JsonConfigSource;
+import com.ren130302.config.source.properties.PropertiesConfigSource;
+import com.ren130302.config.value.ConfigBinder;
+import com.ren130302.config.value.ConfigDefault;
+import com.ren130302.config.value.ConfigValue;
+
+public class ConfigBinderTest {
+
+  public record Tls(boolean enabled, String keyStore, String trustStore) {
+  }
+
+  public record Server(String host, int port, Tls tls, @ConfigDefault("30") int timeout,
+      @ConfigDefault("GET,POST") Set<String> methods) {
+  }
+
+  public record Feature(String name, boolean enabled) {
+  }
+
+  public record App(List<String> users, List<Feature> features) {
+  }
+
+  public record Node(String name, Node next) {
+  }
+
+  public static class Pool {
+    private String name = "default";
+    private int size;
+    private Map<String, Integer> limits;
+
+    public void setSize(int size) {
+      this.size = size;
+    }
+  }
+
+  @Test
+  void testBindJson() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    JsonConfigSource json =
+        new JsonConfigSource((ObjectNode) mapper.readTree(new File("config.json")));
+    this.assertBound(json);
+  }
+
+  @Test
+  void testBindProperties() throws Exception {
+    Properties props = new Properties();
+    try (FileInputStream in = new FileInputStream("config.properties")) {
+      props.load(in);
+    }
+    this.assertBound(new PropertiesConfigSource(props));
+  }
+
+  @Test
+  void testBindPojo() {
+    MapConfigSource config = new MapConfigSource(new HashMap<>());
+    config.set("pool.size", "8");
+    config.set("pool.limits.read", 10);
+    config.set("pool.limits.write", "2");
+
+    Pool pool = ConfigBinder.bind(config, "pool", Pool.class);
+    assertEquals("default", pool.name);
+    assertEquals(8, pool.size);
+    assertEquals(Map.of("read", 10, "write", 2), pool.limits);
+  }
+
+  @Test
+  void testAbsentNestedSectionIsNull() {
+    MapConfigSource config = new MapConfigSource(new HashMap<>());
+    config.set("n.name", "first");
+    config.set("n.next.name", "second");
+
+    Node node = ConfigBinder.bind(config, "n", Node.class);
+    assertEquals(new Node("first", new Node("second", null)), node);
+
+    config.set("server.host", "localhost");
+    assertNull(ConfigBinder.bind(config, "server", Server.class).tls());
+  }
+
+  @Test
+  void testValueRefreshesOnlyOnSectionChange() {
+    MapConfigSource config = new MapConfigSource(new HashMap<>());
+    config.set("server.host", "localhost");
+    config.set("server.port", 8080);
+    config.set("other", "x");
+
+    ConfigValue<Server> value = ConfigBinder.value(config, "server", Server.class);
+    Server first = value.get();
+    assertEquals(8080, first.port());
+    assertEquals(30, first.timeout());
+
+    config.set("other", "y");
+    assertSame(first, value.get());
+
+    config.set("server.tls.enabled", true);
+    Server second = value.get();
+    assertNotSame(first, second);
+    assertTrue(second.tls().enabled());
+  }
+
+  @Test
+  void testRootValueRefreshesOnChange() {
+    MapConfigSource config = new MapConfigSource(new HashMap<>());
+    config.set("name", "first");
+    config.set("enabled", true);
+
+    // 空文字列の prefix はルートからバインドし、ルート直下のフィールドの変更でバインドし直す
+    ConfigValue<Feature> value = ConfigBinder.value(config, "", Feature.class);
+    Feature first = value.get();
+    assertEquals("first", first.name());
+    assertSame(first, value.get());
+
+    config.set("name", "second");
+    Feature second = value.get();
+    assertNotSame(first, second);
+    assertEquals("second", second.name());
+    assertTrue(second.enabled());
+  }
+
+  // ----------------- ヘルパーメソッド -----------------
+
+  private void assertBound(ConfigSource<?> config) {
+    Server server = ConfigBinder.bind(config, "server", Server.class);
+    assertEquals("localhost", server.host());
+    assertEquals(8080, server.port());
+    assertEquals(new Tls(true, "keystore.jks", "truststore.jks"), server.tls());
+    assertEquals(30, server.timeout());
+    assertEquals(Set.of("GET", "POST"), server.methods());
+
+    App app = ConfigBinder.bind(config, "app", App.class);
+    assertEquals(List.of("alice", "bob", "carol"), app.users());
+    assertEquals(List.of(new Feature("login", true), new Feature("payments", false)),
+        app.features());
+  }
+}
@@ -0,0 +1,104 @@
+package config.value;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import com.ren130302.config.source.KeyPath;
+import com.ren130302.config.source.MapConfigSource;
+import com.ren130302.config.value.RequiredConfigValue;
+
+public class ConfigValueConcurrencyTest {
+
+  private static final int THREADS = 64;
+  private static final int ROUNDS = 20;
+
+  /**
+   * 生の値の取得回数を数える MapConfigSource。 競合を起こしやすくするため取得ごとに少し待つ。
+   */
+  private static final class CountingSource extends MapConfigSource {
+
+    final AtomicInteger reads = new AtomicInteger();
+
+    CountingSource() {
+      super(new HashMap<>());
+    }
+
+    @Override
+    public Object getRaw(KeyPath path) {
+      this.reads.incrementAndGet();
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return super.getRaw(path);
+    }
+  }
+
+  private void getConcurrently(RequiredConfigValue<?> value, String expected) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Object>> results = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        results.add(executor.submit(() -> {
+          start.await();
+          return value.get();
+        }));
+      }
+      start.countDown();
+      for (Future<Object> result : results) {
+        assertEquals(expected, result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testResolvesOncePerVersion() throws Exception {
+    CountingSource source = new CountingSource();
+    source.set("server.host", "localhost");
+    RequiredConfigValue<String> host =
+        RequiredConfigValue.immutable(source, "server.host", String.class);
+
+    for (int round = 0; round < ROUNDS; round++) {
+      String expected = "host-" + round;
+      source.set("server.host", expected);
+      source.set("server.other", round);
+      this.getConcurrently(host, expected);
+      assertEquals(round + 1, source.reads.get());
+    }
+  }
+
+  @Test
+  public void testCachesFailureUntilRetryInterval() {
+    CountingSource source = new CountingSource();
+    RequiredConfigValue<String> cached =
+        RequiredConfigValue.immutable(source, "missing", String.class, Duration.ofHours(1));
+    for (int i = 0; i < 10; i++) {
+      assertThrows(IllegalStateException.class, cached::get);
+    }
+    assertEquals(1, source.reads.get());
+
+    source.set("missing", "present");
+    assertEquals("present", cached.get());
+    assertEquals(2, source.reads.get());
+
+    RequiredConfigValue<String> retrying =
+        RequiredConfigValue.immutable(source, "other", String.class, Duration.ZERO);
+    for (int i = 0; i < 3; i++) {
+      assertThrows(IllegalStateException.class, retrying::get);
+    }
+    assertEquals(5, source.reads.get());
+  }
+}
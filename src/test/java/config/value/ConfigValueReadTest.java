@@ -2,6 +2,7 @@ package config.value;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.File;
 import java.io.FileInputStream;
@@ -14,6 +15,10 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.ren130302.config.source.ConfigSource;
 import com.ren130302.config.source.json.JsonConfigSource;
 import com.ren130302.config.source.properties.PropertiesConfigSource;
+import com.ren130302.config.value.BooleanConfigValue;
+import com.ren130302.config.value.DoubleConfigValue;
+import com.ren130302.config.value.IntConfigValue;
+import com.ren130302.config.value.LongConfigValue;
 import com.ren130302.config.value.RequiredConfigValue;
 
 class ConfigValueReadTest {
@@ -121,6 +126,104 @@ class ConfigValueReadTest {
     this.assertConfigValues(config, false);
   }
 
+  // ------------------------------
+  // プリミティブ値テスト
+  // ------------------------------
+  private void assertPrimitiveValues(ConfigSource<?> config) {
+    assertEquals(8080, IntConfigValue.of(config, "server.port").getAsInt());
+    assertEquals(8080L, LongConfigValue.of(config, "server.port").getAsLong());
+    assertEquals(8080d, DoubleConfigValue.of(config, "server.port").getAsDouble());
+    assertTrue(BooleanConfigValue.of(config, "server.tls.enabled").getAsBoolean());
+    assertEquals(30, IntConfigValue.of(config, "server.timeout", 30).getAsInt());
+    assertThrows(IllegalStateException.class,
+        () -> IntConfigValue.of(config, "server.timeout").getAsInt());
+
+    IntConfigValue port = IntConfigValue.of(config, "server.port");
+    assertEquals(8080, port.getAsInt());
+    config.set("server.port", 9090);
+    assertEquals(9090, port.getAsInt());
+
+    // toString は読み込み直さないため、必須の値が削除されても例外を送出しない
+    IntConfigValue unread = IntConfigValue.of(config, "server.port");
+    assertEquals("ConfigValue[key=server.port,value=<not loaded>]", unread.toString());
+    config.remove("server.port");
+    assertThrows(IllegalStateException.class, port::getAsInt);
+    assertEquals("ConfigValue[key=server.port,value=9090]", port.toString());
+  }
+
+  // ------------------------------
+  // 変更検知テスト
+  // ------------------------------
+  private void assertRefreshOnChange(ConfigSource<?> config) {
+    RequiredConfigValue<String> host =
+        RequiredConfigValue.immutable(config, "server.host", String.class);
+    RequiredConfigValue<String> keyStore =
+        RequiredConfigValue.immutable(config, "server.tls.keyStore", String.class);
+    assertEquals("localhost", host.get());
+    assertEquals("keystore.jks", keyStore.get());
+
+    long stamp = config.version("server.tls.keyStore");
+    config.set("server.host", "example.com");
+    assertEquals("example.com", host.get());
+    assertEquals(stamp, config.version("server.tls.keyStore"));
+    assertEquals("keystore.jks", keyStore.get());
+
+    config.remove("server.host");
+    assertThrows(IllegalStateException.class, host::get);
+  }
+
+  @Test
+  public void testRefreshAcrossVersionCompaction() throws Exception {
+    ObjectNode root = (ObjectNode) new ObjectMapper().readTree(new File(JSON_FILE));
+    ConfigSource<?> config = new JsonConfigSource(root);
+    RequiredConfigValue<String> host =
+        RequiredConfigValue.immutable(config, "server.host", String.class);
+    assertEquals("localhost", host.get());
+
+    // 多数のキーの書き込みと削除で記録が上限を超えても、version(key) は減らず変更を検知できる
+    long stamp = config.version("server.host");
+    for (int i = 0; i < 20_000; i++) {
+      config.set("churn.key" + i, i);
+      config.remove("churn.key" + i);
+    }
+    assertTrue(config.version("server.host") >= stamp);
+    assertEquals("localhost", host.get());
+    stamp = config.version("server.host");
+    config.set("server.host", "example.com");
+    assertTrue(config.version("server.host") > stamp);
+    assertEquals("example.com", host.get());
+  }
+
+  @Test
+  public void testJsonRefreshOnChange() throws Exception {
+    ObjectNode root = (ObjectNode) new ObjectMapper().readTree(new File(JSON_FILE));
+    this.assertRefreshOnChange(new JsonConfigSource(root));
+  }
+
+  @Test
+  public void testPropertiesRefreshOnChange() throws Exception {
+    Properties props = new Properties();
+    try (FileInputStream in = new FileInputStream(PROPS_FILE)) {
+      props.load(in);
+    }
+    this.assertRefreshOnChange(new PropertiesConfigSource(props));
+  }
+
+  @Test
+  public void testJsonPrimitiveValues() throws Exception {
+    ObjectNode root = (ObjectNode) new ObjectMapper().readTree(new File(JSON_FILE));
+    this.assertPrimitiveValues(new JsonConfigSource(root));
+  }
+
+  @Test
+  public void testPropertiesPrimitiveValues() throws Exception {
+    Properties props = new Properties();
+    try (FileInputStream in = new FileInputStream(PROPS_FILE)) {
+      props.load(in);
+    }
+    this.assertPrimitiveValues(new PropertiesConfigSource(props));
+  }
+
   // ------------------------------
   // Properties テスト
   // ------------------------------